@@ -0,0 +1,787 @@
+package fr.skytasul.reflection.shrieker;
+
+import fr.skytasul.reflection.shrieker.ClassFileReader.MethodCode;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Type;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+import java.util.zip.ZipFile;
+
+/**
+ * Records the reflective accesses of compiled code without running it, by reading its class files.
+ * <p>
+ * Calls to {@link fr.skytasul.reflection.ReflectionAccessor#getClass(String) getClass},
+ * {@link fr.skytasul.reflection.ReflectionAccessor.ClassAccessor#getField(String) getField} and
+ * {@link fr.skytasul.reflection.ReflectionAccessor.ClassAccessor#getMethod(String, Type...) getMethod}
+ * (and their <code>...Instance</code> variants) are found by following the constants of each method
+ * through the operand stack, local variables and fields. The accesses are recorded in the same way as
+ * a dry run of the reflection initializer against a {@link FakeReflectionAccessor}, so that the scan
+ * can replace it:
+ *
+ * <pre>
+ * var accesses = BytecodeAccessScanner.scan(Path.of("plugin.jar"));
+ * var shrieker = new MappingsShrieker(mappingType, (reflection, version) -> accesses.replay(reflection));
+ * </pre>
+ *
+ * Nothing is loaded nor run, so the classes used by the scanned code do not have to be on the
+ * classpath. Unlike a dry run, the scan finds the accesses of every code path, including the ones of
+ * branches which depend on the version:
+ * {@link FakeReflectionAccessor#replay(fr.skytasul.reflection.ReflectionAccessor) replay} skips the
+ * accesses missing from the mappings of a version. Call sites whose names are not constants
+ * cannot be resolved: they are logged and skipped.
+ * <p>
+ * Plugins usually shade and relocate this library: the package it has been relocated to must then be
+ * given to {@link #scan(String, Path...)}, otherwise no call site is found.
+ */
+public final class BytecodeAccessScanner {
+
+	private static final Logger LOGGER = Logger.getLogger("BytecodeAccessScanner");
+
+	private static final String LIBRARY_PACKAGE = "fr.skytasul.reflection";
+	private static final String LIBRARY_PREFIX = "fr/skytasul/reflection/";
+	private static final String CLASS_ACCESSOR = "Lfr/skytasul/reflection/ReflectionAccessor$ClassAccessor;";
+
+	// value of the stack, locals and fields which cannot be followed
+	private static final Object UNKNOWN = new Object() {
+		@Override
+		public String toString() {
+			return "unknown";
+		}
+	};
+
+	private static final Map<String, Class<?>> PRIMITIVE_TYPES = Map.of(
+			"java/lang/Boolean", boolean.class,
+			"java/lang/Byte", byte.class,
+			"java/lang/Character", char.class,
+			"java/lang/Short", short.class,
+			"java/lang/Integer", int.class,
+			"java/lang/Long", long.class,
+			"java/lang/Float", float.class,
+			"java/lang/Double", double.class,
+			"java/lang/Void", void.class);
+
+	// internal name prefix of the classes of the library, possibly relocated
+	private final @NotNull String packagePrefix;
+
+	// values stored in fields, keyed by owner and name
+	private final @NotNull Map<String, Object> fields = new HashMap<>();
+
+	// calls to the library found by the second pass, resolved or not
+	private final @NotNull LongAdder callSites = new LongAdder();
+
+	private BytecodeAccessScanner(@NotNull String packagePrefix) {
+		this.packagePrefix = packagePrefix;
+	}
+
+	/**
+	 * Scans class files for reflective accesses, made through this library in its original package.
+	 *
+	 * @param paths jar files, directories of class files or class files
+	 * @return a fake accessor on which all found accesses have been made
+	 * @throws IOException if a file cannot be read
+	 * @throws IllegalArgumentException if a file is not a valid class file
+	 * @see #scan(String, Path...)
+	 */
+	public static @NotNull FakeReflectionAccessor scan(@NotNull Path @NotNull... paths) throws IOException {
+		return scan(LIBRARY_PACKAGE, paths);
+	}
+
+	/**
+	 * Scans class files for reflective accesses. The class files are read and scanned in parallel.
+	 * <p>
+	 * A warning is logged if no call to the library is found, which usually means that it has been
+	 * relocated to another package.
+	 *
+	 * @param libraryPackage package of this library in the scanned code, e.g.
+	 *        <code>com.example.plugin.libs.reflection</code> if it has been relocated there
+	 * @param paths jar files, directories of class files or class files
+	 * @return a fake accessor on which all found accesses have been made
+	 * @throws IOException if a file cannot be read
+	 * @throws IllegalArgumentException if a file is not a valid class file
+	 */
+	public static @NotNull FakeReflectionAccessor scan(@NotNull String libraryPackage, @NotNull Path @NotNull... paths)
+			throws IOException {
+		var classFiles = new ArrayList<ClassFile>();
+		var zipFiles = new ArrayList<ZipFile>();
+		try {
+			for (var path : paths) {
+				if (Files.isDirectory(path)) {
+					try (var files = Files.walk(path)) {
+						files.filter(file -> file.toString().endsWith(".class")).forEach(file -> classFiles
+								.add(new ClassFile(path.relativize(file).toString(), () -> Files.readAllBytes(file))));
+					}
+				} else if (path.toString().endsWith(".class")) {
+					classFiles.add(new ClassFile(path.getFileName().toString(), () -> Files.readAllBytes(path)));
+				} else {
+					var zipFile = new ZipFile(path.toFile());
+					zipFiles.add(zipFile);
+					zipFile.stream().filter(entry -> entry.getName().endsWith(".class")).forEach(entry -> classFiles
+							.add(new ClassFile(entry.getName(), () -> {
+								try (var input = zipFile.getInputStream(entry)) {
+									return input.readAllBytes();
+								}
+							})));
+				}
+			}
+			classFiles.sort(Comparator.comparing(ClassFile::name));
+
+			return new BytecodeAccessScanner(libraryPackage.replace('.', '/') + "/").scan(classFiles, libraryPackage);
+		} catch (UncheckedIOException ex) {
+			throw ex.getCause();
+		} finally {
+			for (var zipFile : zipFiles)
+				zipFile.close();
+		}
+	}
+
+	private @NotNull FakeReflectionAccessor scan(@NotNull List<ClassFile> classFiles, @NotNull String libraryPackage) {
+		// first pass: what is stored in fields, so that methods using them can be followed
+		var readers = classFiles.parallelStream().map(ClassFile::read).toList();
+		var storedFields = readers.parallelStream().map(reader -> {
+			var interpreter = new MethodInterpreter(reader, new HashMap<>(), null);
+			reader.getMethods().forEach(interpreter::run);
+			return interpreter.storedFields;
+		}).toList();
+		for (var classFields : storedFields)
+			classFields.forEach((field, value) -> fields.merge(field, value, BytecodeAccessScanner::merge));
+
+		// second pass: the accesses themselves
+		var accesses = readers.parallelStream().map(reader -> {
+			var classAccesses = new ArrayList<Access>();
+			var interpreter = new MethodInterpreter(reader, null, classAccesses);
+			reader.getMethods().forEach(interpreter::run);
+			return classAccesses;
+		}).toList();
+		if (callSites.sum() == 0)
+			LOGGER.warning("No call to the reflection library found in package " + libraryPackage
+					+ ": if it has been relocated, its relocated package must be given to the scanner");
+
+		var reflection = new FakeReflectionAccessor();
+		try {
+			for (var classAccesses : accesses) {
+				for (var access : classAccesses)
+					access.record(reflection);
+			}
+		} catch (ReflectiveOperationException ex) {
+			throw new IllegalStateException("The fake accessor cannot fail", ex);
+		}
+		return reflection;
+	}
+
+	private static @NotNull Object merge(@NotNull Object value1, @NotNull Object value2) {
+		return value1.equals(value2) ? value1 : UNKNOWN;
+	}
+
+	@FunctionalInterface
+	private interface BytesSupplier {
+
+		byte @NotNull [] get() throws IOException;
+
+	}
+
+	private record ClassFile(@NotNull String name, @NotNull BytesSupplier bytes) {
+
+		private @NotNull ClassFileReader read() {
+			try {
+				return new ClassFileReader(bytes.get());
+			} catch (IOException ex) {
+				throw new UncheckedIOException(ex);
+			} catch (RuntimeException ex) {
+				throw new IllegalArgumentException("Cannot read class file " + name, ex);
+			}
+		}
+
+	}
+
+	/**
+	 * A class accessor of a known class.
+	 */
+	private record ClassValue(@NotNull String name) {
+	}
+
+	/**
+	 * A type which has no class accessor, such as a class constant.
+	 */
+	private record NamedType(@NotNull String name) implements Type {
+
+		@Override
+		public @NotNull String getTypeName() {
+			return name;
+		}
+
+	}
+
+	/**
+	 * An array created in the method: its elements are followed as long as they are stored at constant
+	 * indexes.
+	 */
+	private static final class ArrayValue {
+
+		private final @NotNull Object @NotNull [] elements;
+
+		private ArrayValue(int length) {
+			elements = new Object[length];
+			Arrays.fill(elements, UNKNOWN);
+		}
+
+	}
+
+	/**
+	 * An access found in the code. Parameter types are either {@link Type types} or
+	 * {@link ClassValue class accessors}.
+	 */
+	private record Access(@NotNull String className, @Nullable String member, @NotNull Object @Nullable [] parameters) {
+
+		private void record(@NotNull FakeReflectionAccessor reflection) throws ReflectiveOperationException {
+			var classAccessor = reflection.getClass(className);
+			if (member == null)
+				return;
+
+			if (parameters == null) {
+				classAccessor.getField(member);
+			} else {
+				var types = new Type[parameters.length];
+				for (int i = 0; i < types.length; i++)
+					types[i] = parameters[i] instanceof ClassValue classValue ? reflection.getClass(classValue.name)
+							: (Type) parameters[i];
+				classAccessor.getMethod(member, types);
+			}
+		}
+
+	}
+
+	private record State(@NotNull List<Object> stack, @NotNull Object @NotNull [] locals) {
+	}
+
+	/**
+	 * Follows the values of the methods of a class, instruction by instruction. Branches are merged at
+	 * their target: a value which differs between them becomes unknown. Backward jumps are not
+	 * followed, loops being handled as straight code.
+	 */
+	private final class MethodInterpreter {
+
+		private final @NotNull ClassFileReader reader;
+		// first pass: fields stored by this class
+		private final @Nullable Map<String, Object> storedFields;
+		// second pass: accesses found in this class
+		private final @Nullable List<Access> accesses;
+
+		private @NotNull List<Object> stack = new ArrayList<>();
+		private @NotNull Object @NotNull [] locals = new Object[0];
+		private MethodCode method;
+
+		private MethodInterpreter(@NotNull ClassFileReader reader, @Nullable Map<String, Object> storedFields,
+				@Nullable List<Access> accesses) {
+			this.reader = reader;
+			this.storedFields = storedFields;
+			this.accesses = accesses;
+		}
+
+		private void run(@NotNull MethodCode method) {
+			this.method = method;
+			stack = new ArrayList<>();
+			locals = new Object[method.maxLocals()];
+			Arrays.fill(locals, UNKNOWN);
+
+			var handlers = new BitSet(method.length());
+			for (int handler : method.handlers())
+				handlers.set(handler);
+			Map<Integer, State> pending = new HashMap<>();
+			boolean reachable = true;
+			int pc = 0;
+			while (pc < method.length()) {
+				var state = pending.remove(pc);
+				if (state != null) {
+					if (reachable)
+						mergeState(state);
+					else
+						setState(state);
+				} else if (handlers.get(pc)) {
+					stack.clear();
+					stack.add(UNKNOWN); // the exception
+				} else if (!reachable) {
+					stack.clear(); // only reached by a backward jump
+				}
+
+				int next = execute(pc, pending);
+				reachable = next >= 0;
+				pc = Math.abs(next);
+			}
+		}
+
+		/**
+		 * Executes an instruction.
+		 *
+		 * @return the offset of the next instruction, negated if it cannot be reached from this one
+		 */
+		private int execute(int pc, @NotNull Map<Integer, State> pending) {
+			int at = method.offset() + pc;
+			int opcode = reader.u1(at);
+			switch (opcode) {
+				case 0 -> {} // nop
+				case 1 -> push(UNKNOWN); // aconst_null
+				case 2, 3, 4, 5, 6, 7, 8 -> push(opcode - 3); // iconst_<n>
+				case 9, 10, 14, 15 -> push2(); // lconst_<n>, dconst_<n>
+				case 11, 12, 13 -> push(UNKNOWN); // fconst_<n>
+				case 16 -> { // bipush
+					push((int) (byte) reader.u1(at + 1));
+					return pc + 2;
+				}
+				case 17 -> { // sipush
+					push(reader.s2(at + 1));
+					return pc + 3;
+				}
+				case 18 -> { // ldc
+					push(getConstant(reader.u1(at + 1)));
+					return pc + 2;
+				}
+				case 19 -> { // ldc_w
+					push(getConstant(reader.u2(at + 1)));
+					return pc + 3;
+				}
+				case 20 -> { // ldc2_w
+					push2();
+					return pc + 3;
+				}
+				case 21, 22, 23, 24, 25 -> { // <x>load
+					load(reader.u1(at + 1), opcode == 22 || opcode == 24);
+					return pc + 2;
+				}
+				case 26, 27, 28, 29, 30, 31, 32, 33, 34, 35, 36, 37, 38, 39, 40, 41, 42, 43, 44, 45 -> { // <x>load_<n>
+					int type = (opcode - 26) / 4;
+					load((opcode - 26) % 4, type == 1 || type == 3);
+				}
+				case 46, 48, 50, 51, 52, 53 -> { // <x>aload
+					pop(2);
+					push(UNKNOWN);
+				}
+				case 47, 49 -> { // laload, daload
+					pop(2);
+					push2();
+				}
+				case 54, 55, 56, 57, 58 -> { // <x>store
+					store(reader.u1(at + 1), opcode == 55 || opcode == 57);
+					return pc + 2;
+				}
+				case 59, 60, 61, 62, 63, 64, 65, 66, 67, 68, 69, 70, 71, 72, 73, 74, 75, 76, 77, 78 -> { // <x>store_<n>
+					int type = (opcode - 59) / 4;
+					store((opcode - 59) % 4, type == 1 || type == 3);
+				}
+				case 83 -> { // aastore
+					var value = pop();
+					var index = pop();
+					if (pop() instanceof ArrayValue array && index instanceof Integer i && i >= 0
+							&& i < array.elements.length)
+						array.elements[i] = value;
+				}
+				case 79, 81, 84, 85, 86 -> pop(3); // <x>astore
+				case 80, 82 -> pop(4); // lastore, dastore
+				case 87 -> pop(1); // pop
+				case 88 -> pop(2); // pop2
+				case 89 -> { // dup
+					var value = pop();
+					push(value, value);
+				}
+				case 90 -> { // dup_x1
+					var value1 = pop();
+					var value2 = pop();
+					push(value1, value2, value1);
+				}
+				case 91 -> { // dup_x2
+					var value1 = pop();
+					var value2 = pop();
+					var value3 = pop();
+					push(value1, value3, value2, value1);
+				}
+				case 92 -> { // dup2
+					var value1 = pop();
+					var value2 = pop();
+					push(value2, value1, value2, value1);
+				}
+				case 93 -> { // dup2_x1
+					var value1 = pop();
+					var value2 = pop();
+					var value3 = pop();
+					push(value2, value1, value3, value2, value1);
+				}
+				case 94 -> { // dup2_x2
+					var value1 = pop();
+					var value2 = pop();
+					var value3 = pop();
+					var value4 = pop();
+					push(value2, value1, value4, value3, value2, value1);
+				}
+				case 95 -> { // swap
+					var value1 = pop();
+					var value2 = pop();
+					push(value1, value2);
+				}
+				case 96, 98, 100, 102, 104, 106, 108, 110, 112, 114, 120, 122, 124, 126, 128, 130, 149, 150 -> {
+					// int and float binary operations, fcmp<op>
+					pop(2);
+					push(UNKNOWN);
+				}
+				case 97, 99, 101, 103, 105, 107, 109, 111, 113, 115, 127, 129, 131 -> {
+					// long and double binary operations
+					pop(4);
+					push2();
+				}
+				case 121, 123, 125 -> { // long shifts
+					pop(3);
+					push2();
+				}
+				case 116, 118, 134, 139, 145, 146, 147 -> { // ineg, fneg, i2f, f2i, i2b, i2c, i2s
+					pop(1);
+					push(UNKNOWN);
+				}
+				case 117, 119, 138, 143 -> { // lneg, dneg, l2d, d2l
+					pop(2);
+					push2();
+				}
+				case 133, 135, 140, 141 -> { // i2l, i2d, f2l, f2d
+					pop(1);
+					push2();
+				}
+				case 136, 137, 142, 144 -> { // l2i, l2f, d2i, d2f
+					pop(2);
+					push(UNKNOWN);
+				}
+				case 148, 151, 152 -> { // lcmp, dcmp<op>
+					pop(4);
+					push(UNKNOWN);
+				}
+				case 132 -> { // iinc
+					setLocal(reader.u1(at + 1), UNKNOWN);
+					return pc + 3;
+				}
+				case 153, 154, 155, 156, 157, 158, 198, 199 -> { // if<cond>, ifnull, ifnonnull
+					pop(1);
+					jump(pc, pc + reader.s2(at + 1), pending);
+					return pc + 3;
+				}
+				case 159, 160, 161, 162, 163, 164, 165, 166 -> { // if_icmp<cond>, if_acmp<cond>
+					pop(2);
+					jump(pc, pc + reader.s2(at + 1), pending);
+					return pc + 3;
+				}
+				case 167 -> { // goto
+					jump(pc, pc + reader.s2(at + 1), pending);
+					return -(pc + 3);
+				}
+				case 200 -> { // goto_w
+					jump(pc, pc + reader.s4(at + 1), pending);
+					return -(pc + 5);
+				}
+				case 168 -> { // jsr
+					push(UNKNOWN);
+					return pc + 3;
+				}
+				case 201 -> { // jsr_w
+					push(UNKNOWN);
+					return pc + 5;
+				}
+				case 169 -> { // ret
+					return -(pc + 2);
+				}
+				case 170 -> { // tableswitch
+					pop(1);
+					int base = pc + 4 - pc % 4;
+					int low = reader.s4(method.offset() + base + 4);
+					int high = reader.s4(method.offset() + base + 8);
+					jump(pc, pc + reader.s4(method.offset() + base), pending);
+					for (int i = 0; i <= high - low; i++)
+						jump(pc, pc + reader.s4(method.offset() + base + 12 + 4 * i), pending);
+					return -(base + 12 + 4 * (high - low + 1));
+				}
+				case 171 -> { // lookupswitch
+					pop(1);
+					int base = pc + 4 - pc % 4;
+					int pairs = reader.s4(method.offset() + base + 4);
+					jump(pc, pc + reader.s4(method.offset() + base), pending);
+					for (int i = 0; i < pairs; i++)
+						jump(pc, pc + reader.s4(method.offset() + base + 12 + 8 * i), pending);
+					return -(base + 8 + 8 * pairs);
+				}
+				case 172, 174, 176, 191 -> { // ireturn, freturn, areturn, athrow
+					pop(1);
+					return -(pc + 1);
+				}
+				case 173, 175 -> { // lreturn, dreturn
+					pop(2);
+					return -(pc + 1);
+				}
+				case 177 -> { // return
+					return -(pc + 1);
+				}
+				case 178, 180 -> { // getstatic, getfield
+					var field = reader.getMemberRef(reader.u2(at + 1));
+					if (opcode == 180)
+						pop(1);
+					if (ClassFileReader.getSlots(field.descriptor()) == 2)
+						push2();
+					else if (opcode == 178 && field.name().equals("TYPE") && PRIMITIVE_TYPES.containsKey(field.owner()))
+						push(PRIMITIVE_TYPES.get(field.owner()));
+					else
+						push(getField(field.owner() + "." + field.name()));
+					return pc + 3;
+				}
+				case 179, 181 -> { // putstatic, putfield
+					var field = reader.getMemberRef(reader.u2(at + 1));
+					var value = ClassFileReader.getSlots(field.descriptor()) == 2 ? pop(2) : pop();
+					if (opcode == 181)
+						pop(1);
+					if (storedFields != null)
+						storedFields.merge(field.owner() + "." + field.name(), value, BytecodeAccessScanner::merge);
+					return pc + 3;
+				}
+				case 182, 183, 184, 185 -> { // invokevirtual, invokespecial, invokestatic, invokeinterface
+					invoke(reader.getMemberRef(reader.u2(at + 1)), opcode == 184);
+					return pc + (opcode == 185 ? 5 : 3);
+				}
+				case 186 -> { // invokedynamic
+					var descriptor = reader.getInvokeDynamicDescriptor(reader.u2(at + 1));
+					pop(Arrays.stream(ClassFileReader.getParameterSlots(descriptor)).sum());
+					pushReturn(ClassFileReader.getReturnSlots(descriptor), UNKNOWN);
+					return pc + 5;
+				}
+				case 187 -> { // new
+					push(UNKNOWN);
+					return pc + 3;
+				}
+				case 188 -> { // newarray
+					pop(1);
+					push(UNKNOWN);
+					return pc + 2;
+				}
+				case 189 -> { // anewarray
+					push(pop() instanceof Integer length && length >= 0 && length < 256 ? new ArrayValue(length) : UNKNOWN);
+					return pc + 3;
+				}
+				case 190, 193 -> { // arraylength, instanceof
+					pop(1);
+					push(UNKNOWN);
+					return pc + (opcode == 193 ? 3 : 1);
+				}
+				case 192 -> { // checkcast
+					return pc + 3;
+				}
+				case 194, 195 -> pop(1); // monitorenter, monitorexit
+				case 196 -> { // wide
+					int wideOpcode = reader.u1(at + 1);
+					int index = reader.u2(at + 2);
+					if (wideOpcode == 132) { // iinc
+						setLocal(index, UNKNOWN);
+						return pc + 6;
+					}
+					if (wideOpcode == 169) // ret
+						return -(pc + 4);
+					if (wideOpcode <= 25)
+						load(index, wideOpcode == 22 || wideOpcode == 24);
+					else
+						store(index, wideOpcode == 55 || wideOpcode == 57);
+					return pc + 4;
+				}
+				case 197 -> { // multianewarray
+					pop(reader.u1(at + 3));
+					push(UNKNOWN);
+					return pc + 4;
+				}
+				default -> throw new IllegalArgumentException("Unknown opcode " + opcode + " in "
+						+ reader.getName() + "." + method.name() + method.descriptor());
+			}
+			return pc + 1;
+		}
+
+		private void invoke(@NotNull ClassFileReader.MemberRef methodRef, boolean isStatic) {
+			var parameterSlots = ClassFileReader.getParameterSlots(methodRef.descriptor());
+			var parameters = new Object[parameterSlots.length];
+			for (int i = parameters.length - 1; i >= 0; i--)
+				parameters[i] = parameterSlots[i] == 2 ? pop(2) : pop();
+			var receiver = isStatic ? null : pop();
+
+			Object result = UNKNOWN;
+			if (methodRef.owner().startsWith(packagePrefix)) {
+				// relocated descriptors are brought back to the original package to be recognized
+				if (!packagePrefix.equals(LIBRARY_PREFIX))
+					methodRef = new ClassFileReader.MemberRef(methodRef.owner(), methodRef.name(),
+							methodRef.descriptor().replace("L" + packagePrefix, "L" + LIBRARY_PREFIX));
+				result = getAccess(methodRef, receiver, parameters);
+			}
+			pushReturn(ClassFileReader.getReturnSlots(methodRef.descriptor()), result);
+		}
+
+		/**
+		 * Records the access made by a method of the reflection library, if any.
+		 *
+		 * @return the value returned by the method
+		 */
+		private @NotNull Object getAccess(@NotNull ClassFileReader.MemberRef methodRef, @Nullable Object receiver,
+				@NotNull Object @NotNull [] parameters) {
+			switch (methodRef.name() + methodRef.descriptor()) {
+				case "getClass(Ljava/lang/String;)" + CLASS_ACCESSOR, "getClassInstance(Ljava/lang/String;)Ljava/lang/Class;" -> {
+					if (!(parameters[0] instanceof String className)) {
+						warnUnresolved(methodRef);
+						return UNKNOWN;
+					}
+					record(new Access(className, null, null));
+					// the fake accessor gives Object as the class instance
+					return methodRef.name().equals("getClass") ? new ClassValue(className) : Object.class;
+				}
+				case "getClassInstance()Ljava/lang/Class;" -> {
+					return receiver instanceof ClassValue ? Object.class : UNKNOWN;
+				}
+				case "getArrayType()Ljava/lang/reflect/Type;" -> {
+					// the fake accessor gives Object[] as the array type
+					return receiver instanceof ClassValue ? Object[].class : UNKNOWN;
+				}
+				case "getField(Ljava/lang/String;)Lfr/skytasul/reflection/ReflectionAccessor$ClassAccessor$FieldAccessor;",
+						"getFieldInstance(Ljava/lang/String;)Ljava/lang/reflect/Field;" -> {
+					if (receiver instanceof ClassValue classValue && parameters[0] instanceof String fieldName)
+						record(new Access(classValue.name, fieldName, null));
+					else
+						warnUnresolved(methodRef);
+				}
+				case "getMethod(Ljava/lang/String;[Ljava/lang/reflect/Type;)Lfr/skytasul/reflection/ReflectionAccessor$ClassAccessor$MethodAccessor;",
+						"getMethodInstance(Ljava/lang/String;[Ljava/lang/reflect/Type;)Ljava/lang/reflect/Method;" -> {
+					if (receiver instanceof ClassValue classValue && parameters[0] instanceof String methodName
+							&& parameters[1] instanceof ArrayValue array && Arrays.stream(array.elements)
+									.allMatch(type -> type instanceof Type || type instanceof ClassValue))
+						record(new Access(classValue.name, methodName, array.elements.clone()));
+					else
+						warnUnresolved(methodRef);
+				}
+				default -> {}
+			}
+			return UNKNOWN;
+		}
+
+		private void record(@NotNull Access access) {
+			if (accesses != null) {
+				accesses.add(access);
+				callSites.increment();
+			}
+		}
+
+		private void warnUnresolved(@NotNull ClassFileReader.MemberRef methodRef) {
+			if (accesses != null) {
+				callSites.increment();
+				LOGGER.warning("Cannot resolve the call to %s in %s.%s%s: its arguments are not constants".formatted(
+						methodRef.name(), reader.getName().replace('/', '.'), method.name(), method.descriptor()));
+			}
+		}
+
+		private @NotNull Object getConstant(int index) {
+			return switch (reader.getTag(index)) {
+				case ClassFileReader.CONSTANT_STRING -> reader.getString(index);
+				case ClassFileReader.CONSTANT_INTEGER -> reader.getInteger(index);
+				case ClassFileReader.CONSTANT_CLASS -> new NamedType(ClassFileReader.getTypeName(reader.getClassName(index)));
+				default -> UNKNOWN;
+			};
+		}
+
+		private @NotNull Object getField(@NotNull String field) {
+			var value = storedFields == null ? fields.get(field) : storedFields.get(field);
+			return value == null ? UNKNOWN : value;
+		}
+
+		private void jump(int pc, int target, @NotNull Map<Integer, State> pending) {
+			if (target <= pc)
+				return;
+			var state = new State(new ArrayList<>(stack), locals.clone());
+			pending.merge(target, state, (state1, state2) -> {
+				mergeInto(state1, state2);
+				return state1;
+			});
+		}
+
+		private void setState(@NotNull State state) {
+			stack = state.stack();
+			locals = state.locals();
+		}
+
+		private void mergeState(@NotNull State state) {
+			mergeInto(new State(stack, locals), state);
+		}
+
+		private void mergeInto(@NotNull State state, @NotNull State other) {
+			var stack = state.stack();
+			if (stack.size() != other.stack().size()) {
+				stack.replaceAll(__ -> UNKNOWN);
+			} else {
+				for (int i = 0; i < stack.size(); i++)
+					stack.set(i, merge(stack.get(i), other.stack().get(i)));
+			}
+			var locals = state.locals();
+			for (int i = 0; i < locals.length; i++)
+				locals[i] = merge(locals[i], other.locals()[i]);
+		}
+
+		private void load(int index, boolean wide) {
+			if (wide)
+				push2();
+			else
+				push(index < locals.length ? locals[index] : UNKNOWN);
+		}
+
+		private void store(int index, boolean wide) {
+			if (wide) {
+				pop(2);
+				setLocal(index, UNKNOWN);
+				setLocal(index + 1, UNKNOWN);
+			} else {
+				setLocal(index, pop());
+			}
+		}
+
+		private void setLocal(int index, @NotNull Object value) {
+			if (index < locals.length)
+				locals[index] = value;
+		}
+
+		private void push(@NotNull Object @NotNull... values) {
+			for (var value : values)
+				stack.add(value);
+		}
+
+		private void push2() {
+			push(UNKNOWN, UNKNOWN);
+		}
+
+		private void pushReturn(int slots, @NotNull Object value) {
+			if (slots == 2)
+				push2();
+			else if (slots == 1)
+				push(value);
+		}
+
+		private @NotNull Object pop() {
+			// approximations may leave less values than expected
+			return stack.isEmpty() ? UNKNOWN : stack.remove(stack.size() - 1);
+		}
+
+		/**
+		 * Pops several slots.
+		 *
+		 * @return {@link #UNKNOWN}, as a value of several slots cannot be followed
+		 */
+		private @NotNull Object pop(int slots) {
+			for (int i = 0; i < slots; i++)
+				pop();
+			return UNKNOWN;
+		}
+
+	}
+
+}
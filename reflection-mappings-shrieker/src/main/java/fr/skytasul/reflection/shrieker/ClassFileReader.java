@@ -0,0 +1,276 @@
+package fr.skytasul.reflection.shrieker;
+
+import org.jetbrains.annotations.NotNull;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the parts of a class file needed to follow the code of its methods: the constant pool and the
+ * <code>Code</code> attribute of each method. Everything else is skipped.
+ * <p>
+ * Constants are decoded lazily, when they are first asked for. Instructions are read directly from the
+ * bytes of the class file through {@link #u1(int)}, {@link #u2(int)}, {@link #s2(int)} and
+ * {@link #s4(int)}, with offsets relative to the whole file.
+ */
+final class ClassFileReader {
+
+	static final int CONSTANT_INTEGER = 3;
+	static final int CONSTANT_CLASS = 7;
+	static final int CONSTANT_STRING = 8;
+
+	private final byte @NotNull [] bytes;
+	private final int @NotNull [] offsets;
+	private final @NotNull String @NotNull [] utf8Cache;
+
+	private final @NotNull String name;
+	private final @NotNull List<MethodCode> methods = new ArrayList<>();
+
+	/**
+	 * Reads a class file.
+	 *
+	 * @param bytes content of the class file
+	 * @throws IllegalArgumentException if this is not a class file
+	 */
+	ClassFileReader(byte @NotNull [] bytes) {
+		this.bytes = bytes;
+		if (bytes.length < 10 || s4(0) != 0xCAFEBABE)
+			throw new IllegalArgumentException("Not a class file");
+
+		int count = u2(8);
+		offsets = new int[count];
+		utf8Cache = new String[count];
+		int offset = 10;
+		for (int i = 1; i < count; i++) {
+			offsets[i] = offset;
+			int tag = u1(offset);
+			switch (tag) {
+				case 1 -> offset += 3 + u2(offset + 1);
+				case 3, 4, 9, 10, 11, 12, 17, 18 -> offset += 5;
+				case 5, 6 -> {
+					offset += 9;
+					i++; // takes two entries
+				}
+				case 7, 8, 16, 19, 20 -> offset += 3;
+				case 15 -> offset += 4;
+				default -> throw new IllegalArgumentException("Unknown constant pool tag " + tag);
+			}
+		}
+
+		name = getClassName(u2(offset + 2));
+		offset += 6;
+		offset += 2 + 2 * u2(offset); // interfaces
+
+		int fieldsCount = u2(offset);
+		offset += 2;
+		for (int i = 0; i < fieldsCount; i++)
+			offset = skipAttributes(offset + 6);
+
+		int methodsCount = u2(offset);
+		offset += 2;
+		for (int i = 0; i < methodsCount; i++) {
+			int access = u2(offset);
+			var methodName = getUtf8(u2(offset + 2));
+			var descriptor = getUtf8(u2(offset + 4));
+			int attributesCount = u2(offset + 6);
+			offset += 8;
+			for (int j = 0; j < attributesCount; j++) {
+				int length = s4(offset + 2);
+				if (getUtf8(u2(offset)).equals("Code")) {
+					int codeLength = s4(offset + 10);
+					int codeOffset = offset + 14;
+					int handlersCount = u2(codeOffset + codeLength);
+					var handlers = new int[handlersCount];
+					for (int k = 0; k < handlersCount; k++)
+						handlers[k] = u2(codeOffset + codeLength + 2 + 8 * k + 4);
+					methods.add(new MethodCode(methodName, descriptor, (access & 0x0008) != 0, u2(offset + 8),
+							codeOffset, codeLength, handlers));
+				}
+				offset += 6 + length;
+			}
+		}
+	}
+
+	private int skipAttributes(int offset) {
+		int attributesCount = u2(offset);
+		offset += 2;
+		for (int i = 0; i < attributesCount; i++)
+			offset += 6 + s4(offset + 2);
+		return offset;
+	}
+
+	/**
+	 * @return the internal name of this class, e.g. <code>java/lang/String</code>
+	 */
+	@NotNull
+	String getName() {
+		return name;
+	}
+
+	/**
+	 * @return the methods of this class which have code
+	 */
+	@NotNull
+	List<MethodCode> getMethods() {
+		return methods;
+	}
+
+	int u1(int offset) {
+		return bytes[offset] & 0xFF;
+	}
+
+	int u2(int offset) {
+		return ((bytes[offset] & 0xFF) << 8) | (bytes[offset + 1] & 0xFF);
+	}
+
+	int s2(int offset) {
+		return (short) u2(offset);
+	}
+
+	int s4(int offset) {
+		return (u2(offset) << 16) | u2(offset + 2);
+	}
+
+	int getTag(int index) {
+		return u1(offsets[index]);
+	}
+
+	@NotNull
+	String getUtf8(int index) {
+		var utf8 = utf8Cache[index];
+		if (utf8 == null) {
+			int offset = offsets[index];
+			// class files use the modified UTF-8 of DataInput
+			try (var input = new DataInputStream(new ByteArrayInputStream(bytes, offset + 1, u2(offset + 1) + 2))) {
+				utf8Cache[index] = utf8 = input.readUTF();
+			} catch (IOException ex) {
+				throw new UncheckedIOException(ex);
+			}
+		}
+		return utf8;
+	}
+
+	/**
+	 * @param index index of a <code>CONSTANT_Integer</code>
+	 */
+	int getInteger(int index) {
+		return s4(offsets[index] + 1);
+	}
+
+	/**
+	 * @param index index of a <code>CONSTANT_String</code>
+	 */
+	@NotNull
+	String getString(int index) {
+		return getUtf8(u2(offsets[index] + 1));
+	}
+
+	/**
+	 * @param index index of a <code>CONSTANT_Class</code>
+	 * @return the internal name of the class, or the descriptor of an array class
+	 */
+	@NotNull
+	String getClassName(int index) {
+		return getUtf8(u2(offsets[index] + 1));
+	}
+
+	/**
+	 * @param index index of a <code>CONSTANT_Fieldref</code>, <code>CONSTANT_Methodref</code> or
+	 *        <code>CONSTANT_InterfaceMethodref</code>
+	 */
+	@NotNull
+	MemberRef getMemberRef(int index) {
+		int offset = offsets[index];
+		int nameAndType = offsets[u2(offset + 3)];
+		return new MemberRef(getClassName(u2(offset + 1)), getUtf8(u2(nameAndType + 1)), getUtf8(u2(nameAndType + 3)));
+	}
+
+	/**
+	 * @param index index of a <code>CONSTANT_InvokeDynamic</code>
+	 * @return the method descriptor of the call site
+	 */
+	@NotNull
+	String getInvokeDynamicDescriptor(int index) {
+		return getUtf8(u2(offsets[u2(offsets[index] + 3)] + 3));
+	}
+
+	/**
+	 * Converts an internal name or a field descriptor to the name returned by
+	 * {@link Class#getTypeName()}, e.g. <code>[Ljava/lang/String;</code> to
+	 * <code>java.lang.String[]</code>.
+	 */
+	static @NotNull String getTypeName(@NotNull String internalName) {
+		int dimensions = 0;
+		while (internalName.charAt(dimensions) == '[')
+			dimensions++;
+		if (dimensions == 0)
+			return internalName.replace('/', '.');
+
+		var component = switch (internalName.charAt(dimensions)) {
+			case 'Z' -> "boolean";
+			case 'B' -> "byte";
+			case 'C' -> "char";
+			case 'S' -> "short";
+			case 'I' -> "int";
+			case 'J' -> "long";
+			case 'F' -> "float";
+			case 'D' -> "double";
+			default -> internalName.substring(dimensions + 1, internalName.length() - 1).replace('/', '.');
+		};
+		return component + "[]".repeat(dimensions);
+	}
+
+	/**
+	 * @return the number of stack slots taken by a value of this field descriptor
+	 */
+	static int getSlots(@NotNull String fieldDescriptor) {
+		return switch (fieldDescriptor.charAt(0)) {
+			case 'J', 'D' -> 2;
+			case 'V' -> 0;
+			default -> 1;
+		};
+	}
+
+	/**
+	 * @return the number of stack slots taken by each parameter of this method descriptor
+	 */
+	static int @NotNull [] getParameterSlots(@NotNull String methodDescriptor) {
+		var slots = new ArrayList<Integer>();
+		int i = 1;
+		while (methodDescriptor.charAt(i) != ')') {
+			int start = i;
+			while (methodDescriptor.charAt(i) == '[')
+				i++;
+			if (methodDescriptor.charAt(i) == 'L')
+				i = methodDescriptor.indexOf(';', i);
+			slots.add(start == i ? getSlots(methodDescriptor.substring(i, i + 1)) : 1);
+			i++;
+		}
+		return slots.stream().mapToInt(Integer::intValue).toArray();
+	}
+
+	/**
+	 * @return the number of stack slots taken by the return value of this method descriptor
+	 */
+	static int getReturnSlots(@NotNull String methodDescriptor) {
+		return getSlots(methodDescriptor.substring(methodDescriptor.indexOf(')') + 1));
+	}
+
+	record MemberRef(@NotNull String owner, @NotNull String name, @NotNull String descriptor) {
+	}
+
+	/**
+	 * Code of a method.
+	 *
+	 * @param offset offset of the first instruction in the class file
+	 * @param length length of the code in bytes
+	 * @param handlers offsets of the exception handlers, relative to the first instruction
+	 */
+	record MethodCode(@NotNull String name, @NotNull String descriptor, boolean isStatic, int maxLocals, int offset,
+			int length, int @NotNull [] handlers) {
+	}
+
+}
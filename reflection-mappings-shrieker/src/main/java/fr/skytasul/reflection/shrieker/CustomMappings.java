@@ -1,6 +1,7 @@
 package fr.skytasul.reflection.shrieker;
 
 import fr.skytasul.reflection.mappings.Mappings;
+import fr.skytasul.reflection.mappings.MappingsIndex;
 import fr.skytasul.reflection.mappings.Mappings.ClassMapping.FieldMapping;
 import fr.skytasul.reflection.mappings.Mappings.ClassMapping.MethodMapping;
 import fr.skytasul.reflection.shrieker.CustomMappings.CustomClassMapping.CustomFieldMapping;
@@ -10,8 +11,12 @@ import org.jetbrains.annotations.Nullable;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.function.Function;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
@@ -22,9 +27,13 @@ public class CustomMappings implements Mappings {
 
 	private final Map<String, CustomClassMapping> classes;
 
+	// built on the first lookup by mapped name, and discarded when a class gets renamed
+	private @Nullable MappingsIndex index;
+
 	public CustomMappings(Mappings existingMappings) {
 		classes = existingMappings.getClasses().stream()
-				.map(classMapping -> new CustomClassMapping(classMapping.getOriginalName(), classMapping.getMappedName()))
+				.map(classMapping -> new CustomClassMapping(classMapping.getOriginalName(), classMapping.getMappedName())
+						.setOwner(this))
 				.collect(Collectors.toMap(CustomClassMapping::getOriginalName, Function.identity()));
 
 		for (ClassMapping classMapping : existingMappings.getClasses()) {
@@ -51,11 +60,112 @@ public class CustomMappings implements Mappings {
 		return classes.get(originalName);
 	}
 
+	@Override
+	public boolean hasIndexedLookup() {
+		return true;
+	}
+
 	public @Nullable CustomClassMapping getClassFromMapped(@NotNull String mappedName) {
-		return classes.values().stream()
-				.filter(classMapping -> classMapping.mapped.equals(mappedName))
-				.findAny()
-				.orElse(null);
+		var currentIndex = index;
+		if (currentIndex == null)
+			index = currentIndex = createIndex();
+		return (CustomClassMapping) currentIndex.getClassFromMapped(mappedName);
+	}
+
+	/**
+	 * Makes every class inherit the fields and methods of all its supertypes, as if
+	 * {@link CustomClassMapping#inheritsFrom(CustomClassMapping)} was called for each pair. Supertypes
+	 * are handled before their subtypes, so that members are propagated down the whole hierarchy.
+	 * <p>
+	 * Supertypes which are not part of these mappings are walked through: a class inherits the members
+	 * of the mapped supertypes of its unmapped superclass.
+	 *
+	 * @param supertypes gives the original names of the direct superclass and interfaces of a class,
+	 *        from its original name
+	 * @throws IllegalArgumentException if the hierarchy has a cycle
+	 */
+	public void propagateInheritance(@NotNull Function<@NotNull String, ? extends Collection<@NotNull String>> supertypes) {
+		var propagation = new InheritancePropagation(supertypes);
+		for (var classMapping : classes.values())
+			propagation.propagate(classMapping);
+	}
+
+	/**
+	 * Makes every class inherit the fields and methods of all its supertypes, taking the hierarchy from
+	 * the classes of a class loader. Classes are looked up by their original name, without being
+	 * initialized; classes which cannot be loaded are considered to have no supertype.
+	 *
+	 * @param classLoader class loader of the classes, named after the original names of these mappings
+	 * @see #propagateInheritance(Function)
+	 */
+	public void propagateInheritance(@NotNull ClassLoader classLoader) {
+		propagateInheritance(name -> {
+			try {
+				var clazz = Class.forName(name, false, classLoader);
+				var supertypes = new ArrayList<String>(clazz.getInterfaces().length + 1);
+				if (clazz.getSuperclass() != null)
+					supertypes.add(clazz.getSuperclass().getName());
+				for (var interfaceClass : clazz.getInterfaces())
+					supertypes.add(interfaceClass.getName());
+				return supertypes;
+			} catch (ClassNotFoundException | LinkageError ex) {
+				LOGGER.fine("Cannot load class " + name + ": " + ex);
+				return List.of();
+			}
+		});
+	}
+
+	private class InheritancePropagation {
+
+		private final @NotNull Function<@NotNull String, ? extends Collection<@NotNull String>> supertypes;
+
+		// nearest supertypes part of these mappings, for any type name
+		private final @NotNull Map<String, Collection<CustomClassMapping>> mappedSupertypes = new HashMap<>();
+		private final @NotNull Set<String> walking = new HashSet<>();
+		private final @NotNull Set<CustomClassMapping> propagated = new HashSet<>();
+		private final @NotNull Set<CustomClassMapping> propagating = new HashSet<>();
+
+		private InheritancePropagation(
+				@NotNull Function<@NotNull String, ? extends Collection<@NotNull String>> supertypes) {
+			this.supertypes = supertypes;
+		}
+
+		private void propagate(@NotNull CustomClassMapping classMapping) {
+			if (propagated.contains(classMapping))
+				return;
+			if (!propagating.add(classMapping))
+				throw new IllegalArgumentException("Cyclic inheritance of class " + classMapping.getOriginalName());
+
+			for (var supertype : getMappedSupertypes(classMapping.getOriginalName())) {
+				propagate(supertype);
+				classMapping.inheritsFrom(supertype);
+			}
+
+			propagating.remove(classMapping);
+			propagated.add(classMapping);
+		}
+
+		private @NotNull Collection<CustomClassMapping> getMappedSupertypes(@NotNull String name) {
+			var mapped = mappedSupertypes.get(name);
+			if (mapped == null) {
+				if (!walking.add(name))
+					throw new IllegalArgumentException("Cyclic inheritance of class " + name);
+
+				mapped = new LinkedHashSet<>();
+				for (var supertype : supertypes.apply(name)) {
+					var supertypeMapping = classes.get(supertype);
+					if (supertypeMapping != null)
+						mapped.add(supertypeMapping);
+					else
+						mapped.addAll(getMappedSupertypes(supertype));
+				}
+
+				walking.remove(name);
+				mappedSupertypes.put(name, mapped);
+			}
+			return mapped;
+		}
+
 	}
 
 	public static class CustomClassMapping implements ClassMapping {
@@ -65,11 +175,18 @@ public class CustomMappings implements Mappings {
 		private final @NotNull List<CustomFieldMapping> fields = new ArrayList<>();
 		private final @NotNull List<CustomMethodMapping> methods = new ArrayList<>();
 
+		private @Nullable CustomMappings owner;
+
 		public CustomClassMapping(@NotNull String original, @NotNull String mapped) {
 			this.original = original;
 			this.mapped = mapped;
 		}
 
+		private @NotNull CustomClassMapping setOwner(@NotNull CustomMappings owner) {
+			this.owner = owner;
+			return this;
+		}
+
 		@Override
 		public @NotNull String getOriginalName() {
 			return original;
@@ -77,6 +194,8 @@ public class CustomMappings implements Mappings {
 
 		public void setOriginalName(@NotNull String original) {
 			this.original = original;
+			if (owner != null)
+				owner.index = null;
 		}
 
 		@Override
@@ -86,6 +205,8 @@ public class CustomMappings implements Mappings {
 
 		public void setMappedName(@NotNull String mapped) {
 			this.mapped = mapped;
+			if (owner != null)
+				owner.index = null;
 		}
 
 		@Override
@@ -98,12 +219,22 @@ public class CustomMappings implements Mappings {
 			return methods;
 		}
 
+		/**
+		 * Adds the fields and methods of another class to this one, unless this class already has a member
+		 * with the same name (and parameters for methods).
+		 *
+		 * @param classMapping class to inherit the members from
+		 * @return this class
+		 */
 		public CustomClassMapping inheritsFrom(@NotNull CustomClassMapping classMapping) {
+			Map<String, CustomFieldMapping> fieldsByName = new HashMap<>((fields.size() + classMapping.fields.size()) * 2);
+			for (CustomFieldMapping fieldMapping : fields)
+				fieldsByName.putIfAbsent(fieldMapping.original, fieldMapping);
+
 			for (CustomFieldMapping inheritedFieldMapping : classMapping.fields) {
-				var fieldMapping =
-						fields.stream().filter(field -> field.original.equals(inheritedFieldMapping.original)).findAny();
-				if (fieldMapping.isPresent()) {
-					if (!fieldMapping.get().mapped.equals(inheritedFieldMapping.mapped))
+				var fieldMapping = fieldsByName.putIfAbsent(inheritedFieldMapping.original, inheritedFieldMapping);
+				if (fieldMapping != null) {
+					if (!fieldMapping.mapped.equals(inheritedFieldMapping.mapped))
 						LOGGER.warning("Asked to add inheritance to equal mappings (%s, field %s)".formatted(original,
 								inheritedFieldMapping.original));
 				} else {
@@ -111,14 +242,20 @@ public class CustomMappings implements Mappings {
 				}
 			}
 
+			Map<String, CustomMethodMapping> methodsBySignature =
+					new HashMap<>((methods.size() + classMapping.methods.size()) * 2);
+			for (CustomMethodMapping methodMapping : methods)
+				methodsBySignature.putIfAbsent(
+						Mappings.getStringForMethod(methodMapping.original, methodMapping.parameterTypes), methodMapping);
+
 			for (CustomMethodMapping inheritedMethodMapping : classMapping.methods) {
-				var methodMapping = methods.stream().filter(method -> method.original.equals(inheritedMethodMapping.original)
-						&& method.isSameParameters(inheritedMethodMapping.parameterTypes)).findAny();
-				if (methodMapping.isPresent()) {
-					if (!methodMapping.get().mapped.equals(inheritedMethodMapping.mapped))
+				var signature =
+						Mappings.getStringForMethod(inheritedMethodMapping.original, inheritedMethodMapping.parameterTypes);
+				var methodMapping = methodsBySignature.putIfAbsent(signature, inheritedMethodMapping);
+				if (methodMapping != null) {
+					if (!methodMapping.mapped.equals(inheritedMethodMapping.mapped))
 						LOGGER.warning("Asked to add inheritance to equal mappings (%s, method %s)".formatted(original,
-								Mappings.getStringForMethod(inheritedMethodMapping.original,
-										inheritedMethodMapping.parameterTypes)));
+								signature));
 				} else {
 					methods.add(inheritedMethodMapping);
 				}
@@ -5,14 +5,20 @@ import fr.skytasul.reflection.ReflectionAccessor.ClassAccessor;
 import fr.skytasul.reflection.ReflectionAccessor.ClassAccessor.ConstructorAccessor;
 import fr.skytasul.reflection.ReflectionAccessor.ClassAccessor.FieldAccessor;
 import fr.skytasul.reflection.ReflectionAccessor.ClassAccessor.MethodAccessor;
+import fr.skytasul.reflection.mappings.Mappings;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import java.lang.reflect.*;
 import java.util.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 public class FakeReflectionAccessor implements ReflectionAccessor {
 
+	private static final Logger LOGGER = Logger.getLogger("FakeReflectionAccessor");
+
 	private final Map<String, FakeClass> classes = new HashMap<>();
+	private final Set<String> optionalAccesses = new HashSet<>();
 
 	public Collection<FakeClass> classes() {
 		return classes.values();
@@ -23,6 +29,78 @@ public class FakeReflectionAccessor implements ReflectionAccessor {
 		return classes.computeIfAbsent(name, FakeClass::new);
 	}
 
+	/**
+	 * Checks if an access has been made by {@link #replay(ReflectionAccessor)}, in which case it can
+	 * be missing from the mappings of some versions.
+	 *
+	 * @param access the access, as <code>class</code>, <code>class.field</code> or
+	 *        <code>class.method(parameters)</code>
+	 * @return <code>true</code> if the access can be missing
+	 */
+	public boolean isOptional(@NotNull String access) {
+		return optionalAccesses.contains(access);
+	}
+
+	/**
+	 * Makes the accesses recorded by this accessor again on another accessor, for instance to use the
+	 * accesses found by {@link BytecodeAccessScanner} as a {@link MappingsShrieker.ReflectionInitializer}.
+	 * <p>
+	 * A scan records the accesses of the branches of all versions, which do not all exist in the
+	 * mappings of each version. Accesses which the other accessor cannot make are therefore skipped,
+	 * as well as the members of the classes it cannot find and the methods whose parameter types it
+	 * cannot find. When the other accessor is a fake one, like the one given to the initializer of a
+	 * {@link MappingsShrieker}, the accesses are marked as {@linkplain #isOptional(String) optional}
+	 * so that the shrieker skips the ones missing from the mappings of a version.
+	 *
+	 * @param reflection accessor to make the accesses on
+	 * @return the skipped accesses, as <code>class</code>, <code>class.field</code> or
+	 *         <code>class.method(parameters)</code>
+	 */
+	public @NotNull List<String> replay(@NotNull ReflectionAccessor reflection) {
+		var skipped = new ArrayList<String>();
+		var fakeReflection = reflection instanceof FakeReflectionAccessor fake ? fake : null;
+		for (var fakeClass : classes.values()) {
+			ClassAccessor classAccessor;
+			try {
+				classAccessor = reflection.getClass(fakeClass.name);
+			} catch (ReflectiveOperationException ex) {
+				skipped.add(fakeClass.name);
+				continue;
+			}
+			if (fakeReflection != null)
+				fakeReflection.optionalAccesses.add(fakeClass.name);
+			for (var field : fakeClass.fields) {
+				var access = fakeClass.name + "." + field.name;
+				try {
+					classAccessor.getField(field.name);
+					if (fakeReflection != null)
+						fakeReflection.optionalAccesses.add(access);
+				} catch (ReflectiveOperationException ex) {
+					skipped.add(access);
+				}
+			}
+			for (var method : fakeClass.methods) {
+				var access = fakeClass.name + "." + Mappings.getStringForMethod(method.name, method.parameterTypes);
+				try {
+					var parameterTypes = new Type[method.parameterTypes.length];
+					for (int i = 0; i < parameterTypes.length; i++)
+						parameterTypes[i] = method.parameterTypes[i] instanceof FakeClass parameterClass
+								? reflection.getClass(parameterClass.name)
+								: method.parameterTypes[i];
+					classAccessor.getMethod(method.name, parameterTypes);
+					if (fakeReflection != null)
+						fakeReflection.optionalAccesses.add(access);
+				} catch (ReflectiveOperationException ex) {
+					skipped.add(access);
+				}
+			}
+		}
+		if (!skipped.isEmpty())
+			LOGGER.log(Level.FINE, "Skipped {0} accesses missing from the replayed accessor: {1}",
+					new Object[] {skipped.size(), skipped});
+		return skipped;
+	}
+
 	public record FakeClass(@NotNull String name, List<FakeField> fields, List<FakeMethod> methods)
 			implements ClassAccessor {
 
@@ -0,0 +1,400 @@
+package fr.skytasul.reflection.shrieker;
+
+import fr.skytasul.reflection.mappings.Mappings;
+import fr.skytasul.reflection.mappings.Mappings.ClassMapping;
+import org.jetbrains.annotations.NotNull;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Logger;
+
+/**
+ * Replaces the obfuscated class names of large log files by their original names, as well as the
+ * member names following them (<code>a.b.c(SourceFile:12)</code> becomes
+ * <code>net.minecraft.Foo.bar(SourceFile:12)</code>).
+ * <p>
+ * The log is streamed in chunks of whole lines which are processed in parallel, then written in
+ * their original order. At most a few chunks per thread are kept in memory, whatever the size of the
+ * log.
+ * <p>
+ * Logs are processed as UTF-8 bytes, without decoding them. Obfuscated names are only matched as
+ * whole names: they must not be preceded nor followed by a character which can be part of a name
+ * (apart from the <code>.</code> separating a class from a member). When overloads of a method with
+ * the same obfuscated name have different original names, all of them are written, separated by
+ * <code>|</code>.
+ */
+public class LogDeobfuscator {
+
+	private static final Logger LOGGER = Logger.getLogger("LogDeobfuscator");
+
+	private static final int DEFAULT_CHUNK_SIZE = 1 << 20;
+
+	private final @NotNull NameMatcher matcher;
+
+	private @NotNull Executor executor = ForkJoinPool.commonPool();
+	private int parallelism = ForkJoinPool.getCommonPoolParallelism();
+	private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+	/**
+	 * Creates a deobfuscator of logs of a program obfuscated with some mappings.
+	 *
+	 * @param mappings mappings of the program, from original names to obfuscated names
+	 */
+	public LogDeobfuscator(@NotNull Mappings mappings) {
+		this.matcher = new NameMatcher(mappings);
+	}
+
+	/**
+	 * Sets the executor processing the chunks of the logs. The common fork-join pool is used by
+	 * default.
+	 *
+	 * @param executor executor processing the chunks
+	 * @param parallelism number of chunks the executor can process at the same time
+	 */
+	public void setExecutor(@NotNull Executor executor, int parallelism) {
+		if (parallelism < 1)
+			throw new IllegalArgumentException("Parallelism must be positive");
+		this.executor = executor;
+		this.parallelism = parallelism;
+	}
+
+	/**
+	 * Sets the size of the chunks the logs are split into. Chunks are cut at the end of a line, so a
+	 * chunk can be bigger when a line is longer than this size.
+	 *
+	 * @param chunkSize size of the chunks, in bytes
+	 */
+	public void setChunkSize(int chunkSize) {
+		if (chunkSize < 1)
+			throw new IllegalArgumentException("Chunk size must be positive");
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Deobfuscates a log file.
+	 *
+	 * @param input path of the obfuscated log
+	 * @param output path where the deobfuscated log is written
+	 * @return statistics of the deobfuscation
+	 * @throws IOException if the files cannot be read or written
+	 */
+	public @NotNull Report deobfuscate(@NotNull Path input, @NotNull Path output) throws IOException {
+		try (var inputStream = Files.newInputStream(input);
+				var outputStream = new BufferedOutputStream(Files.newOutputStream(output), DEFAULT_CHUNK_SIZE)) {
+			return deobfuscate(inputStream, outputStream);
+		}
+	}
+
+	/**
+	 * Deobfuscates a log stream. The streams are not closed.
+	 *
+	 * @param input obfuscated log
+	 * @param output stream where the deobfuscated log is written
+	 * @return statistics of the deobfuscation
+	 * @throws IOException if the streams cannot be read or written
+	 */
+	public @NotNull Report deobfuscate(@NotNull InputStream input, @NotNull OutputStream output) throws IOException {
+		long start = System.nanoTime();
+		long inputBytes = 0;
+		var progress = new Progress();
+
+		// chunks being processed, in the order they must be written
+		Queue<CompletableFuture<OutputChunk>> pending = new ArrayDeque<>();
+		byte[] buffer = new byte[chunkSize];
+		int length = 0;
+		boolean end = false;
+		while (!end) {
+			length += input.readNBytes(buffer, length, buffer.length - length);
+			end = length < buffer.length;
+
+			int cut = end ? length : lastLineEnd(buffer, length);
+			if (cut == 0) {
+				if (end)
+					break;
+				// no line end in the whole buffer: the line is longer than a chunk
+				buffer = Arrays.copyOf(buffer, buffer.length * 2);
+				continue;
+			}
+			inputBytes += cut;
+
+			byte[] chunk = buffer;
+			int chunkLength = cut;
+			pending.add(CompletableFuture.supplyAsync(() -> matcher.process(chunk, chunkLength), executor));
+
+			// the beginning of the next line goes at the start of a new buffer
+			buffer = new byte[Math.max(chunkSize, (length - cut) * 2)];
+			System.arraycopy(chunk, cut, buffer, 0, length - cut);
+			length -= cut;
+
+			while (pending.size() > parallelism * 2)
+				write(pending.remove(), output, progress);
+		}
+		while (!pending.isEmpty())
+			write(pending.remove(), output, progress);
+		output.flush();
+
+		var report = new Report(inputBytes, progress.outputBytes, progress.replacements, System.nanoTime() - start);
+		LOGGER.info(() -> "Deobfuscated %d bytes in %d ms (%.1f MB/s), replaced %d names".formatted(report.inputBytes(),
+				report.nanos() / 1_000_000, report.getThroughput(), report.replacements()));
+		return report;
+	}
+
+	private static int lastLineEnd(byte @NotNull [] buffer, int length) {
+		for (int i = length - 1; i >= 0; i--) {
+			if (buffer[i] == '\n')
+				return i + 1;
+		}
+		return 0;
+	}
+
+	private static void write(@NotNull CompletableFuture<OutputChunk> future, @NotNull OutputStream output,
+			@NotNull Progress progress) throws IOException {
+		OutputChunk chunk;
+		try {
+			chunk = future.get();
+		} catch (InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while deobfuscating");
+		} catch (ExecutionException ex) {
+			throw new IllegalStateException("Failed to deobfuscate a chunk", ex.getCause());
+		}
+		output.write(chunk.bytes, 0, chunk.size);
+		progress.outputBytes += chunk.size;
+		progress.replacements += chunk.replacements;
+	}
+
+	/**
+	 * Statistics of the deobfuscation of a log.
+	 *
+	 * @param inputBytes size of the obfuscated log
+	 * @param outputBytes size of the deobfuscated log
+	 * @param replacements number of obfuscated names which have been replaced
+	 * @param nanos time taken by the deobfuscation, in nanoseconds
+	 */
+	public record Report(long inputBytes, long outputBytes, long replacements, long nanos) {
+
+		/**
+		 * @return the number of megabytes of obfuscated log read per second
+		 */
+		public double getThroughput() {
+			return nanos == 0 ? 0 : inputBytes * 1000d / nanos;
+		}
+
+	}
+
+	private static class Progress {
+
+		private long outputBytes;
+		private long replacements;
+
+	}
+
+	private static class OutputChunk {
+
+		private byte[] bytes;
+		private int size;
+		private int replacements;
+
+		private OutputChunk(int capacity) {
+			this.bytes = new byte[capacity];
+		}
+
+		private void write(byte @NotNull [] source, int offset, int length) {
+			if (size + length > bytes.length)
+				bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + length));
+			System.arraycopy(source, offset, bytes, size, length);
+			size += length;
+		}
+
+		private void write(byte @NotNull [] source) {
+			write(source, 0, source.length);
+		}
+
+	}
+
+	/**
+	 * Finds obfuscated names in chunks of text with a byte trie of the obfuscated class names and of
+	 * their members (<code>class.member</code>).
+	 * <p>
+	 * As names can only match at name boundaries, the trie is only walked from the start of each
+	 * run of name characters, and at most to its end: each byte is examined at most twice, and there is
+	 * no need for the failure links of a general multi-pattern automaton.
+	 */
+	private static class NameMatcher {
+
+		private static final int ROOT = 0;
+
+		// nodes of the trie: the children of a node are a contiguous range of the edge arrays
+		private final int[] firstEdge;
+		private final int[] edgeCount;
+		private final byte[] edgeBytes;
+		private final int[] edgeTargets;
+		private final int[] rootChildren = new int[128];
+
+		// original name of the class or member ending at each node, null if no name ends there
+		private final byte[][] nodeClasses;
+		private final byte[][] nodeMembers;
+
+		private NameMatcher(@NotNull Mappings mappings) {
+			var root = new BuildNode();
+			for (ClassMapping classMapping : mappings.getClasses()) {
+				var classNode = root.getChild(classMapping.getMappedName());
+				if (classNode.originalClass != null)
+					continue; // first mapping wins, like in a mappings index
+				classNode.originalClass = classMapping.getOriginalName().getBytes(StandardCharsets.UTF_8);
+
+				// names found after a class are more likely to be methods, from stack traces
+				Map<String, Set<String>> originalNames = new HashMap<>();
+				for (var method : classMapping.getMethods())
+					originalNames.computeIfAbsent(method.getMappedName(), __ -> new LinkedHashSet<>())
+							.add(method.getOriginalName());
+				for (var field : classMapping.getFields())
+					originalNames.computeIfAbsent(field.getMappedName(), __ -> new LinkedHashSet<>(Set.of(field.getOriginalName())));
+
+				var separatorNode = classNode.getChild(".");
+				originalNames.forEach((mappedName, names) -> {
+					var originalName = String.join("|", names);
+					if (!originalName.equals(mappedName))
+						separatorNode.getChild(mappedName).originalMember = originalName.getBytes(StandardCharsets.UTF_8);
+				});
+			}
+
+			// nodes are numbered breadth first, so the children of a node get consecutive numbers
+			var nodes = new ArrayList<BuildNode>();
+			nodes.add(root);
+			for (int node = 0; node < nodes.size(); node++)
+				nodes.addAll(nodes.get(node).children.values());
+
+			int nodeCount = nodes.size();
+			firstEdge = new int[nodeCount];
+			edgeCount = new int[nodeCount];
+			edgeBytes = new byte[nodeCount - 1];
+			edgeTargets = new int[nodeCount - 1];
+			nodeClasses = new byte[nodeCount][];
+			nodeMembers = new byte[nodeCount][];
+			int nextNode = 1;
+			for (int node = 0; node < nodeCount; node++) {
+				var buildNode = nodes.get(node);
+				nodeClasses[node] = buildNode.originalClass;
+				nodeMembers[node] = buildNode.originalMember;
+				firstEdge[node] = nextNode - 1;
+				edgeCount[node] = buildNode.children.size();
+				for (byte b : buildNode.children.keySet()) {
+					edgeBytes[nextNode - 1] = b;
+					edgeTargets[nextNode - 1] = nextNode;
+					nextNode++;
+				}
+			}
+
+			Arrays.fill(rootChildren, -1);
+			for (int edge = firstEdge[ROOT]; edge < firstEdge[ROOT] + edgeCount[ROOT]; edge++) {
+				if (edgeBytes[edge] >= 0)
+					rootChildren[edgeBytes[edge]] = edgeTargets[edge];
+			}
+		}
+
+		private int getChild(int node, byte b) {
+			if (node == ROOT)
+				return b < 0 ? -1 : rootChildren[b];
+			for (int edge = firstEdge[node], last = edge + edgeCount[node]; edge < last; edge++) {
+				if (edgeBytes[edge] == b)
+					return edgeTargets[edge];
+			}
+			return -1;
+		}
+
+		private @NotNull OutputChunk process(byte @NotNull [] text, int length) {
+			var output = new OutputChunk(length + length / 4);
+			int copied = 0;
+			int i = 0;
+			while (i < length) {
+				if (!isNamePart(text[i])) {
+					i++;
+					continue;
+				}
+
+				int nameEnd = i;
+				while (nameEnd < length && isNamePart(text[nameEnd]))
+					nameEnd++;
+
+				// longest class or member name followed by the end of the name or by a dot
+				int classNode = -1;
+				int classEnd = -1;
+				int memberNode = -1;
+				int memberEnd = -1;
+				for (int j = i, node = ROOT; j < nameEnd; j++) {
+					node = getChild(node, text[j]);
+					if (node == -1)
+						break;
+					if (j + 1 < nameEnd && text[j + 1] != '.')
+						continue;
+					if (nodeClasses[node] != null) {
+						classNode = node;
+						classEnd = j + 1;
+						memberNode = -1;
+					} else if (nodeMembers[node] != null && classNode != -1) {
+						memberNode = node;
+						memberEnd = j + 1;
+					}
+				}
+
+				if (classNode != -1) {
+					output.write(text, copied, i - copied);
+					output.write(nodeClasses[classNode]);
+					output.replacements++;
+					copied = classEnd;
+					if (memberNode != -1) {
+						output.write(text, classEnd, 1); // dot
+						output.write(nodeMembers[memberNode]);
+						output.replacements++;
+						copied = memberEnd;
+					}
+				}
+				i = nameEnd;
+			}
+			output.write(text, copied, length - copied);
+			return output;
+		}
+
+		private static boolean isNamePart(byte b) {
+			// bytes of multi-byte UTF-8 characters are negative: they can be part of a Java name
+			return (b >= 'a' && b <= 'z') || (b >= 'A' && b <= 'Z') || (b >= '0' && b <= '9') || b == '_' || b == '$'
+					|| b == '.' || b < 0;
+		}
+
+	}
+
+	private static class BuildNode {
+
+		private final Map<Byte, BuildNode> children = new LinkedHashMap<>(2);
+		private byte[] originalClass;
+		private byte[] originalMember;
+
+		private @NotNull BuildNode getChild(@NotNull String name) {
+			var node = this;
+			for (byte b : name.getBytes(StandardCharsets.UTF_8))
+				node = node.children.computeIfAbsent(b, __ -> new BuildNode());
+			return node;
+		}
+
+	}
+
+}
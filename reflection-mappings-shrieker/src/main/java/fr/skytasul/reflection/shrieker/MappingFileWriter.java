@@ -2,49 +2,355 @@ package fr.skytasul.reflection.shrieker;
 
 import fr.skytasul.reflection.Version;
 import fr.skytasul.reflection.mappings.Mappings;
+import fr.skytasul.reflection.mappings.Mappings.ClassMapping;
+import fr.skytasul.reflection.mappings.Mappings.ClassMapping.FieldMapping;
+import fr.skytasul.reflection.mappings.Mappings.ClassMapping.MethodMapping;
+import fr.skytasul.reflection.mappings.files.BinaryMapping;
 import fr.skytasul.reflection.mappings.files.MappingType;
+import fr.skytasul.reflection.mappings.files.MappingsDelta;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import java.io.BufferedOutputStream;
 import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
 import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.zip.GZIPOutputStream;
 
 public class MappingFileWriter {
 
-	private final @NotNull MappingType type;
-	private final @NotNull Path path;
-	private final @NotNull Writer writer;
+	private static final int BUFFER_SIZE = 65536;
+	private static final String VERSION_PREFIX = "# reflection-remapper | ";
+
+	private static final Comparator<MethodMapping> METHOD_ORDER = Comparator.comparing(MethodMapping::getOriginalName)
+			.thenComparing(MethodMapping::getParameterTypes, MappingFileWriter::compareParameters)
+			.thenComparing(MethodMapping::getMappedName);
+
+	private final @Nullable MappingType type;
+	private final @Nullable BinaryMapping binaryType;
+	private final @Nullable Path path;
+	private final @Nullable Writer writer;
+	private final @Nullable OutputStream output;
 	private final @NotNull Map<Version, Mappings> mappings;
 
+	private int snapshotInterval = 1;
+	private boolean compressed = false;
+	private boolean parallel = false;
+
 	public MappingFileWriter(@NotNull MappingType type, @NotNull Path path, @NotNull Map<Version, Mappings> mappings) {
-		this.type = type;
-		this.path = path;
-		this.writer = null;
-		this.mappings = mappings;
+		this(type, null, path, null, null, mappings);
 	}
 
 	public MappingFileWriter(@NotNull MappingType type, @NotNull Writer writer, @NotNull Map<Version, Mappings> mappings) {
+		this(type, null, null, writer, null, mappings);
+	}
+
+	public MappingFileWriter(@NotNull MappingType type, @NotNull OutputStream output,
+			@NotNull Map<Version, Mappings> mappings) {
+		this(type, null, null, null, output, mappings);
+	}
+
+	/**
+	 * Creates a writer of a composite binary mappings file. Binary mappings cannot be written to a
+	 * character stream.
+	 *
+	 * @param binaryType binary mappings type
+	 * @param path path of the file to write
+	 * @param mappings mappings of each version
+	 */
+	public MappingFileWriter(@NotNull BinaryMapping binaryType, @NotNull Path path,
+			@NotNull Map<Version, Mappings> mappings) {
+		this(null, binaryType, path, null, null, mappings);
+	}
+
+	/**
+	 * Creates a writer of a composite binary mappings file. Binary mappings cannot be written to a
+	 * character stream.
+	 *
+	 * @param binaryType binary mappings type
+	 * @param output stream to write the file to
+	 * @param mappings mappings of each version
+	 */
+	public MappingFileWriter(@NotNull BinaryMapping binaryType, @NotNull OutputStream output,
+			@NotNull Map<Version, Mappings> mappings) {
+		this(null, binaryType, null, null, output, mappings);
+	}
+
+	private MappingFileWriter(@Nullable MappingType type, @Nullable BinaryMapping binaryType, @Nullable Path path,
+			@Nullable Writer writer, @Nullable OutputStream output, @NotNull Map<Version, Mappings> mappings) {
 		this.type = type;
-		this.path = null;
+		this.binaryType = binaryType;
+		this.path = path;
 		this.writer = writer;
+		this.output = output;
 		this.mappings = mappings;
 	}
 
+	/**
+	 * Enables delta encoding of the versions: only one version out of <code>snapshotInterval</code> is
+	 * written in full, the others are written as the differences with the previous version. A greater
+	 * interval makes a smaller file, but more deltas have to be applied to read a version.
+	 * <p>
+	 * Only line-based mapping types support delta encoding. Files written with delta encoding start with
+	 * the {@link MappingsDelta#FORMAT_MARKER} line, so that readers which do not support it reject them.
+	 *
+	 * @param snapshotInterval number of versions between two full snapshots, <code>1</code> (the
+	 *        default) to write every version in full
+	 * @return this writer
+	 * @see MappingsDelta
+	 */
+	public @NotNull MappingFileWriter setSnapshotInterval(int snapshotInterval) {
+		if (snapshotInterval < 1)
+			throw new IllegalArgumentException("Snapshot interval must be positive");
+		if (snapshotInterval > 1 && binaryType != null)
+			throw new IllegalArgumentException("Binary mappings do not support delta encoding");
+		this.snapshotInterval = snapshotInterval;
+		return this;
+	}
+
+	/**
+	 * Makes the writer compress the whole file with gzip. Compressed files are detected and
+	 * decompressed on the fly by
+	 * {@link fr.skytasul.reflection.mappings.files.MappingFileReader#MappingFileReader(MappingType, java.io.InputStream)}
+	 * and
+	 * {@link fr.skytasul.reflection.mappings.files.MappingFileReader#MappingFileReader(BinaryMapping, java.io.InputStream)}.
+	 * <p>
+	 * Compression is not available when writing to a character stream.
+	 *
+	 * @param compressed <code>true</code> to compress the file
+	 * @return this writer
+	 */
+	public @NotNull MappingFileWriter setCompressed(boolean compressed) {
+		if (compressed && writer != null)
+			throw new IllegalArgumentException("Cannot compress mappings written to a character stream");
+		this.compressed = compressed;
+		return this;
+	}
+
+	/**
+	 * Makes the writer serialize the versions in parallel, each one into its own buffer. The buffers are
+	 * then written in version order, so the file is the same as when written sequentially.
+	 * <p>
+	 * This is faster when writing many versions, but every serialized version is kept in memory until
+	 * all of them are written.
+	 *
+	 * @param parallel <code>true</code> to serialize the versions in parallel
+	 * @return this writer
+	 */
+	public @NotNull MappingFileWriter setParallel(boolean parallel) {
+		this.parallel = parallel;
+		return this;
+	}
+
+	private @NotNull OutputStream openOutputStream() throws IOException {
+		var stream =
+				path != null ? Files.newOutputStream(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)
+						: this.output;
+		return compressed ? new GZIPOutputStream(stream, BUFFER_SIZE) : stream;
+	}
+
+	private @NotNull BufferedWriter openWriter() throws IOException {
+		if (writer != null)
+			return new BufferedWriter(writer, BUFFER_SIZE);
+		return new BufferedWriter(new OutputStreamWriter(openOutputStream(), StandardCharsets.UTF_8), BUFFER_SIZE);
+	}
+
 	public void writeAll() throws IOException {
-		try (BufferedWriter writer =
-				path != null ? Files.newBufferedWriter(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)
-						: new BufferedWriter(this.writer)) {
+		var versions = mappings.keySet().stream().sorted().toList();
 
-			var versions = mappings.keySet().stream().sorted().toList();
-			for (var version : versions) {
-				writer.append("# reflection-remapper | %s".formatted(version.toString()));
+		// identical versions are only written once, the others refer to them
+		var digests = (parallel ? versions.parallelStream() : versions.stream())
+				.map(version -> getDigest(mappings.get(version)))
+				.toList();
+		var writtenMappings = new HashMap<String, Integer>();
+		var sameVersions = new Integer[versions.size()];
+		for (int i = 0; i < versions.size(); i++)
+			sameVersions[i] = writtenMappings.putIfAbsent(digests.get(i), i);
+
+		if (binaryType != null)
+			writeAllBinary(versions, sameVersions);
+		else
+			writeAllText(versions, sameVersions);
+	}
+
+	private void writeAllText(@NotNull List<Version> versions, @NotNull Integer @NotNull [] sameVersions)
+			throws IOException {
+		try (BufferedWriter writer = openWriter()) {
+			if (snapshotInterval > 1) {
+				writer.append(MappingsDelta.FORMAT_MARKER);
 				writer.newLine();
-				type.write(writer, mappings.get(version));
 			}
+			if (parallel) {
+				var blocks = serializeInParallel(versions.size(), i -> {
+					var block = new StringWriter();
+					try (var blockWriter = new BufferedWriter(block, BUFFER_SIZE)) {
+						writeVersion(blockWriter, versions, i, sameVersions[i]);
+					}
+					return block.getBuffer();
+				});
+				for (var block : blocks)
+					writer.append(block);
+			} else {
+				for (int i = 0; i < versions.size(); i++)
+					writeVersion(writer, versions, i, sameVersions[i]);
+			}
+		}
+	}
+
+	private void writeVersion(@NotNull BufferedWriter writer, @NotNull List<Version> versions, int index,
+			Integer sameVersion) throws IOException {
+		var version = versions.get(index);
+		writer.append(VERSION_PREFIX).append(version.toString());
+		if (sameVersion != null) {
+			writer.append(" same as ").append(versions.get(sameVersion).toString());
+			writer.newLine();
+		} else if (index % snapshotInterval == 0) {
+			writer.newLine();
+			type.write(writer, mappings.get(version));
+		} else {
+			writer.append(" delta");
+			writer.newLine();
+			MappingsDelta.write(type, writer, mappings.get(versions.get(index - 1)), mappings.get(version));
+		}
+	}
+
+	private void writeAllBinary(@NotNull List<Version> versions, @NotNull Integer @NotNull [] sameVersions)
+			throws IOException {
+		try (var output = new DataOutputStream(new BufferedOutputStream(openOutputStream(), BUFFER_SIZE))) {
+			output.writeInt(BinaryMapping.MAGIC);
+			output.writeByte(BinaryMapping.FORMAT_VERSION);
+
+			var block = new ByteArrayOutputStream();
+			var blocks = parallel ? serializeInParallel(versions.size(), i -> {
+				if (sameVersions[i] != null)
+					return null;
+				var parallelBlock = new ByteArrayOutputStream();
+				binaryType.write(parallelBlock, mappings.get(versions.get(i)));
+				return parallelBlock;
+			}) : null;
+
+			for (int i = 0; i < versions.size(); i++) {
+				var version = versions.get(i);
+				BinaryMapping.writeVarInt(output, version.major());
+				BinaryMapping.writeVarInt(output, version.minor());
+				BinaryMapping.writeVarInt(output, version.patch());
+
+				if (sameVersions[i] != null) {
+					BinaryMapping.writeVarInt(output, 0);
+					BinaryMapping.writeVarInt(output, sameVersions[i]);
+				} else {
+					var versionBlock = block;
+					if (blocks != null) {
+						versionBlock = blocks.get(i);
+					} else {
+						block.reset();
+						binaryType.write(block, mappings.get(version));
+					}
+					BinaryMapping.writeVarInt(output, versionBlock.size());
+					versionBlock.writeTo(output);
+				}
+			}
+		}
+	}
+
+	private static <T> @NotNull List<T> serializeInParallel(int count, @NotNull VersionSerializer<T> serializer)
+			throws IOException {
+		try {
+			// the list keeps the order of the versions, whatever the order in which they are serialized
+			return IntStream.range(0, count).parallel().mapToObj(i -> {
+				try {
+					return serializer.serialize(i);
+				} catch (IOException ex) {
+					throw new UncheckedIOException(ex);
+				}
+			}).toList();
+		} catch (UncheckedIOException ex) {
+			throw ex.getCause();
+		}
+	}
+
+	@FunctionalInterface
+	private interface VersionSerializer<T> {
+
+		T serialize(int index) throws IOException;
+
+	}
+
+	/**
+	 * Computes a SHA-256 digest of the mappings which does not depend on the order of classes and
+	 * members, so that structurally equal mappings have equal digests. Classes and members are sorted
+	 * and fed to the digest one name at a time, without building a line per entry.
+	 *
+	 * @param mappings mappings to digest
+	 * @return the hexadecimal digest of the mappings
+	 */
+	private static @NotNull String getDigest(@NotNull Mappings mappings) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException ex) {
+			// every Java platform has to support SHA-256
+			throw new IllegalStateException(ex);
+		}
+
+		var classes = new ArrayList<ClassMapping>(mappings.getClasses());
+		classes.sort(Comparator.comparing(ClassMapping::getOriginalName));
+		for (var mappedClass : classes) {
+			update(digest, 'C', mappedClass.getOriginalName());
+			update(digest, '>', mappedClass.getMappedName());
+
+			var fields = new ArrayList<FieldMapping>(mappedClass.getFields());
+			fields.sort(Comparator.comparing(FieldMapping::getOriginalName).thenComparing(FieldMapping::getMappedName));
+			for (var mappedField : fields) {
+				update(digest, 'F', mappedField.getOriginalName());
+				update(digest, '>', mappedField.getMappedName());
+			}
+
+			var methods = new ArrayList<MethodMapping>(mappedClass.getMethods());
+			methods.sort(METHOD_ORDER);
+			for (var mappedMethod : methods) {
+				update(digest, 'M', mappedMethod.getOriginalName());
+				for (var parameter : mappedMethod.getParameterTypes())
+					update(digest, 'P', parameter.getTypeName());
+				update(digest, '>', mappedMethod.getMappedName());
+			}
+		}
+		return HexFormat.of().formatHex(digest.digest());
+	}
+
+	// each name is tagged with its role and terminated, so that different mappings never feed the same bytes
+	private static void update(@NotNull MessageDigest digest, char tag, @NotNull String name) {
+		digest.update((byte) tag);
+		digest.update(name.getBytes(StandardCharsets.UTF_8));
+		digest.update((byte) 0);
+	}
+
+	private static int compareParameters(@NotNull Type @NotNull [] first, @NotNull Type @NotNull [] second) {
+		for (int i = 0; i < Math.min(first.length, second.length); i++) {
+			int comparison = first[i].getTypeName().compareTo(second[i].getTypeName());
+			if (comparison != 0)
+				return comparison;
 		}
+		return Integer.compare(first.length, second.length);
 	}
 
 }
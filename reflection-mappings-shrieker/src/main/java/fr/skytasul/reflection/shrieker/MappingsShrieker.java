@@ -1,6 +1,8 @@
 package fr.skytasul.reflection.shrieker;
 
+import fr.skytasul.reflection.MappedReflectionAccessor;
 import fr.skytasul.reflection.ReflectionAccessor;
+import fr.skytasul.reflection.UsageProfile;
 import fr.skytasul.reflection.Version;
 import fr.skytasul.reflection.mappings.Mappings;
 import fr.skytasul.reflection.mappings.Mappings.ClassMapping.FieldMapping;
@@ -10,12 +12,26 @@ import fr.skytasul.reflection.mappings.RealMappings.RealClassMapping;
 import fr.skytasul.reflection.mappings.RealMappings.RealClassMapping.RealFieldMapping;
 import fr.skytasul.reflection.mappings.RealMappings.RealClassMapping.RealMethodMapping;
 import fr.skytasul.reflection.mappings.files.MappingType;
+import fr.skytasul.reflection.mappings.files.MappingsCache;
+import fr.skytasul.reflection.mappings.files.StringPool;
+import fr.skytasul.reflection.mappings.files.TypeResolver;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 /**
  * <b>Warning:</b> make sure all necessary classes (outside the reflected ones) are present in the
@@ -23,10 +39,16 @@ import java.util.Map;
  */
 public class MappingsShrieker {
 
+	private static final Logger LOGGER = Logger.getLogger("MappingsShrieker");
+
 	private final @NotNull ReflectionInitializer initializeFunction;
 	private final @NotNull MappingType mappingType;
 
-	private final @NotNull Map<Version, Mappings> allReducedMappings = new HashMap<>();
+	private final @NotNull Map<Version, Mappings> allReducedMappings = new ConcurrentHashMap<>();
+	private final @NotNull StringPool stringPool = new StringPool();
+
+	private @Nullable MappingsCache cache;
+	private @Nullable UsageProfile profile;
 
 	/**
 	 * Creates a shrieker instance.
@@ -42,6 +64,37 @@ public class MappingsShrieker {
 		this.initializeFunction = initializeFunction;
 	}
 
+	/**
+	 * Makes the shrieker keep the reduced mappings of each version, so that versions whose full mappings
+	 * and recorded accesses have not changed are not reduced again on later runs.
+	 * <p>
+	 * Only versions registered with a {@link MappingsSupplier} which provides an
+	 * {@linkplain MappingsSupplier#getInputKey(Version) input key} are cached.
+	 *
+	 * @param cache cache of the reduced mappings, or <code>null</code> to always reduce the mappings
+	 * @return this shrieker
+	 */
+	public @NotNull MappingsShrieker setCache(@Nullable MappingsCache cache) {
+		this.cache = cache;
+		return this;
+	}
+
+	/**
+	 * Makes the shrieker use a profile of the accesses made at runtime, as recorded by
+	 * {@link MappedReflectionAccessor#setUsageProfile(UsageProfile)}. The classes and members of the
+	 * reduced mappings are then ordered from the most to the least used, and the mappings can be split
+	 * into a core and a remainder with {@link #writeMappingsFiles(Path, Path)}.
+	 * <p>
+	 * The profile must be set before registering the versions.
+	 *
+	 * @param profile profile of the accesses, or <code>null</code> to keep the order of the initializer
+	 * @return this shrieker
+	 */
+	public @NotNull MappingsShrieker setUsageProfile(@Nullable UsageProfile profile) {
+		this.profile = profile;
+		return this;
+	}
+
 	/**
 	 * Register the mappings used for a specific version.
 	 *
@@ -51,35 +104,96 @@ public class MappingsShrieker {
 	 */
 	public void registerVersionMappings(@NotNull Version version, @NotNull Mappings mappings)
 			throws ReflectiveOperationException {
+		var fakeReflection = recordAccesses(version);
+		allReducedMappings.put(version, sortReduced(reduce(fakeReflection, mappings)));
+	}
+
+	/**
+	 * Register the mappings used for a specific version, only loading them if the reduced mappings are
+	 * not in the {@linkplain #setCache(MappingsCache) cache}.
+	 * <p>
+	 * The initializer is always run, to know which accesses are needed. The reduced mappings are taken
+	 * from the cache when both the recorded accesses and the input key of the full mappings are the same
+	 * as when they were cached.
+	 *
+	 * @param version the version of the mappings
+	 * @param mappingsSupplier supplies the full mappings of this version
+	 * @throws ReflectiveOperationException if an error happened while initializing the reflection
+	 * @throws IOException if the mappings cannot be supplied
+	 */
+	public void registerVersionMappings(@NotNull Version version, @NotNull MappingsSupplier mappingsSupplier)
+			throws ReflectiveOperationException, IOException {
+		var fakeReflection = recordAccesses(version);
+
+		var inputKey = cache == null ? null : mappingsSupplier.getInputKey(version);
+		if (inputKey == null) {
+			allReducedMappings.put(version, sortReduced(reduce(fakeReflection, mappingsSupplier.getMappings(version))));
+			return;
+		}
+
+		try {
+			var reducedMappings = cache.get(getCacheKey(version, inputKey, fakeReflection), stringPool,
+					mappingsSupplier.createTypeResolver(), () -> {
+				try {
+					return reduce(fakeReflection, mappingsSupplier.getMappings(version));
+				} catch (ReflectiveOperationException ex) {
+					throw new ReductionException(ex);
+				}
+			});
+			allReducedMappings.put(version, sortReduced(reducedMappings));
+		} catch (ReductionException ex) {
+			throw ex.getCause();
+		}
+	}
+
+	private @NotNull FakeReflectionAccessor recordAccesses(@NotNull Version version)
+			throws ReflectiveOperationException {
 		// First step: fill in the fake mappings with the classes/fields/methods actually needed
 		var fakeReflection = new FakeReflectionAccessor();
 		initializeFunction.initializeReflection(fakeReflection, version);
+		return fakeReflection;
+	}
 
+	private @NotNull Mappings reduce(@NotNull FakeReflectionAccessor fakeReflection, @NotNull Mappings mappings)
+			throws ReflectiveOperationException {
 		// Second step: construct reduced mappings by merging the fake one with the obfuscated names from
-		// the real one.
+		// the real one. Lookups go through hash indexes, as full mappings have tens of thousands of
+		// classes.
 		// NOTE: we do not make use of Stream.map(...).toList() chains because we want to be able to throw
 		// exceptions.
-		var reducedMappings = new RealMappings(new ArrayList<>());
+		var index = mappings.createIndex();
+		var reducedClasses = new ArrayList<RealClassMapping>(fakeReflection.classes().size());
+		// optional accesses, made by replaying a bytecode scan, may be missing from some versions
 		for (var fakeClass : fakeReflection.classes()) {
-			var fullClass = mappings.getClasses().stream()
-					.filter(x -> x.getOriginalName().equals(fakeClass.name()))
-					.findAny().orElseThrow(() -> new ClassNotFoundException(fakeClass.name()));
+			var fullClass = index.getClass(fakeClass.name());
+			if (fullClass == null) {
+				if (skipOptional(fakeReflection, fakeClass.name()))
+					continue;
+				throw new ClassNotFoundException(fakeClass.name());
+			}
 
 			var reducedFields = new ArrayList<RealFieldMapping>(fakeClass.fields().size());
 			for (var fakeField : fakeClass.fields()) {
-				FieldMapping fullField = fullClass.getFields().stream()
-						.filter(x -> x.getOriginalName().equals(fakeField.name()))
-						.findAny().orElseThrow(() -> new NoSuchFieldException(fakeClass.name() + "." + fakeField.name()));
+				FieldMapping fullField = index.getField(fullClass, fakeField.name());
+				if (fullField == null) {
+					var access = fakeClass.name() + "." + fakeField.name();
+					if (skipOptional(fakeReflection, access))
+						continue;
+					throw new NoSuchFieldException(access);
+				}
 				reducedFields.add(new RealFieldMapping(fakeField.name(), fullField.getMappedName()));
 			}
 
 			var reducedMethods = new ArrayList<RealMethodMapping>(fakeClass.methods().size());
 			for (var fakeMethod : fakeClass.methods()) {
-				MethodMapping fullMethod = fullClass.getMethods().stream()
-						.filter(x -> x.getOriginalName().equals(fakeMethod.name())
-								&& x.isSameParameters(fakeMethod.parameterTypes()))
-						.findAny().orElseThrow(() -> new NoSuchMethodException(fakeClass.name() + "."
-								+ Mappings.getStringForMethod(fakeMethod.name(), fakeMethod.parameterTypes())));
+				MethodMapping fullMethod = index.getMethod(fullClass, fakeMethod.name(), fakeMethod.parameterTypes());
+				if (fullMethod == null) {
+					var access = fakeClass.name() + "."
+							+ Mappings.getStringForMethod(fakeMethod.name(), fakeMethod.parameterTypes());
+					if (skipOptional(fakeReflection, access))
+						continue;
+					throw new NoSuchMethodException(access);
+				}
 				reducedMethods.add(new RealMethodMapping(fakeMethod.name(), fullMethod.getMappedName(),
 						fullMethod.getParameterTypes()));
 			}
@@ -87,11 +201,138 @@ public class MappingsShrieker {
 			var mappedClass =
 					new RealClassMapping(fakeClass.name(), fullClass.getMappedName(), reducedFields, reducedMethods);
 
-			reducedMappings.classes().add(mappedClass);
+			reducedClasses.add(mappedClass);
+		}
+
+		return new RealMappings(reducedClasses);
+	}
+
+	/**
+	 * Puts reduced mappings in their final order, whether they were just reduced or come from the cache.
+	 * Snapshots of the cache keep the order of members but sort classes by name, so classes are sorted
+	 * by name here too: hottest first when there is a usage profile, then by name. Members are sorted
+	 * hottest first with a profile, and otherwise keep their order.
+	 */
+	private @NotNull Mappings sortReduced(@NotNull Mappings reducedMappings) {
+		var currentProfile = profile;
+		var sortedClasses = new ArrayList<RealClassMapping>(reducedMappings.getClasses().size());
+		for (var reducedClass : reducedMappings.getClasses()) {
+			var className = reducedClass.getOriginalName();
+
+			var fields = new ArrayList<RealFieldMapping>(reducedClass.getFields().size());
+			for (var field : reducedClass.getFields())
+				fields.add(new RealFieldMapping(field.getOriginalName(), field.getMappedName()));
+
+			var methods = new ArrayList<RealMethodMapping>(reducedClass.getMethods().size());
+			for (var method : reducedClass.getMethods())
+				methods.add(new RealMethodMapping(method.getOriginalName(), method.getMappedName(),
+						method.getParameterTypes()));
+
+			if (currentProfile != null) {
+				// the sort is stable for members with the same hits
+				fields.sort(Comparator.comparingLong(
+						(RealFieldMapping field) -> currentProfile.getHits(getProfileKey(className, field))).reversed());
+				methods.sort(Comparator.comparingLong(
+						(RealMethodMapping method) -> currentProfile.getHits(getProfileKey(className, method))).reversed());
+			}
+
+			sortedClasses.add(new RealClassMapping(className, reducedClass.getMappedName(), fields, methods));
 		}
 
-		// Finally, we can add the reduced mappings to the list of completed mappings.
-		allReducedMappings.put(version, reducedMappings);
+		Comparator<RealClassMapping> byName = Comparator.comparing(RealClassMapping::original);
+		if (currentProfile == null)
+			sortedClasses.sort(byName);
+		else
+			sortedClasses.sort(Comparator.comparingLong(
+					(RealClassMapping reducedClass) -> currentProfile.getHits(UsageProfile.getClassKey(reducedClass.original())))
+					.reversed().thenComparing(byName));
+		return new RealMappings(sortedClasses);
+	}
+
+	private static boolean skipOptional(@NotNull FakeReflectionAccessor fakeReflection, @NotNull String access) {
+		if (!fakeReflection.isOptional(access))
+			return false;
+		LOGGER.log(Level.FINE, "Skipped optional access {0}, missing from the mappings", access);
+		return true;
+	}
+
+	private static @NotNull String getProfileKey(@NotNull String className, @NotNull FieldMapping field) {
+		return UsageProfile.getFieldKey(className, field.getOriginalName());
+	}
+
+	private static @NotNull String getProfileKey(@NotNull String className, @NotNull MethodMapping method) {
+		return UsageProfile.getMethodKey(className, method.getOriginalName(), method.getParameterTypes());
+	}
+
+	private @NotNull String getCacheKey(@NotNull Version version, @NotNull String inputKey,
+			@NotNull FakeReflectionAccessor fakeReflection) {
+		var accesses = new ArrayList<String>();
+		for (var fakeClass : fakeReflection.classes()) {
+			accesses.add(withHits(fakeClass.name(), UsageProfile.getClassKey(fakeClass.name())));
+			for (var fakeField : fakeClass.fields())
+				accesses.add(withHits(fakeClass.name() + "." + fakeField.name(),
+						UsageProfile.getFieldKey(fakeClass.name(), fakeField.name())));
+			for (var fakeMethod : fakeClass.methods())
+				accesses.add(withHits(
+						fakeClass.name() + "." + Mappings.getStringForMethod(fakeMethod.name(), fakeMethod.parameterTypes()),
+						UsageProfile.getMethodKey(fakeClass.name(), fakeMethod.name(), fakeMethod.parameterTypes())));
+		}
+		// the same accesses made in another order give equivalent reduced mappings
+		Collections.sort(accesses);
+		accesses.add(0, version.toString());
+		accesses.add(1, inputKey);
+		return MappingsCache.hashLines(MappingsShrieker.class.getName(), accesses);
+	}
+
+	// the order of the reduced mappings depends on the hits of the profile
+	private @NotNull String withHits(@NotNull String access, @NotNull String profileKey) {
+		return profile == null ? access : access + " " + profile.getHits(profileKey);
+	}
+
+	/**
+	 * Registers the mappings of several versions at the same time, using the common fork-join pool.
+	 *
+	 * @param versions versions to register
+	 * @param mappingsSupplier supplies the full mappings of each version
+	 * @return the exceptions and errors which prevented some versions from being registered
+	 * @see #registerVersionsMappings(Collection, MappingsSupplier, Executor)
+	 */
+	public @NotNull Map<Version, Throwable> registerVersionsMappings(@NotNull Collection<Version> versions,
+			@NotNull MappingsSupplier mappingsSupplier) {
+		return registerVersionsMappings(versions, mappingsSupplier, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Registers the mappings of several versions at the same time. For each version, the mappings are
+	 * supplied, the initializer is run and the mappings are reduced in a task of the executor. Cached
+	 * versions are not reduced again, see {@link #registerVersionMappings(Version, MappingsSupplier)}.
+	 * <p>
+	 * A version which fails does not prevent the others from being registered: its exception is
+	 * returned instead. This includes errors, such as a {@link LinkageError} thrown by an initializer
+	 * referencing classes missing from the shrieker classpath. This method returns once all versions
+	 * are done.
+	 * <p>
+	 * The initializer and the mappings supplier are called concurrently, so they must be thread-safe.
+	 *
+	 * @param versions versions to register
+	 * @param mappingsSupplier supplies the full mappings of each version
+	 * @param executor executor running the registration of each version
+	 * @return the exceptions and errors which prevented some versions from being registered, sorted by
+	 *         version
+	 */
+	public @NotNull Map<Version, Throwable> registerVersionsMappings(@NotNull Collection<Version> versions,
+			@NotNull MappingsSupplier mappingsSupplier, @NotNull Executor executor) {
+		Map<Version, Throwable> failures = new ConcurrentHashMap<>();
+		var tasks = versions.stream().map(version -> CompletableFuture.runAsync(() -> {
+			try {
+				registerVersionMappings(version, mappingsSupplier);
+			} catch (Throwable ex) {
+				// errors too, so that allOf does not fail and the failures of the other versions are kept
+				failures.put(version, ex);
+			}
+		}, executor)).toArray(CompletableFuture[]::new);
+		CompletableFuture.allOf(tasks).join();
+		return new TreeMap<>(failures);
 	}
 
 	public @NotNull Map<Version, Mappings> getReducedMappings() {
@@ -108,6 +349,104 @@ public class MappingsShrieker {
 		new MappingFileWriter(mappingType, mappingsPath, allReducedMappings).writeAll();
 	}
 
+	/**
+	 * Writes all constructed reduced mappings split in two files, according to the
+	 * {@linkplain #setUsageProfile(UsageProfile) usage profile}: the core file has the classes and
+	 * members which have been used, the remainder file has the others. The core can then be loaded at
+	 * startup, and the remainder only when something is missing from it, see
+	 * {@link MappedReflectionAccessor#setFallbackMappings(java.util.function.Supplier)}.
+	 *
+	 * @param corePath path of the mappings which have been used
+	 * @param remainderPath path of the mappings which have not been used
+	 * @throws IOException if an error occurred while writing the mappings files
+	 * @throws IllegalStateException if there is no usage profile
+	 */
+	public void writeMappingsFiles(@NotNull Path corePath, @NotNull Path remainderPath) throws IOException {
+		if (profile == null)
+			throw new IllegalStateException("Cannot split the mappings without a usage profile");
+
+		Map<Version, Mappings> coreMappings = new HashMap<>();
+		Map<Version, Mappings> remainderMappings = new HashMap<>();
+		allReducedMappings.forEach((version, reducedMappings) -> {
+			var core = new RealMappings(new ArrayList<>());
+			var remainder = new RealMappings(new ArrayList<>());
+			for (var reducedClass : reducedMappings.getClasses()) {
+				var className = reducedClass.getOriginalName();
+				var coreClass = new RealClassMapping(className, reducedClass.getMappedName(), new ArrayList<>(),
+						new ArrayList<>());
+				var remainderClass = new RealClassMapping(className, reducedClass.getMappedName(), new ArrayList<>(),
+						new ArrayList<>());
+				for (var field : reducedClass.getFields())
+					(profile.getHits(getProfileKey(className, field)) > 0 ? coreClass : remainderClass).fields()
+							.add(new RealFieldMapping(field.getOriginalName(), field.getMappedName()));
+				for (var method : reducedClass.getMethods())
+					(profile.getHits(getProfileKey(className, method)) > 0 ? coreClass : remainderClass).methods()
+							.add(new RealMethodMapping(method.getOriginalName(), method.getMappedName(),
+									method.getParameterTypes()));
+
+				// a used class stays in the core even without used members, so that it is found at startup
+				boolean inCore = profile.getHits(UsageProfile.getClassKey(className)) > 0
+						|| !coreClass.fields().isEmpty() || !coreClass.methods().isEmpty();
+				if (inCore)
+					core.classes().add(coreClass);
+				if (!inCore || !remainderClass.fields().isEmpty() || !remainderClass.methods().isEmpty())
+					remainder.classes().add(remainderClass);
+			}
+			coreMappings.put(version, core);
+			remainderMappings.put(version, remainder);
+		});
+
+		new MappingFileWriter(mappingType, corePath, coreMappings).writeAll();
+		new MappingFileWriter(mappingType, remainderPath, remainderMappings).writeAll();
+	}
+
+	@FunctionalInterface
+	public static interface MappingsSupplier {
+
+		@NotNull
+		Mappings getMappings(@NotNull Version version) throws IOException;
+
+		/**
+		 * Gets a key which changes whenever the mappings of a version change, without loading them: for
+		 * instance a hash of the mapping files, see {@link MappingsCache#hashFiles(String, Path...)}.
+		 *
+		 * @param version version of the mappings
+		 * @return the key of the mappings, or <code>null</code> if the reduced mappings of this version
+		 *         must not be cached
+		 * @throws IOException if the key cannot be computed
+		 */
+		default @Nullable String getInputKey(@NotNull Version version) throws IOException {
+			return null;
+		}
+
+		/**
+		 * Creates the resolver of the library types of cached reduced mappings, which must resolve them
+		 * like the supplied mappings do.
+		 *
+		 * @return a new type resolver
+		 * @see MappingType#createTypeResolver()
+		 */
+		default @NotNull TypeResolver createTypeResolver() {
+			return new TypeResolver();
+		}
+
+	}
+
+	private static class ReductionException extends RuntimeException {
+
+		private static final long serialVersionUID = 1L;
+
+		private ReductionException(@NotNull ReflectiveOperationException cause) {
+			super(cause);
+		}
+
+		@Override
+		public synchronized @NotNull ReflectiveOperationException getCause() {
+			return (ReflectiveOperationException) super.getCause();
+		}
+
+	}
+
 	@FunctionalInterface
 	public static interface ReflectionInitializer {
 
@@ -2,12 +2,13 @@ package fr.skytasul.reflection.shrieker;
 
 import fr.skytasul.reflection.mappings.Mappings;
 import fr.skytasul.reflection.mappings.Mappings.ClassMapping;
+import fr.skytasul.reflection.mappings.Mappings.ClassMapping.ClassArrayType;
 import fr.skytasul.reflection.mappings.Mappings.ClassMapping.FieldMapping;
 import fr.skytasul.reflection.mappings.Mappings.ClassMapping.MethodMapping;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import java.lang.reflect.Type;
 import java.util.*;
-import java.util.stream.Stream;
 
 /**
  * i.e.:
@@ -38,7 +39,10 @@ public class PipeMappings implements Mappings {
 	private final @NotNull Mappings from;
 	private final @NotNull Mappings to;
 
+	// indexed by middle name, i.e. mapped name in the "from" mappings
 	private final Map<String, PipeClass> classes = new HashMap<>();
+	// parameter types of the "to" mappings, indexed by middle name
+	private final Map<String, Type> pipedTypes = new HashMap<>();
 
 	public PipeMappings(@NotNull Mappings from, @NotNull Mappings to) {
 		this.from = from;
@@ -47,14 +51,12 @@ public class PipeMappings implements Mappings {
 		for (var fromClass : from.getClasses()) {
 			var pipeClass = new PipeClass(fromClass.getOriginalName(), fromClass.getMappedName());
 
-			pipeClass.fields.addAll(fromClass.getFields().stream()
-					.map(field -> pipeClass.new PipeField(field.getOriginalName(), field.getMappedName()))
-					.toList());
+			for (var field : fromClass.getFields())
+				pipeClass.addField(pipeClass.new PipeField(field.getOriginalName(), field.getMappedName()));
 
-			pipeClass.methods.addAll(fromClass.getMethods().stream()
-					.map(method -> pipeClass.new PipeMethod(method.getOriginalName(), method.getMappedName(),
-							method.getParameterTypes()))
-					.toList());
+			for (var method : fromClass.getMethods())
+				pipeClass.addMethod(pipeClass.new PipeMethod(method.getOriginalName(), method.getMappedName(),
+						method.getParameterTypes()));
 
 			classes.put(fromClass.getMappedName(), pipeClass);
 		}
@@ -85,11 +87,21 @@ public class PipeMappings implements Mappings {
 	}
 
 	protected @NotNull Optional<PipeClass> getClassFromMiddleName(@NotNull String middle) {
-		for (var pipeClass : classes.values()) {
-			if (pipeClass.middle.equals(middle))
-				return Optional.of(pipeClass);
+		return Optional.ofNullable(classes.get(middle));
+	}
+
+	private @NotNull Type getPipedType(@NotNull Type middleType) {
+		var pipedType = pipedTypes.get(middleType.getTypeName());
+		if (pipedType == null) {
+			if (middleType instanceof ClassArrayType arrayType) {
+				var componentType = getPipedType(arrayType.componentMapping());
+				pipedType = componentType == arrayType.componentMapping() ? middleType : new ClassArrayType(componentType);
+			} else {
+				pipedType = getClassFromMiddleName(middleType.getTypeName()).map(x -> (Type) x).orElse(middleType);
+			}
+			pipedTypes.put(middleType.getTypeName(), pipedType);
 		}
-		return Optional.empty();
+		return pipedType;
 	}
 
 	private abstract class PipedObject {
@@ -125,6 +137,10 @@ public class PipeMappings implements Mappings {
 		private final List<PipeField> fields = new ArrayList<>();
 		private final List<PipeMethod> methods = new ArrayList<>();
 
+		// indexed by middle name, which stays the same when the members are piped
+		private final Map<String, PipeField> fieldsByMiddle = new HashMap<>();
+		private final Map<String, List<PipeMethod>> methodsByMiddle = new HashMap<>();
+
 		public PipeClass(@NotNull String original, @NotNull String mapped) {
 			super(original, mapped);
 		}
@@ -133,33 +149,53 @@ public class PipeMappings implements Mappings {
 			this.mapped = toClass.getMappedName();
 
 			for (var toField : toClass.getFields()) {
-				var pipeFieldOpt = getField(toField.getOriginalName());
+				var pipeField = fieldsByMiddle.get(toField.getOriginalName());
 
-				if (pipeFieldOpt.isPresent()) {
-					pipeFieldOpt.get().mapped = toField.getMappedName();
+				if (pipeField != null) {
+					pipeField.mapped = toField.getMappedName();
 				} else {
-					fields.add(new PipeField(toField.getOriginalName(), toField.getMappedName()).setOriginalMiddle());
+					addField(new PipeField(toField.getOriginalName(), toField.getMappedName()).setOriginalMiddle());
 				}
 			}
 
 			for (var toMethod : toClass.getMethods()) {
-				var parameterTypes = Stream.of(toMethod.getParameterTypes())
-						.map(middleType -> getClassFromMiddleName(middleType.getTypeName())
-								.map(x -> (Type) x)
-								.orElse(middleType))
-						.toArray(Type[]::new);
+				var middleTypes = toMethod.getParameterTypes();
+				var parameterTypes = new Type[middleTypes.length];
+				for (int i = 0; i < middleTypes.length; i++)
+					parameterTypes[i] = getPipedType(middleTypes[i]);
 
-				var pipeMethodOpt = getMethod(toMethod.getOriginalName(), parameterTypes);
+				var pipeMethod = getMethod(toMethod.getOriginalName(), parameterTypes);
 
-				if (pipeMethodOpt.isPresent()) {
-					pipeMethodOpt.get().mapped = toMethod.getMappedName();
+				if (pipeMethod != null) {
+					pipeMethod.mapped = toMethod.getMappedName();
 				} else {
-					methods.add(new PipeMethod(toMethod.getOriginalName(), toMethod.getMappedName(), parameterTypes)
+					addMethod(new PipeMethod(toMethod.getOriginalName(), toMethod.getMappedName(), parameterTypes)
 							.setOriginalMiddle());
 				}
 			}
 		}
 
+		private void addField(@NotNull PipeField field) {
+			fields.add(field);
+			fieldsByMiddle.putIfAbsent(field.middle, field);
+		}
+
+		private void addMethod(@NotNull PipeMethod method) {
+			methods.add(method);
+			methodsByMiddle.computeIfAbsent(method.middle, __ -> new ArrayList<>(1)).add(method);
+		}
+
+		private @Nullable PipeMethod getMethod(@NotNull String middle, @NotNull Type @NotNull [] parameterTypes) {
+			var overloads = methodsByMiddle.get(middle);
+			if (overloads != null) {
+				for (var method : overloads) {
+					if (method.isSameParameters(parameterTypes))
+						return method;
+				}
+			}
+			return null;
+		}
+
 		@Override
 		public Collection<? extends FieldMapping> getFields() {
 			return fields;
@@ -170,16 +206,6 @@ public class PipeMappings implements Mappings {
 			return methods;
 		}
 
-		private @NotNull Optional<PipeField> getField(@NotNull String mapped) {
-			return fields.stream().filter(field -> field.mapped.equals(mapped)).findAny();
-		}
-
-		private @NotNull Optional<PipeMethod> getMethod(@NotNull String mapped, @NotNull Type @NotNull [] parameterTypes) {
-			return methods.stream()
-					.filter(method -> method.mapped.equals(mapped) && method.isSameParameters(parameterTypes))
-					.findAny();
-		}
-
 		private class PipeField extends PipedObject implements FieldMapping {
 
 			public PipeField(@NotNull String original, @NotNull String mapped) {
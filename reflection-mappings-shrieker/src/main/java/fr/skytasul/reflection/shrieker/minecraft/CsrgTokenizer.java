@@ -0,0 +1,101 @@
+package fr.skytasul.reflection.shrieker.minecraft;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Splits CSRG lines into space-separated columns without allocating intermediate arrays or strings.
+ * <p>
+ * The tokenizer is reused for every line of a file: {@link #reset(String)} starts a new line, then
+ * each call to {@link #next()} moves to the next column, whose bounds are available through
+ * {@link #start()} and {@link #end()}. Strings are only created when a column is actually needed,
+ * with internal class names being converted to binary names in the same pass.
+ * <p>
+ * Trailing spaces are ignored, like the trailing empty columns dropped by {@link String#split(String)}.
+ */
+final class CsrgTokenizer {
+
+	private String line;
+	private int length; // without trailing spaces
+	private int position;
+	private int start;
+	private int end;
+
+	/**
+	 * Starts tokenizing a new line.
+	 *
+	 * @param line line to tokenize
+	 * @return <code>false</code> if the line is a comment and should be skipped
+	 */
+	boolean reset(@NotNull String line) {
+		this.line = line;
+		int length = line.length();
+		while (length > 0 && line.charAt(length - 1) == ' ')
+			length--;
+		this.length = length;
+		this.position = 0;
+		this.start = this.end = 0;
+		return !line.startsWith("#");
+	}
+
+	/**
+	 * Moves to the next column of the line.
+	 *
+	 * @return <code>false</code> if there are no more columns
+	 */
+	boolean next() {
+		if (position > length)
+			return false;
+		start = position;
+		int space = line.indexOf(' ', position);
+		end = space == -1 || space > length ? length : space;
+		position = end + 1;
+		return true;
+	}
+
+	/**
+	 * Moves to the next column and checks that it is the last one of the line.
+	 *
+	 * @return <code>true</code> if there was exactly one column left
+	 */
+	boolean nextLast() {
+		return next() && position > length;
+	}
+
+	int start() {
+		return start;
+	}
+
+	int end() {
+		return end;
+	}
+
+	/**
+	 * @return the current column
+	 */
+	@NotNull
+	String token() {
+		return line.substring(start, end);
+	}
+
+	/**
+	 * @return the current column, converted from an internal class name to a binary name
+	 */
+	@NotNull
+	String binaryName() {
+		return toBinaryName(line, start, end);
+	}
+
+	/**
+	 * Converts a part of an internal class name (<code>some/package/SomeClass</code>) into a binary
+	 * name (<code>some.package.SomeClass</code>) in a single pass.
+	 */
+	static @NotNull String toBinaryName(@NotNull String internalName, int start, int end) {
+		char[] chars = new char[end - start];
+		for (int i = 0; i < chars.length; i++) {
+			char c = internalName.charAt(start + i);
+			chars[i] = c == '/' ? '.' : c;
+		}
+		return new String(chars);
+	}
+
+}
@@ -4,10 +4,19 @@ import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import fr.skytasul.reflection.Version;
 import fr.skytasul.reflection.mappings.Mappings;
+import fr.skytasul.reflection.mappings.files.MappingType;
+import fr.skytasul.reflection.mappings.files.MappingsCache;
+import fr.skytasul.reflection.mappings.files.MappingsCache.MappingsLoader;
 import fr.skytasul.reflection.mappings.files.ProguardMapping;
+import fr.skytasul.reflection.mappings.files.StringPool;
+import fr.skytasul.reflection.mappings.files.TypeResolver;
+import fr.skytasul.reflection.shrieker.MappingsShrieker;
+import fr.skytasul.reflection.shrieker.MappingsShrieker.MappingsSupplier;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.URL;
 import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
@@ -15,6 +24,9 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
 
 public class MinecraftMappingsProvider {
 
@@ -26,13 +38,17 @@ public class MinecraftMappingsProvider {
 	private static final String SPIGOT_MAPPING_URL =
 			"https://hub.spigotmc.org/stash/projects/SPIGOT/repos/builddata/raw/mappings/{MAPPING}?at={COMMIT}";
 
-	private static final ProguardMapping PROGUARD_MAPPING = new ProguardMapping(true);
+	private static final ProguardMapping PROGUARD_MAPPING = new ProguardMapping(true, true);
 	private static final SpigotClassMapping SPIGOT_CLASS_MAPPING = new SpigotClassMapping(true);
-	private static final SpigotMemberMapping SPIGOT_MEMBER_MAPPING = new SpigotMemberMapping(true);
+	private static final SpigotMemberMapping SPIGOT_MEMBER_MAPPING = new SpigotMemberMapping(true, true);
 
 	private static final Gson GSON = new Gson();
 
 	private final @NotNull Path dataFolder;
+	// shared by all loaded versions, which have most of their names in common
+	private final @NotNull StringPool stringPool = new StringPool();
+
+	private @Nullable MappingsCache cache;
 
 	public MinecraftMappingsProvider(@NotNull Path dataFolder) throws IOException {
 		this.dataFolder = dataFolder;
@@ -40,12 +56,49 @@ public class MinecraftMappingsProvider {
 		Files.createDirectories(dataFolder);
 	}
 
-	public @NotNull Mappings loadMinecraftMappings(@NotNull Version version) throws IOException {
-		var filePath = dataFolder.resolve(version.toString() + ".txt");
+	/**
+	 * Makes the provider keep binary snapshots of the mappings it parses, so that later loads of the
+	 * same files do not have to parse them again.
+	 *
+	 * @param cache cache of the snapshots, or <code>null</code> to always parse the files
+	 * @return this provider
+	 */
+	public @NotNull MinecraftMappingsProvider setCache(@Nullable MappingsCache cache) {
+		this.cache = cache;
+		return this;
+	}
 
-		saveFromUrl(new URL(MOJANG_MAPPINGS_URL.replace("{VERSION}", version.toString(true))), filePath);
+	/**
+	 * Gets a supplier of the Minecraft mappings of this provider, whose input keys are hashes of the
+	 * mapping files, so that a {@link MappingsShrieker} with a cache does not parse them again when they
+	 * have not changed.
+	 *
+	 * @return a supplier of Minecraft mappings
+	 */
+	public @NotNull MappingsSupplier getMinecraftMappingsSupplier() {
+		return new MappingsSupplier() {
+			@Override
+			public @NotNull Mappings getMappings(@NotNull Version version) throws IOException {
+				return loadMinecraftMappings(version);
+			}
+
+			@Override
+			public @NotNull String getInputKey(@NotNull Version version) throws IOException {
+				return MappingsCache.hashFiles(PROGUARD_MAPPING.getParserKey(), downloadMinecraftMappings(version));
+			}
+
+			@Override
+			public @NotNull TypeResolver createTypeResolver() {
+				return PROGUARD_MAPPING.createTypeResolver();
+			}
+		};
+	}
+
+	public @NotNull Mappings loadMinecraftMappings(@NotNull Version version) throws IOException {
+		var filePath = downloadMinecraftMappings(version);
 
-		return PROGUARD_MAPPING.parse(Files.readAllLines(filePath));
+		return loadCached(PROGUARD_MAPPING,
+				() -> PROGUARD_MAPPING.parse(Files.readAllLines(filePath), stringPool), filePath);
 	}
 
 	public @NotNull Mappings loadSpigotMappings(@NotNull Version version) throws IOException {
@@ -60,7 +113,6 @@ public class MinecraftMappingsProvider {
 		var classMappingPath = dataFolder.resolve(classMappingFile);
 		saveFromUrl(new URL(SPIGOT_MAPPING_URL.replace("{COMMIT}", commit).replace("{MAPPING}", classMappingFile)),
 				classMappingPath);
-		var classMapping = SPIGOT_CLASS_MAPPING.parse(Files.readAllLines(classMappingPath));
 
 		if (infoData.has("memberMappings")) {
 			// 1.17.1
@@ -68,11 +120,61 @@ public class MinecraftMappingsProvider {
 			var memberMappingPath = dataFolder.resolve(memberMappingFile);
 			saveFromUrl(new URL(SPIGOT_MAPPING_URL.replace("{COMMIT}", commit).replace("{MAPPING}", memberMappingFile)),
 					memberMappingPath);
-			var memberMapping = SPIGOT_MEMBER_MAPPING.parse(Files.readAllLines(memberMappingPath));
 
-			return SpigotMappingsMerger.merge(classMapping, memberMapping);
+			// the merged mappings get their parameter types from the member mappings
+			return loadCached(SPIGOT_CLASS_MAPPING.getParserKey() + "+" + SPIGOT_MEMBER_MAPPING.getParserKey(),
+					SPIGOT_MEMBER_MAPPING.createTypeResolver(), () -> {
+				// both files are parsed at the same time, they only share the thread-safe string pool
+				var memberMappingFuture = CompletableFuture.supplyAsync(() -> {
+					try {
+						return parseStreamed(lines -> SPIGOT_MEMBER_MAPPING.parse(lines, stringPool), memberMappingPath);
+					} catch (IOException ex) {
+						throw new UncheckedIOException(ex);
+					}
+				});
+				var classMapping =
+						parseStreamed(lines -> SPIGOT_CLASS_MAPPING.parse(lines, stringPool), classMappingPath);
+				Mappings memberMapping;
+				try {
+					memberMapping = memberMappingFuture.join();
+				} catch (CompletionException ex) {
+					if (ex.getCause() instanceof UncheckedIOException ioException)
+						throw ioException.getCause();
+					throw ex;
+				}
+				return SpigotMappingsMerger.merge(classMapping, memberMapping);
+			}, classMappingPath, memberMappingPath);
 		} else {
-			return classMapping;
+			return loadCached(SPIGOT_CLASS_MAPPING,
+					() -> parseStreamed(lines -> SPIGOT_CLASS_MAPPING.parse(lines, stringPool), classMappingPath),
+					classMappingPath);
+		}
+	}
+
+	private @NotNull Path downloadMinecraftMappings(@NotNull Version version) throws IOException {
+		var filePath = dataFolder.resolve(version.toString() + ".txt");
+		saveFromUrl(new URL(MOJANG_MAPPINGS_URL.replace("{VERSION}", version.toString(true))), filePath);
+		return filePath;
+	}
+
+	private @NotNull Mappings loadCached(@NotNull MappingType mappingType, @NotNull MappingsLoader loader,
+			@NotNull Path... files) throws IOException {
+		return loadCached(mappingType.getParserKey(), mappingType.createTypeResolver(), loader, files);
+	}
+
+	private @NotNull Mappings loadCached(@NotNull String parserKey, @NotNull TypeResolver typeResolver,
+			@NotNull MappingsLoader loader, @NotNull Path... files) throws IOException {
+		if (cache == null)
+			return loader.load();
+		return cache.get(MappingsCache.hashFiles(parserKey, files), stringPool, typeResolver, loader);
+	}
+
+	private static @NotNull Mappings parseStreamed(@NotNull Function<Iterable<String>, Mappings> parser,
+			@NotNull Path filePath) throws IOException {
+		try (var lines = Files.lines(filePath)) {
+			return parser.apply(lines::iterator);
+		} catch (UncheckedIOException ex) {
+			throw ex.getCause();
 		}
 	}
 
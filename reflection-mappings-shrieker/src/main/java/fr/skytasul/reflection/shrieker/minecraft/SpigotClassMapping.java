@@ -4,6 +4,7 @@ import fr.skytasul.reflection.mappings.Mappings;
 import fr.skytasul.reflection.mappings.RealMappings;
 import fr.skytasul.reflection.mappings.RealMappings.RealClassMapping;
 import fr.skytasul.reflection.mappings.files.MappingType;
+import fr.skytasul.reflection.mappings.files.StringPool;
 import org.jetbrains.annotations.NotNull;
 import java.io.BufferedWriter;
 import java.io.IOException;
@@ -22,17 +23,39 @@ public class SpigotClassMapping implements MappingType {
 		this.failOnLineParse = failOnLineParse;
 	}
 
+	@Override
+	public @NotNull String getParserKey() {
+		return getClass().getName() + "/" + failOnLineParse;
+	}
+
 	@Override
 	public @NotNull Mappings parse(@NotNull List<String> lines) {
+		return parse(lines, new StringPool());
+	}
+
+	@Override
+	public @NotNull Mappings parse(@NotNull List<String> lines, @NotNull StringPool stringPool) {
+		return parse((Iterable<String>) lines, stringPool);
+	}
+
+	/**
+	 * Parses mappings from lines which can be streamed, for instance directly from a file.
+	 *
+	 * @param lines lines of the mappings file
+	 * @param stringPool pool used to deduplicate the names of classes
+	 * @return the parsed mappings
+	 */
+	public @NotNull Mappings parse(@NotNull Iterable<String> lines, @NotNull StringPool stringPool) {
 		var classes = new ArrayList<RealClassMapping>();
+		var tokenizer = new CsrgTokenizer();
 		for (String line : lines) {
-			if (line.startsWith("#"))
+			if (!tokenizer.reset(line))
 				continue;
 
-			String[] columns = line.split(" ");
-			if (columns.length == 2) {
-				String original = columns[0].replace('/', '.');
-				String mapped = columns[1].replace('/', '.');
+			tokenizer.next();
+			String original = stringPool.intern(tokenizer.binaryName());
+			if (tokenizer.nextLast()) {
+				String mapped = stringPool.intern(tokenizer.binaryName());
 				classes.add(new RealClassMapping(original, mapped, List.of(), List.of()));
 			} else {
 				if (failOnLineParse)
@@ -1,6 +1,8 @@
 package fr.skytasul.reflection.shrieker.minecraft;
 
 import fr.skytasul.reflection.mappings.Mappings;
+import fr.skytasul.reflection.mappings.Mappings.ClassMapping;
+import fr.skytasul.reflection.mappings.Mappings.ClassMapping.ClassArrayType;
 import fr.skytasul.reflection.mappings.RealMappings;
 import fr.skytasul.reflection.mappings.RealMappings.RealClassMapping;
 import fr.skytasul.reflection.mappings.RealMappings.RealClassMapping.RealFieldMapping;
@@ -8,9 +10,10 @@ import fr.skytasul.reflection.mappings.RealMappings.RealClassMapping.RealMethodM
 import org.jetbrains.annotations.NotNull;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.concurrent.ConcurrentHashMap;
 
 public final class SpigotMappingsMerger {
 
@@ -36,44 +39,77 @@ public final class SpigotMappingsMerger {
 	 * @return
 	 */
 	public static @NotNull Mappings merge(@NotNull Mappings classMappings, @NotNull Mappings membersMappings) {
-		Map<String, RealClassMapping> classes = classMappings.getClasses().stream().collect(Collectors.toMap(
-				x -> x.getMappedName(),
-				x -> new RealClassMapping(
-						x.getOriginalName(),
-						x.getMappedName(),
-						x.getFields().stream()
-								.map(field -> new RealFieldMapping(field.getOriginalName(), field.getMappedName()))
-								.toList(),
-						new ArrayList<>())));
-		Map<String, RealClassMapping> classesByMapped =
-				classes.values().stream().collect(Collectors.toMap(x -> x.getMappedName(), x -> x));
+		// indexed by mapped name, which is the original name in the members mapping
+		Map<String, RealClassMapping> classes = new HashMap<>(classMappings.getClasses().size() * 2);
+		for (var classMapping : classMappings.getClasses()) {
+			var fields = new ArrayList<RealFieldMapping>(classMapping.getFields().size());
+			for (var field : classMapping.getFields())
+				fields.add(new RealFieldMapping(field.getOriginalName(), field.getMappedName()));
+			var mergedClass =
+					new RealClassMapping(classMapping.getOriginalName(), classMapping.getMappedName(), fields, new ArrayList<>());
+			if (classes.put(classMapping.getMappedName(), mergedClass) != null)
+				throw new IllegalArgumentException("Duplicate class " + classMapping.getMappedName());
+		}
 
+		Map<String, List<ClassMapping>> membersByClass = new HashMap<>(classes.size() * 2);
 		for (var classWithMembers : membersMappings.getClasses()) {
-			var classToFill = classes.get(classWithMembers.getOriginalName());
-
-			if (classToFill == null)
+			if (!classes.containsKey(classWithMembers.getOriginalName()))
 				throw new IllegalArgumentException("Cannot find class " + classWithMembers.getOriginalName());
 
-			for (var method : classWithMembers.getMethods()) {
-				var newParameters = Stream.of(method.getParameterTypes()).map(oldType -> {
-					boolean isArray = false;
-					String typeName = oldType.getTypeName();
-					if (oldType instanceof Mappings.ClassMapping.ClassArrayType array) {
-						isArray = true;
-						typeName = array.componentMapping().getTypeName();
-					}
-					Type newType = classesByMapped.get(typeName);
-					if (newType == null)
-						return oldType;
-					return isArray ? new Mappings.ClassMapping.ClassArrayType(newType) : newType;
-				}).toArray(Type[]::new);
+			membersByClass.computeIfAbsent(classWithMembers.getOriginalName(), __ -> new ArrayList<>(1))
+					.add(classWithMembers);
+		}
+
+		// each class is filled by a single thread, and the type table is shared by all of them
+		var types = new TypeTable(classes);
+		membersByClass.entrySet().parallelStream().forEach(entry -> {
+			var methods = classes.get(entry.getKey()).methods();
+			for (var classWithMembers : entry.getValue()) {
+				for (var method : classWithMembers.getMethods()) {
+					var parameterTypes = method.getParameterTypes();
+					var newParameters = new Type[parameterTypes.length];
+					for (int i = 0; i < parameterTypes.length; i++)
+						newParameters[i] = types.getMergedType(parameterTypes[i]);
 
-				classToFill.methods()
-						.add(new RealMethodMapping(method.getOriginalName(), method.getMappedName(), newParameters));
+					methods.add(new RealMethodMapping(method.getOriginalName(), method.getMappedName(), newParameters));
+				}
 			}
-		}
+		});
 
 		return new RealMappings(classes.values());
 	}
 
+	/**
+	 * Rewrites the types of the members mapping, which are named after the mapped names of classes, into
+	 * the classes of the merged mappings. Each distinct type is only rewritten once.
+	 */
+	private static class TypeTable {
+
+		private final @NotNull Map<String, RealClassMapping> classes;
+		private final @NotNull Map<String, Type> types = new ConcurrentHashMap<>();
+
+		private TypeTable(@NotNull Map<String, RealClassMapping> classes) {
+			this.classes = classes;
+		}
+
+		private @NotNull Type getMergedType(@NotNull Type type) {
+			var mergedType = types.get(type.getTypeName());
+			if (mergedType == null) {
+				if (type instanceof ClassArrayType arrayType) {
+					var componentType = getMergedType(arrayType.componentMapping());
+					mergedType = componentType == arrayType.componentMapping() ? type : new ClassArrayType(componentType);
+				} else {
+					mergedType = classes.get(type.getTypeName());
+					if (mergedType == null)
+						mergedType = type;
+				}
+				var previous = types.putIfAbsent(type.getTypeName(), mergedType);
+				if (previous != null)
+					mergedType = previous;
+			}
+			return mergedType;
+		}
+
+	}
+
 }
@@ -1,10 +1,13 @@
 package fr.skytasul.reflection.shrieker.minecraft;
 
 import fr.skytasul.reflection.mappings.Mappings;
+import fr.skytasul.reflection.mappings.Mappings.ClassMapping.ClassArrayType;
 import fr.skytasul.reflection.mappings.RealMappings;
 import fr.skytasul.reflection.mappings.RealMappings.RealClassMapping;
 import fr.skytasul.reflection.mappings.RealMappings.RealClassMapping.RealMethodMapping;
 import fr.skytasul.reflection.mappings.files.MappingType;
+import fr.skytasul.reflection.mappings.files.StringPool;
+import fr.skytasul.reflection.mappings.files.TypeResolver;
 import org.jetbrains.annotations.NotNull;
 import java.io.BufferedWriter;
 import java.io.IOException;
@@ -12,112 +15,188 @@ import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.regex.Pattern;
 
 public class SpigotMemberMapping implements MappingType {
 
-	// https://docs.oracle.com/javase%2F7%2Fdocs%2Fjdk%2Fapi%2Fjpda%2Fjdi%2F%2F/com/sun/jdi/doc-files/signature.html
-
-	private static final Map<Character, Class<?>> PRIMITIVES = Map.of(
-			'Z', boolean.class,
-			'B', byte.class,
-			'C', char.class,
-			'S', short.class,
-			'I', int.class,
-			'J', long.class,
-			'F', float.class,
-			'D', double.class);
-
-	private static final Pattern METHOD_SIGNATURE_PATTERN = Pattern.compile("^\\((?<parameters>.*?)\\).+$");
-	private static final Pattern TYPE_PATTERN = Pattern.compile("(?<array>\\[?)(?:L(?<type>[\\w/$]*?);|(?<primitive>\\w))");
-
 	private static final Logger LOGGER = Logger.getLogger("SpigotMemberMapping");
 
 	private final boolean failOnLineParse;
+	private final boolean lazyTypes;
 
 	public SpigotMemberMapping(boolean failOnLineParse) {
+		this(failOnLineParse, false);
+	}
+
+	/**
+	 * Creates a Spigot members mappings type.
+	 *
+	 * @param failOnLineParse if <code>true</code>, an exception is thrown when a line cannot be parsed,
+	 *        otherwise it is only logged
+	 * @param lazyTypes if <code>true</code>, library classes used as method parameters are not loaded
+	 *        while parsing, but only when they are needed
+	 * @see TypeResolver
+	 */
+	public SpigotMemberMapping(boolean failOnLineParse, boolean lazyTypes) {
 		this.failOnLineParse = failOnLineParse;
+		this.lazyTypes = lazyTypes;
+	}
+
+	@Override
+	public @NotNull String getParserKey() {
+		return getClass().getName() + "/" + failOnLineParse + "/" + lazyTypes;
+	}
+
+	@Override
+	public @NotNull TypeResolver createTypeResolver() {
+		return new TypeResolver(SpigotMemberMapping.class.getClassLoader(), lazyTypes);
 	}
 
 	@Override
 	public @NotNull Mappings parse(@NotNull List<String> lines) {
+		return parse(lines, new StringPool());
+	}
+
+	@Override
+	public @NotNull Mappings parse(@NotNull List<String> lines, @NotNull StringPool stringPool) {
+		return parse((Iterable<String>) lines, stringPool);
+	}
+
+	/**
+	 * Parses mappings from lines which can be streamed, for instance directly from a file.
+	 *
+	 * @param lines lines of the mappings file
+	 * @param stringPool pool used to deduplicate the names of classes and members
+	 * @return the parsed mappings
+	 */
+	public @NotNull Mappings parse(@NotNull Iterable<String> lines, @NotNull StringPool stringPool) {
 		var classes = new HashMap<String, RealClassMapping>();
+		// shared for the whole file so that every library type is looked up only once
+		var typeResolver = createTypeResolver();
+		var tokenizer = new CsrgTokenizer();
+
+		String previousLine = null;
+		int previousClassEnd = 0;
+		RealClassMapping classMapping = null;
 		for (String line : lines) {
-			if (line.startsWith("#"))
+			if (!tokenizer.reset(line))
 				continue;
 
-			String[] columns = line.split(" ");
-			if (columns.length == 4) {
-				String className = columns[0].replace('/', '.');
-				var classMapping = classes.computeIfAbsent(className,
+			tokenizer.next();
+			int classEnd = tokenizer.end();
+			if (!tokenizer.next()) {
+				failLine(line);
+				continue;
+			}
+			String original = stringPool.intern(tokenizer.token());
+			if (!tokenizer.next()) {
+				failLine(line);
+				continue;
+			}
+			int signatureStart = tokenizer.start();
+			int signatureEnd = tokenizer.end();
+			if (!tokenizer.nextLast()) {
+				failLine(line);
+				continue;
+			}
+			String mapped = stringPool.intern(tokenizer.token());
+
+			int parametersEnd = line.indexOf(')', signatureStart);
+			if (line.charAt(signatureStart) != '(' || parametersEnd == -1 || parametersEnd >= signatureEnd - 1)
+				throw new IllegalArgumentException(
+						"Failed to parse method signature " + line.substring(signatureStart, signatureEnd));
+
+			// members of a class are usually grouped: only look the class up when it changes
+			if (classMapping == null || classEnd != previousClassEnd
+					|| !line.regionMatches(0, previousLine, 0, classEnd)) {
+				String className = stringPool.intern(CsrgTokenizer.toBinaryName(line, 0, classEnd));
+				classMapping = classes.computeIfAbsent(className,
 						__ -> new RealClassMapping(className, className, List.of(), new ArrayList<>()));
-
-				String original = columns[1];
-				String signature = columns[2];
-				String mapped = columns[3];
-
-				var matcher = METHOD_SIGNATURE_PATTERN.matcher(signature);
-				if (!matcher.matches())
-					throw new IllegalArgumentException("Failed to parse method signature " + signature);
-				String parameters = matcher.group("parameters");
-
-				classMapping.methods().add(new RealMethodMapping(original, mapped, parseParameters(parameters)));
-			} else {
-				if (failOnLineParse)
-					throw new IllegalArgumentException("Failed to parse line " + line);
-				else
-					LOGGER.log(Level.WARNING, "Failed to parse line {0}", line);
+				previousLine = line;
+				previousClassEnd = classEnd;
 			}
+
+			classMapping.methods().add(new RealMethodMapping(original, mapped,
+					parseParameters(line, signatureStart + 1, parametersEnd, typeResolver)));
 		}
 		return new RealMappings(classes.values());
 	}
 
-	protected @NotNull Type @NotNull [] parseParameters(@NotNull String parameters) {
-		var matcher = TYPE_PATTERN.matcher(parameters);
+	private void failLine(@NotNull String line) {
+		if (failOnLineParse)
+			throw new IllegalArgumentException("Failed to parse line " + line);
+		else
+			LOGGER.log(Level.WARNING, "Failed to parse line {0}", line);
+	}
 
-		var types = new ArrayList<Type>(2);
-		while (matcher.find()) {
-			boolean isArray = !matcher.group("array").isEmpty();
-			String typeName = matcher.group("type");
-			String primitiveName = matcher.group("primitive");
+	protected @NotNull Type @NotNull [] parseParameters(@NotNull String parameters) {
+		return parseParameters(parameters, new TypeResolver());
+	}
 
-			Class<?> clazz = null;
-			Type type = null;
+	/**
+	 * Parses the parameters part of a JVM method descriptor.
+	 *
+	 * @param parameters descriptors of the parameters, without the enclosing parentheses
+	 * @param typeResolver resolver of the library types, shared for the whole file
+	 * @return the parameter types
+	 * @see <a href=
+	 *      "https://docs.oracle.com/javase/specs/jvms/se17/html/jvms-4.html#jvms-4.3">JVM field and method
+	 *      descriptors</a>
+	 */
+	protected @NotNull Type @NotNull [] parseParameters(@NotNull String parameters,
+			@NotNull TypeResolver typeResolver) {
+		return parseParameters(parameters, 0, parameters.length(), typeResolver);
+	}
 
-			if (primitiveName != null) {
-				clazz = PRIMITIVES.get(primitiveName.charAt(0));
+	private @NotNull Type @NotNull [] parseParameters(@NotNull String parameters, int index, int end,
+			@NotNull TypeResolver typeResolver) {
+		var types = new ArrayList<Type>(2);
+		while (index < end) {
+			int dimensions = 0;
+			while (index < end && parameters.charAt(index) == '[') {
+				dimensions++;
+				index++;
+			}
+			if (index == end)
+				throw new IllegalArgumentException("Missing array component type in " + parameters);
+
+			Type type;
+			char descriptor = parameters.charAt(index++);
+			if (descriptor == 'L') {
+				int nameEnd = parameters.indexOf(';', index);
+				if (nameEnd == -1 || nameEnd >= end)
+					throw new IllegalArgumentException("Unterminated class descriptor in " + parameters);
+				type = typeResolver.resolve(CsrgTokenizer.toBinaryName(parameters, index, nameEnd));
+				index = nameEnd + 1;
 			} else {
-				typeName = typeName.replace('/', '.');
-				try {
-					clazz = Class.forName(typeName);
-				} catch (ClassNotFoundException ex) {
-					type = new FakeType(typeName);
-				}
+				type = getPrimitive(descriptor);
 			}
 
-			if (clazz != null)
-				type = isArray ? clazz.arrayType() : clazz;
-			else if (isArray)
-				type = new Mappings.ClassMapping.ClassArrayType(type);
-
+			for (int i = 0; i < dimensions; i++)
+				type = type instanceof Class<?> clazz ? clazz.arrayType() : new ClassArrayType(type);
 			types.add(type);
 		}
 		return types.toArray(Type[]::new);
 	}
 
+	private static @NotNull Class<?> getPrimitive(char descriptor) {
+		return switch (descriptor) {
+			case 'Z' -> boolean.class;
+			case 'B' -> byte.class;
+			case 'C' -> char.class;
+			case 'S' -> short.class;
+			case 'I' -> int.class;
+			case 'J' -> long.class;
+			case 'F' -> float.class;
+			case 'D' -> double.class;
+			default -> throw new IllegalArgumentException("Unknown type descriptor " + descriptor);
+		};
+	}
+
 	@Override
 	public void write(@NotNull BufferedWriter writer, @NotNull Mappings mappings) throws IOException {
 		throw new UnsupportedOperationException();
 	}
 
-	protected static record FakeType(String name) implements Type {
-		@Override
-		public String getTypeName() {
-			return name;
-		}
-	}
-
 }
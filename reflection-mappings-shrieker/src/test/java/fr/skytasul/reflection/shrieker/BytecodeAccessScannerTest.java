@@ -0,0 +1,215 @@
+package fr.skytasul.reflection.shrieker;
+
+import static fr.skytasul.reflection.shrieker.TestUtils.getLines;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import fr.skytasul.reflection.MappedReflectionAccessor;
+import fr.skytasul.reflection.ReflectionAccessor;
+import fr.skytasul.reflection.ReflectionAccessor.ClassAccessor;
+import fr.skytasul.reflection.Version;
+import fr.skytasul.reflection.mappings.Mappings;
+import fr.skytasul.reflection.mappings.files.ProguardMapping;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.jar.JarOutputStream;
+import java.util.zip.ZipEntry;
+
+class BytecodeAccessScannerTest {
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void testSameAsDryRun() {
+		assertDoesNotThrow(() -> {
+			var dryRun = new FakeReflectionAccessor();
+			Initializer.initialize(dryRun);
+
+			var scanned = BytecodeAccessScanner.scan(getClassFile(Initializer.class));
+			assertEquals(getAccesses(dryRun), getAccesses(scanned));
+		});
+	}
+
+	@Test
+	void testAllBranches() {
+		assertDoesNotThrow(() -> {
+			var scanned = BytecodeAccessScanner.scan(getClassFile(BranchingInitializer.class));
+			assertEquals(List.of(
+					"net.minecraft.Entity",
+					"net.minecraft.Entity.field0",
+					"net.minecraft.Entity.field1",
+					"net.minecraft.Entity.loop()",
+					"net.minecraft.Entity.newField",
+					"net.minecraft.Entity.oldField",
+					"net.minecraft.Entity.switched()"), getAccesses(scanned));
+		});
+	}
+
+	@Test
+	void testJar() {
+		assertDoesNotThrow(() -> {
+			var jar = directory.resolve("plugin.jar");
+			try (var output = new JarOutputStream(Files.newOutputStream(jar))) {
+				for (var clazz : List.of(Initializer.class, BranchingInitializer.class)) {
+					output.putNextEntry(new ZipEntry(clazz.getName().replace('.', '/') + ".class"));
+					output.write(Files.readAllBytes(getClassFile(clazz)));
+				}
+			}
+
+			var classFilesAccesses = getAccesses(
+					BytecodeAccessScanner.scan(getClassFile(Initializer.class), getClassFile(BranchingInitializer.class)));
+			assertEquals(classFilesAccesses, getAccesses(BytecodeAccessScanner.scan(jar)));
+			assertEquals(15, classFilesAccesses.size()); // net.minecraft.Entity is in both
+		});
+	}
+
+	@Test
+	void testReplay() {
+		assertDoesNotThrow(() -> {
+			var scanned = BytecodeAccessScanner.scan(getClassFile(Initializer.class));
+			var replayed = new FakeReflectionAccessor();
+			scanned.replay(replayed);
+			assertEquals(getAccesses(scanned), getAccesses(replayed));
+		});
+	}
+
+	@Test
+	void testRelocated() {
+		assertDoesNotThrow(() -> {
+			// same length, so that the constant pool stays valid
+			var original = "fr/skytasul/reflection/".getBytes(StandardCharsets.US_ASCII);
+			var relocated = "io/example/lib/reflect/".getBytes(StandardCharsets.US_ASCII);
+			var bytes = Files.readAllBytes(getClassFile(Initializer.class));
+			for (int i = 0; i + original.length <= bytes.length; i++) {
+				if (Arrays.equals(bytes, i, i + original.length, original, 0, original.length))
+					System.arraycopy(relocated, 0, bytes, i, relocated.length);
+			}
+			var relocatedFile = directory.resolve("Initializer.class");
+			Files.write(relocatedFile, bytes);
+
+			assertEquals(List.of(), getAccesses(BytecodeAccessScanner.scan(relocatedFile)));
+			assertEquals(getAccesses(BytecodeAccessScanner.scan(getClassFile(Initializer.class))),
+					getAccesses(BytecodeAccessScanner.scan("io.example.lib.reflect", relocatedFile)));
+		});
+	}
+
+	@Test
+	void testReplayVersions() {
+		assertDoesNotThrow(() -> {
+			var scanned = BytecodeAccessScanner.scan(getClassFile(BranchingInitializer.class));
+			var mappingType = new ProguardMapping(false);
+			var versionsMappings = Map.of(
+					new Version(1, 17, 0), mappingType.parse(getLines("""
+							net.minecraft.Entity -> a:
+							    int oldField -> b
+							    int field0 -> c
+							    int field1 -> d
+							    void loop() -> e
+							    void switched() -> f
+							""")),
+					new Version(1, 18, 0), mappingType.parse(getLines("""
+							net.minecraft.Entity -> a:
+							    int newField -> g
+							    int field0 -> c
+							    int field1 -> d
+							    void loop() -> e
+							    void switched() -> f
+							""")));
+
+			assertEquals(List.of("net.minecraft.Entity.newField"),
+					scanned.replay(new MappedReflectionAccessor(versionsMappings.get(new Version(1, 17, 0)))));
+			assertEquals(List.of("net.minecraft.Entity.oldField"),
+					scanned.replay(new MappedReflectionAccessor(versionsMappings.get(new Version(1, 18, 0)))));
+
+			var shrieker = new MappingsShrieker(mappingType, (reflection, version) -> scanned.replay(reflection));
+			for (var entry : versionsMappings.entrySet())
+				shrieker.registerVersionMappings(entry.getKey(), entry.getValue());
+			assertEquals(List.of("b", "c", "d"), getMappedFields(shrieker, new Version(1, 17, 0)));
+			assertEquals(List.of("c", "d", "g"), getMappedFields(shrieker, new Version(1, 18, 0)));
+		});
+	}
+
+	private static List<String> getMappedFields(MappingsShrieker shrieker, Version version) {
+		return shrieker.getReducedMappings().get(version).getClass("net.minecraft.Entity").getFields().stream()
+				.map(field -> field.getMappedName()).sorted().toList();
+	}
+
+	private static Path getClassFile(Class<?> clazz) throws Exception {
+		var name = clazz.getName();
+		return Path.of(clazz.getResource(name.substring(name.lastIndexOf('.') + 1) + ".class").toURI());
+	}
+
+	private static List<String> getAccesses(FakeReflectionAccessor reflection) {
+		var accesses = new ArrayList<String>();
+		for (var fakeClass : reflection.classes()) {
+			accesses.add(fakeClass.name());
+			for (var field : fakeClass.fields())
+				accesses.add(fakeClass.name() + "." + field.name());
+			for (var method : fakeClass.methods())
+				accesses.add(fakeClass.name() + "." + Mappings.getStringForMethod(method.name(), method.parameterTypes()));
+		}
+		Collections.sort(accesses);
+		return accesses;
+	}
+
+	// the tests scan the class files of these initializers
+
+	static class Initializer {
+
+		private static final String LEVEL = "net.minecraft.Level";
+
+		private static ClassAccessor entity;
+
+		static void initialize(ReflectionAccessor reflection) throws ReflectiveOperationException {
+			entity = reflection.getClass("net.minecraft.Entity");
+			var level = reflection.getClass(LEVEL);
+			double position = 1.5 * System.nanoTime();
+			entity.getField("level");
+			entity.getMethod("setPos", double.class, double.class, double.class);
+			entity.getMethod("setLevel", level, Type.class, position > 0 ? level : level);
+			entity.getMethodInstance("getName");
+			level.getMethod("getEntities", level.getArrayType(), String[].class, int[][].class);
+			reflection.getClassInstance("net.minecraft.Server");
+			initializeMembers();
+		}
+
+		private static void initializeMembers() throws ReflectiveOperationException {
+			entity.getFieldInstance("id");
+		}
+
+	}
+
+	static class BranchingInitializer {
+
+		static void initialize(ReflectionAccessor reflection, int version) throws ReflectiveOperationException {
+			var entity = reflection.getClass("net.minecraft.Entity");
+			if (version > 17)
+				entity.getField("newField");
+			else
+				entity.getField("oldField");
+
+			for (int i = 0; i < version; i++)
+				entity.getMethod("loop");
+
+			switch (version) {
+				case 1 -> entity.getField("field0");
+				case 5 -> entity.getField("field1");
+				default -> entity.getMethod("switched");
+			}
+
+			// not constant: skipped
+			entity.getField("field" + version);
+		}
+
+	}
+
+}
@@ -0,0 +1,85 @@
+package fr.skytasul.reflection.shrieker;
+
+import static fr.skytasul.reflection.shrieker.TestUtils.getLines;
+import static fr.skytasul.reflection.shrieker.TestUtils.writeMappings;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import fr.skytasul.reflection.mappings.files.ProguardMapping;
+import org.junit.jupiter.api.Test;
+import java.util.List;
+import java.util.Map;
+
+class CustomMappingsTest {
+
+	@Test
+	void testClassFromMapped() {
+		var mappings = new CustomMappings(new ProguardMapping(true).parse(getLines("""
+				a.A -> x:
+				b.B -> y:
+				""")));
+		var classA = mappings.getClass("a.A");
+		assertSame(classA, mappings.getClassFromMapped("x"));
+		assertEquals("b.B", mappings.getClassFromMapped("y").getOriginalName());
+
+		classA.setMappedName("z");
+		assertNull(mappings.getClassFromMapped("x"));
+		assertSame(classA, mappings.getClassFromMapped("z"));
+	}
+
+	@Test
+	void testPropagateInheritance() {
+		var mappings = new CustomMappings(new ProguardMapping(true).parse(getLines("""
+				a.Base -> x:
+				    int field -> a
+				    void method() -> b
+				a.Interface -> y:
+				    void run(a.Base) -> c
+				a.Child -> z:
+				    int field -> d
+				    void method(int) -> e
+				""")));
+		// a.Child extends a.Middle (not mapped) extends a.Base, and implements a.Interface
+		var hierarchy = Map.of(
+				"a.Child", List.of("a.Middle", "a.Interface"),
+				"a.Middle", List.of("a.Base"),
+				"a.Base", List.of("java.lang.Object"));
+		mappings.propagateInheritance(name -> hierarchy.getOrDefault(name, List.of()));
+
+		assertEquals("""
+				a.Child -> z:
+				    field -> d
+				    method(int) -> e
+				    method() -> b
+				    run(a.Base) -> c
+				""", writeMappings(new ProguardMapping(true), () -> List.of(mappings.getClass("a.Child"))));
+		assertEquals(1, mappings.getClass("a.Base").getFields().size());
+		assertEquals(1, mappings.getClass("a.Base").getMethods().size());
+	}
+
+	@Test
+	void testPropagateInheritanceFromClassLoader() {
+		var mappings = new CustomMappings(new ProguardMapping(true).parse(getLines("""
+				java.util.AbstractCollection -> a:
+				    int size() -> b
+				java.util.ArrayList -> c:
+				""")));
+		mappings.propagateInheritance(getClass().getClassLoader());
+
+		assertEquals("b", mappings.getClass("java.util.ArrayList").getMethods().get(0).getMappedName());
+	}
+
+	@Test
+	void testCyclicInheritance() {
+		var mappings = new CustomMappings(new ProguardMapping(true).parse(getLines("""
+				a.A -> x:
+				a.B -> y:
+				""")));
+		var hierarchy = Map.of("a.A", List.of("a.C"), "a.C", List.of("a.B"), "a.B", List.of("a.A"));
+
+		assertThrows(IllegalArgumentException.class,
+				() -> mappings.propagateInheritance(name -> hierarchy.getOrDefault(name, List.of())));
+	}
+
+}
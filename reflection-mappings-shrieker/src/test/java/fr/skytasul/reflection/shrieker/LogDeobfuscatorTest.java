@@ -0,0 +1,77 @@
+package fr.skytasul.reflection.shrieker;
+
+import static fr.skytasul.reflection.shrieker.TestUtils.getLines;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import fr.skytasul.reflection.mappings.files.ProguardMapping;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ForkJoinPool;
+
+class LogDeobfuscatorTest {
+
+	private final LogDeobfuscator deobfuscator = new LogDeobfuscator(new ProguardMapping(true).parse(getLines("""
+			net.minecraft.server.Server -> a:
+			    int ticks -> a
+			    void tick() -> b
+			    void load(int) -> c
+			    void save(int) -> c
+			net.minecraft.server.Server$Inner -> a$a:
+			net.minecraft.world.Level -> ab.c:
+			    void keep() -> keep
+			""")));
+
+	private String deobfuscate(String log) throws IOException {
+		var output = new ByteArrayOutputStream();
+		deobfuscator.deobfuscate(new ByteArrayInputStream(log.getBytes(StandardCharsets.UTF_8)), output);
+		return output.toString(StandardCharsets.UTF_8);
+	}
+
+	@Test
+	void testStackTrace() throws IOException {
+		assertEquals("""
+				java.lang.IllegalStateException: broken
+					at net.minecraft.server.Server.tick(SourceFile:12)
+					at net.minecraft.server.Server$Inner.run(SourceFile:3)
+					at net.minecraft.world.Level.keep(SourceFile:40)
+					at net.minecraft.server.Server.load|save(SourceFile:7)
+					at java.lang.Thread.run(Thread.java:833)
+				""", deobfuscate("""
+				java.lang.IllegalStateException: broken
+					at a.b(SourceFile:12)
+					at a$a.run(SourceFile:3)
+					at ab.c.keep(SourceFile:40)
+					at a.c(SourceFile:7)
+					at java.lang.Thread.run(Thread.java:833)
+				"""));
+	}
+
+	@Test
+	void testBoundaries() throws IOException {
+		assertEquals("net.minecraft.server.Server, net.minecraft.server.Server.ticks, abc, x.a, \u00e9a, ab, ab.cd, [net.minecraft.world.Level]",
+				deobfuscate("a, a.a, abc, x.a, \u00e9a, ab, ab.cd, [ab.c]"));
+		assertEquals("no line end net.minecraft.server.Server", deobfuscate("no line end a"));
+		assertEquals("", deobfuscate(""));
+	}
+
+	@ParameterizedTest
+	@ValueSource(ints = {1, 7, 64, 1 << 16})
+	void testChunks(int chunkSize) throws IOException {
+		var log = new StringBuilder();
+		var expected = new StringBuilder();
+		for (int i = 0; i < 2000; i++) {
+			log.append("[%d] at a.b(SourceFile:%d) ".formatted(i, i).repeat(i % 5)).append('\n');
+			expected.append("[%d] at net.minecraft.server.Server.tick(SourceFile:%d) ".formatted(i, i).repeat(i % 5))
+					.append('\n');
+		}
+
+		deobfuscator.setChunkSize(chunkSize);
+		deobfuscator.setExecutor(ForkJoinPool.commonPool(), 2);
+		assertEquals(expected.toString(), deobfuscate(log.toString()));
+	}
+
+}
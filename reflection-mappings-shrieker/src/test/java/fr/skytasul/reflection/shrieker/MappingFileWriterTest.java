@@ -1,14 +1,25 @@
 package fr.skytasul.reflection.shrieker;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static fr.skytasul.reflection.shrieker.TestUtils.getLines;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import fr.skytasul.reflection.Version;
 import fr.skytasul.reflection.mappings.Mappings;
 import fr.skytasul.reflection.mappings.RealMappings;
+import fr.skytasul.reflection.mappings.files.BinaryMapping;
+import fr.skytasul.reflection.mappings.files.MappingFileReader;
 import fr.skytasul.reflection.mappings.files.ProguardMapping;
 import org.junit.jupiter.api.Test;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.StringWriter;
 import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -59,4 +70,232 @@ class MappingFileWriterTest {
 				""", writer.toString());
 	}
 
+	@Test
+	void testWriteBinary() {
+		var allMappings = new HashMap<Version, Mappings>();
+		for (int i = 0; i < 2; i++) {
+			var stringHandle = new RealMappings.RealClassMapping("java.lang.String", Character.toString('a' + i * 2),
+					List.of(), List.of(new RealMappings.RealClassMapping.RealMethodMapping("charAt",
+							Character.toString('b' + i * 2), new Type[] {int.class})));
+			allMappings.put(new Version(1, 2, i), new RealMappings(List.of(stringHandle)));
+		}
+
+		var binaryType = new BinaryMapping();
+		var output = new ByteArrayOutputStream();
+		assertDoesNotThrow(new MappingFileWriter(binaryType, output, allMappings)::writeAll);
+
+		assertDoesNotThrow(() -> {
+			var reader = new MappingFileReader(binaryType, ByteBuffer.wrap(output.toByteArray()));
+			reader.parseMappings();
+			for (var version : reader.getAvailableVersions()) {
+				var stringWriter = new StringWriter();
+				new MappingFileWriter(mappingType, stringWriter, Map.of(version, reader.getParsedMappings(version)))
+						.writeAll();
+				var expectedWriter = new StringWriter();
+				new MappingFileWriter(mappingType, expectedWriter, Map.of(version, allMappings.get(version))).writeAll();
+				assertEquals(expectedWriter.toString(), stringWriter.toString());
+			}
+		});
+	}
+
+	@Test
+	void testWriteDeltas() {
+		var allMappings = new HashMap<Version, Mappings>();
+		allMappings.put(new Version(1, 0, 0), mappingType.parse(getLines("""
+				a.A -> x:
+				    f -> a
+				    m(int) -> b
+				b.B -> y:
+				""")));
+		allMappings.put(new Version(1, 1, 0), mappingType.parse(getLines("""
+				a.A -> x:
+				    f -> c
+				c.C -> z:
+				    n(a.A) -> d
+				""")));
+		allMappings.put(new Version(1, 2, 0), mappingType.parse(getLines("""
+				c.C -> z:
+				""")));
+
+		var writer = new StringWriter();
+		assertDoesNotThrow(new MappingFileWriter(mappingType, writer, allMappings).setSnapshotInterval(2)::writeAll);
+
+		var written = writer.toString();
+		assertEquals("""
+				reflection-remapper | delta format
+				# reflection-remapper | 1.0.0
+				a.A -> x:
+				    f -> a
+				    m(int) -> b
+				b.B -> y:
+				# reflection-remapper | 1.1.0 delta
+				# reflection-remapper | remove method a.A m(int)
+				# reflection-remapper | remove class b.B
+				a.A -> x:
+				    f -> c
+				c.C -> z:
+				    n(a.A) -> d
+				# reflection-remapper | 1.2.0
+				c.C -> z:
+				""", written);
+
+		assertDoesNotThrow(() -> {
+			var reader = new MappingFileReader(mappingType, getLines(written));
+			assertTrue(reader.keepOnlyVersion(new Version(1, 1, 0)));
+			reader.parseMappings();
+
+			var rebuilt = reader.getParsedMappings(new Version(1, 1, 0));
+			assertEquals(2, rebuilt.getClasses().size());
+			assertNull(rebuilt.getClass("b.B"));
+
+			var classA = rebuilt.getClass("a.A");
+			assertEquals(1, classA.getFields().size());
+			assertEquals("c", classA.getFields().iterator().next().getMappedName());
+			assertTrue(classA.getMethods().isEmpty());
+
+			var method = rebuilt.getClass("c.C").getMethods().iterator().next();
+			assertSame(classA, method.getParameterTypes()[0]);
+		});
+	}
+
+	@Test
+	void testWriteSameOverloads() {
+		var allMappings = new HashMap<Version, Mappings>();
+		allMappings.put(new Version(1, 0, 0), mappingType.parse(getLines("""
+				a.A -> x:
+				    m(int) -> b
+				    m(long) -> c
+				b.B -> y:
+				""")));
+		allMappings.put(new Version(1, 1, 0), mappingType.parse(getLines("""
+				b.B -> y:
+				a.A -> x:
+				    m(long) -> c
+				    m(int) -> b
+				""")));
+		allMappings.put(new Version(1, 2, 0), mappingType.parse(getLines("""
+				a.A -> x:
+				    m(int) -> c
+				    m(long) -> b
+				b.B -> y:
+				""")));
+
+		var writer = new StringWriter();
+		assertDoesNotThrow(new MappingFileWriter(mappingType, writer, allMappings)::writeAll);
+
+		var written = writer.toString();
+		assertTrue(written.contains("# reflection-remapper | 1.1.0 same as 1.0.0\n"));
+		assertTrue(written.contains("# reflection-remapper | 1.2.0\n"));
+	}
+
+	@Test
+	void testWriteSameVersions() {
+		var allMappings = new HashMap<Version, Mappings>();
+		allMappings.put(new Version(1, 0, 0), mappingType.parse(getLines("""
+				a.A -> x:
+				    f -> a
+				    m(int) -> b
+				""")));
+		allMappings.put(new Version(1, 1, 0), mappingType.parse(getLines("""
+				a.A -> x:
+				    m(int) -> b
+				    f -> a
+				""")));
+		allMappings.put(new Version(1, 2, 0), mappingType.parse(getLines("""
+				a.A -> x:
+				    f -> c
+				""")));
+
+		var writer = new StringWriter();
+		assertDoesNotThrow(new MappingFileWriter(mappingType, writer, allMappings)::writeAll);
+
+		var written = writer.toString();
+		assertEquals("""
+				# reflection-remapper | 1.0.0
+				a.A -> x:
+				    f -> a
+				    m(int) -> b
+				# reflection-remapper | 1.1.0 same as 1.0.0
+				# reflection-remapper | 1.2.0
+				a.A -> x:
+				    f -> c
+				""", written);
+
+		assertDoesNotThrow(() -> {
+			var reader = new MappingFileReader(mappingType, getLines(written));
+			reader.parseMappings();
+			assertSame(reader.getParsedMappings(new Version(1, 0, 0)), reader.getParsedMappings(new Version(1, 1, 0)));
+
+			var binaryType = new BinaryMapping();
+			var output = new ByteArrayOutputStream();
+			new MappingFileWriter(binaryType, output, allMappings).writeAll();
+			var binaryReader = new MappingFileReader(binaryType, ByteBuffer.wrap(output.toByteArray()));
+			binaryReader.parseMappings();
+			assertSame(binaryReader.getParsedMappings(new Version(1, 0, 0)),
+					binaryReader.getParsedMappings(new Version(1, 1, 0)));
+			assertEquals("x", binaryReader.getParsedMappings(new Version(1, 1, 0)).getClass("a.A").getMappedName());
+		});
+	}
+
+	@Test
+	void testWriteCompressed() {
+		var allMappings = new HashMap<Version, Mappings>();
+		for (int i = 0; i < 2; i++) {
+			allMappings.put(new Version(1, 2, i), mappingType.parse(getLines("""
+					java.lang.String -> a:
+					    charAt(int) -> %s
+					""".formatted(Character.toString('b' + i)))));
+		}
+
+		var textOutput = new ByteArrayOutputStream();
+		assertDoesNotThrow(new MappingFileWriter(mappingType, textOutput, allMappings).setCompressed(true)::writeAll);
+		assertEquals(0x1F, textOutput.toByteArray()[0]);
+		assertCompressedVersion(assertDoesNotThrow(
+				() -> new MappingFileReader(mappingType, new ByteArrayInputStream(textOutput.toByteArray()))));
+
+		var binaryType = new BinaryMapping();
+		var binaryOutput = new ByteArrayOutputStream();
+		assertDoesNotThrow(new MappingFileWriter(binaryType, binaryOutput, allMappings).setCompressed(true)::writeAll);
+		assertEquals(0x1F, binaryOutput.toByteArray()[0]);
+		assertCompressedVersion(assertDoesNotThrow(
+				() -> new MappingFileReader(binaryType, new ByteArrayInputStream(binaryOutput.toByteArray()))));
+	}
+
+	private void assertCompressedVersion(MappingFileReader reader) {
+		assertTrue(reader.keepOnlyVersion(new Version(1, 2, 1)));
+		reader.parseMappings();
+		var method = reader.getParsedMappings(new Version(1, 2, 1)).getClass("java.lang.String").getMethods()
+				.iterator().next();
+		assertEquals("c", method.getMappedName());
+	}
+
+	@Test
+	void testWriteParallel() {
+		var allMappings = new HashMap<Version, Mappings>();
+		for (int i = 0; i < 8; i++) {
+			allMappings.put(new Version(1, 2, i), mappingType.parse(getLines("""
+					java.lang.String -> a:
+					    charAt(int) -> %s
+					    length() -> l
+					""".formatted(Character.toString('b' + i % 5)))));
+		}
+
+		var sequentialOutput = new ByteArrayOutputStream();
+		assertDoesNotThrow(
+				new MappingFileWriter(mappingType, sequentialOutput, allMappings).setSnapshotInterval(3)::writeAll);
+		var parallelOutput = new ByteArrayOutputStream();
+		assertDoesNotThrow(new MappingFileWriter(mappingType, parallelOutput, allMappings).setSnapshotInterval(3)
+				.setParallel(true)::writeAll);
+		assertArrayEquals(sequentialOutput.toByteArray(), parallelOutput.toByteArray());
+
+		var binaryType = new BinaryMapping();
+		sequentialOutput.reset();
+		assertDoesNotThrow(new MappingFileWriter(binaryType, sequentialOutput, allMappings)::writeAll);
+		parallelOutput.reset();
+		assertDoesNotThrow(new MappingFileWriter(binaryType, parallelOutput, allMappings).setParallel(true)::writeAll);
+		assertArrayEquals(sequentialOutput.toByteArray(), parallelOutput.toByteArray());
+		assertThrows(IllegalArgumentException.class,
+				() -> new MappingFileWriter(binaryType, parallelOutput, allMappings).setSnapshotInterval(3));
+	}
+
 }
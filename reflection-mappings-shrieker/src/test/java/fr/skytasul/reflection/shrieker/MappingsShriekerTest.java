@@ -3,17 +3,36 @@ package fr.skytasul.reflection.shrieker;
 import static fr.skytasul.reflection.shrieker.TestUtils.getLines;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import fr.skytasul.reflection.UsageProfile;
 import fr.skytasul.reflection.Version;
 import fr.skytasul.reflection.mappings.Mappings;
+import fr.skytasul.reflection.mappings.files.MappingsCache;
 import fr.skytasul.reflection.mappings.files.ProguardMapping;
+import fr.skytasul.reflection.shrieker.MappingsShrieker.MappingsSupplier;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
 import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 class MappingsShriekerTest {
 
 	private static final ProguardMapping MAPPING_TYPE = new ProguardMapping(false);
 
+	@TempDir
+	Path cacheDirectory;
+
+	@TempDir
+	Path outputDirectory;
+
 	@Test
 	void testKeepEverything() {
 		var realMappings = parseMappings(Version.ZERO, """
@@ -72,6 +91,288 @@ class MappingsShriekerTest {
 				""", writeMappings(shrieker.getReducedMappings()));
 	}
 
+	@Test
+	void testOverloads() {
+		var realMappings = parseMappings(Version.ZERO, """
+				some.package.SomeClass -> abc:
+				    67:85:void method(int) -> a
+				    67:85:void method(java.lang.String) -> b
+				    67:85:void method(some.package.SomeClass) -> c
+				""");
+
+		var shrieker = new MappingsShrieker(MAPPING_TYPE, (mappingsToFill, version) -> {
+			var clazz = mappingsToFill.getClass("some.package.SomeClass");
+			clazz.getMethod("method", clazz);
+			clazz.getMethod("method", String.class);
+		});
+
+		assertDoesNotThrow(() -> {
+			shrieker.registerVersionMappings(Version.ZERO, realMappings);
+		});
+
+		assertEquals("""
+				# reflection-remapper | 0.0.0
+				some.package.SomeClass -> abc:
+				    method(some.package.SomeClass) -> c
+				    method(java.lang.String) -> b
+				""", writeMappings(shrieker.getReducedMappings()));
+	}
+
+	@Test
+	void testMissing() {
+		var realMappings = parseMappings(Version.ZERO, """
+				some.package.SomeClass -> abc:
+				    java.lang.String stringField -> a
+				    67:85:void voidMethod(int) -> a
+				""");
+
+		assertThrows(ClassNotFoundException.class, () -> new MappingsShrieker(MAPPING_TYPE,
+				(mappingsToFill, version) -> mappingsToFill.getClass("some.package.OtherClass"))
+				.registerVersionMappings(Version.ZERO, realMappings));
+		assertThrows(NoSuchFieldException.class, () -> new MappingsShrieker(MAPPING_TYPE,
+				(mappingsToFill, version) -> mappingsToFill.getClass("some.package.SomeClass").getField("otherField"))
+				.registerVersionMappings(Version.ZERO, realMappings));
+		assertThrows(NoSuchMethodException.class, () -> new MappingsShrieker(MAPPING_TYPE,
+				(mappingsToFill, version) -> mappingsToFill.getClass("some.package.SomeClass").getMethod("voidMethod"))
+				.registerVersionMappings(Version.ZERO, realMappings));
+	}
+
+	@Test
+	void testConcurrentVersions() {
+		var versionsMappings = Map.of(
+				new Version(1, 20, 0), parseMappings(Version.ZERO, """
+						some.package.SomeClass -> abc:
+						    java.lang.String stringField -> a
+						"""),
+				new Version(1, 21, 0), parseMappings(Version.ZERO, """
+						some.package.SomeClass -> abd:
+						    java.lang.String stringField -> b
+						"""),
+				new Version(1, 22, 0), parseMappings(Version.ZERO, """
+						some.package.OtherClass -> abe:
+						"""));
+
+		var shrieker = new MappingsShrieker(MAPPING_TYPE, (mappingsToFill, version) -> {
+			mappingsToFill.getClass("some.package.SomeClass").getField("stringField");
+		});
+
+		var executor = Executors.newFixedThreadPool(2);
+		var failures = shrieker.registerVersionsMappings(List.of(new Version(1, 20, 0), new Version(1, 21, 0),
+				new Version(1, 22, 0), new Version(1, 23, 0)), version -> {
+					var mappings = versionsMappings.get(version);
+					if (mappings == null)
+						throw new IOException("No mappings for " + version);
+					return mappings;
+				}, executor);
+		executor.shutdown();
+
+		assertEquals(List.of(new Version(1, 22, 0), new Version(1, 23, 0)), List.copyOf(failures.keySet()));
+		assertInstanceOf(ClassNotFoundException.class, failures.get(new Version(1, 22, 0)));
+		assertInstanceOf(IOException.class, failures.get(new Version(1, 23, 0)));
+
+		assertEquals("""
+				# reflection-remapper | 1.20.0
+				some.package.SomeClass -> abc:
+				    stringField -> a
+				# reflection-remapper | 1.21.0
+				some.package.SomeClass -> abd:
+				    stringField -> b
+				""", writeMappings(shrieker.getReducedMappings()));
+	}
+
+	@Test
+	void testConcurrentVersionsError() {
+		var mappings = parseMappings(Version.ZERO, """
+				some.package.SomeClass -> abc:
+				    java.lang.String stringField -> a
+				""");
+
+		var shrieker = new MappingsShrieker(MAPPING_TYPE, (mappingsToFill, version) -> {
+			if (version.minor() == 21)
+				throw new NoClassDefFoundError("net/minecraft/Missing");
+			mappingsToFill.getClass("some.package.SomeClass").getField("stringField");
+			if (version.minor() == 22)
+				mappingsToFill.getClass("some.package.MissingClass");
+		});
+
+		var failures = shrieker.registerVersionsMappings(
+				List.of(new Version(1, 20, 0), new Version(1, 21, 0), new Version(1, 22, 0)), version -> mappings);
+
+		assertEquals(List.of(new Version(1, 21, 0), new Version(1, 22, 0)), List.copyOf(failures.keySet()));
+		assertInstanceOf(NoClassDefFoundError.class, failures.get(new Version(1, 21, 0)));
+		assertInstanceOf(ClassNotFoundException.class, failures.get(new Version(1, 22, 0)));
+		assertEquals(List.of(new Version(1, 20, 0)), List.copyOf(shrieker.getReducedMappings().keySet()));
+	}
+
+	@Test
+	void testCache() throws ReflectiveOperationException, IOException {
+		var realMappings = parseMappings(Version.ZERO, """
+				some.package.SomeClass -> abc:
+				    java.lang.String stringField -> a
+				    java.lang.String otherField -> b
+				""");
+
+		var loads = new AtomicInteger();
+		var inputKey = new AtomicReference<>("input");
+		var supplier = new MappingsSupplier() {
+			@Override
+			public Mappings getMappings(Version version) {
+				loads.incrementAndGet();
+				return realMappings;
+			}
+
+			@Override
+			public String getInputKey(Version version) {
+				return inputKey.get();
+			}
+		};
+		var field = new AtomicReference<>("stringField");
+		MappingsShrieker.ReflectionInitializer initializer = (mappingsToFill, version) -> {
+			mappingsToFill.getClass("some.package.SomeClass").getField(field.get());
+		};
+		var cache = new MappingsCache(cacheDirectory);
+
+		var shrieker = new MappingsShrieker(MAPPING_TYPE, initializer).setCache(cache);
+		shrieker.registerVersionMappings(Version.ZERO, supplier);
+		assertEquals(1, loads.get());
+
+		// new run with the same inputs
+		var cachedShrieker = new MappingsShrieker(MAPPING_TYPE, initializer).setCache(cache);
+		cachedShrieker.registerVersionMappings(Version.ZERO, supplier);
+		assertEquals(1, loads.get());
+		assertEquals(writeMappings(shrieker.getReducedMappings()), writeMappings(cachedShrieker.getReducedMappings()));
+
+		field.set("otherField");
+		new MappingsShrieker(MAPPING_TYPE, initializer).setCache(cache).registerVersionMappings(Version.ZERO, supplier);
+		assertEquals(2, loads.get());
+
+		inputKey.set("modified input");
+		new MappingsShrieker(MAPPING_TYPE, initializer).setCache(cache).registerVersionMappings(Version.ZERO, supplier);
+		assertEquals(3, loads.get());
+
+		new MappingsShrieker(MAPPING_TYPE, initializer).registerVersionMappings(Version.ZERO, supplier);
+		assertEquals(4, loads.get());
+	}
+
+	@Test
+	void testCacheOrder() throws ReflectiveOperationException, IOException {
+		var realMappings = parseMappings(Version.ZERO, """
+				some.package.ColdClass -> abc:
+				    java.lang.String field -> a
+				some.package.HotClass -> abd:
+				    java.lang.String coldField -> a
+				    java.lang.String hotField -> b
+				""");
+		var supplier = new MappingsSupplier() {
+			@Override
+			public Mappings getMappings(Version version) {
+				return realMappings;
+			}
+
+			@Override
+			public String getInputKey(Version version) {
+				return "input";
+			}
+		};
+		MappingsShrieker.ReflectionInitializer initializer = (mappingsToFill, version) -> {
+			var hotClass = mappingsToFill.getClass("some.package.HotClass");
+			hotClass.getField("coldField");
+			hotClass.getField("hotField");
+			mappingsToFill.getClass("some.package.ColdClass").getField("field");
+		};
+		var profile = new UsageProfile();
+		profile.hit(UsageProfile.getClassKey("some.package.HotClass"));
+		profile.hit(UsageProfile.getFieldKey("some.package.HotClass", "hotField"));
+
+		for (var usageProfile : new UsageProfile[] {null, profile}) {
+			var cache = new MappingsCache(Files.createTempDirectory(cacheDirectory, "cache"));
+
+			var shrieker = new MappingsShrieker(MAPPING_TYPE, initializer).setCache(cache).setUsageProfile(usageProfile);
+			shrieker.registerVersionMappings(Version.ZERO, supplier);
+			var cachedShrieker =
+					new MappingsShrieker(MAPPING_TYPE, initializer).setCache(cache).setUsageProfile(usageProfile);
+			cachedShrieker.registerVersionMappings(Version.ZERO, supplier);
+
+			var written = writeMappings(shrieker.getReducedMappings());
+			assertEquals(written, writeMappings(cachedShrieker.getReducedMappings()));
+			assertEquals(usageProfile == null ? """
+					# reflection-remapper | 0.0.0
+					some.package.ColdClass -> abc:
+					    field -> a
+					some.package.HotClass -> abd:
+					    coldField -> a
+					    hotField -> b
+					""" : """
+					# reflection-remapper | 0.0.0
+					some.package.HotClass -> abd:
+					    hotField -> b
+					    coldField -> a
+					some.package.ColdClass -> abc:
+					    field -> a
+					""", written);
+		}
+	}
+
+	@Test
+	void testUsageProfile() throws ReflectiveOperationException, IOException {
+		var realMappings = parseMappings(Version.ZERO, """
+				some.package.SomeClass -> abc:
+				    java.lang.String coldField -> a
+				    java.lang.String hotField -> b
+				    67:85:void coldMethod(int) -> c
+				    67:85:void hotMethod(int) -> d
+				some.package.ColdClass -> abd:
+				    java.lang.String field -> a
+				""");
+		MappingsShrieker.ReflectionInitializer initializer = (mappingsToFill, version) -> {
+			mappingsToFill.getClass("some.package.ColdClass").getField("field");
+			var clazz = mappingsToFill.getClass("some.package.SomeClass");
+			clazz.getField("coldField");
+			clazz.getField("hotField");
+			clazz.getMethod("coldMethod", int.class);
+			clazz.getMethod("hotMethod", int.class);
+		};
+
+		var profile = new UsageProfile();
+		profile.hit(UsageProfile.getClassKey("some.package.SomeClass"));
+		profile.hit(UsageProfile.getFieldKey("some.package.SomeClass", "hotField"));
+		profile.hit(UsageProfile.getMethodKey("some.package.SomeClass", "hotMethod", int.class));
+
+		var shrieker = new MappingsShrieker(MAPPING_TYPE, initializer).setUsageProfile(profile);
+		shrieker.registerVersionMappings(Version.ZERO, realMappings);
+		assertEquals("""
+				# reflection-remapper | 0.0.0
+				some.package.SomeClass -> abc:
+				    hotField -> b
+				    coldField -> a
+				    hotMethod(int) -> d
+				    coldMethod(int) -> c
+				some.package.ColdClass -> abd:
+				    field -> a
+				""", writeMappings(shrieker.getReducedMappings()));
+
+		var corePath = outputDirectory.resolve("core.txt");
+		var remainderPath = outputDirectory.resolve("remainder.txt");
+		shrieker.writeMappingsFiles(corePath, remainderPath);
+		assertEquals("""
+				# reflection-remapper | 0.0.0
+				some.package.SomeClass -> abc:
+				    hotField -> b
+				    hotMethod(int) -> d
+				""", Files.readString(corePath));
+		assertEquals("""
+				# reflection-remapper | 0.0.0
+				some.package.SomeClass -> abc:
+				    coldField -> a
+				    coldMethod(int) -> c
+				some.package.ColdClass -> abd:
+				    field -> a
+				""", Files.readString(remainderPath));
+
+		var unprofiledShrieker = new MappingsShrieker(MAPPING_TYPE, initializer);
+		assertThrows(IllegalStateException.class, () -> unprofiledShrieker.writeMappingsFiles(corePath, remainderPath));
+	}
+
 	static Mappings parseMappings(Version version, String lines) {
 		return MAPPING_TYPE.parse(getLines(lines));
 	}
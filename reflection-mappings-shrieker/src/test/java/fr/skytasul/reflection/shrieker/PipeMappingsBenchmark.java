@@ -0,0 +1,71 @@
+package fr.skytasul.reflection.shrieker;
+
+import static fr.skytasul.reflection.shrieker.TestUtils.bestTime;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import fr.skytasul.reflection.mappings.Mappings;
+import fr.skytasul.reflection.mappings.files.ProguardMapping;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures the construction of {@link PipeMappings#PipeMappings(Mappings, Mappings)} over full-size
+ * synthetic mappings.
+ */
+@Tag("benchmark")
+class PipeMappingsBenchmark {
+
+	private static final int CLASSES = 30000;
+	private static final int FIELDS = 10;
+	private static final int METHODS = 20;
+
+	private static final int WARMUP_RUNS = 3;
+	private static final int MEASURED_RUNS = 8;
+
+	@Test
+	void benchmarkPipe() {
+		var from = new ArrayList<String>(CLASSES * (1 + FIELDS + METHODS));
+		var to = new ArrayList<String>(CLASSES * (1 + FIELDS + METHODS));
+		generateMappings(from, to);
+
+		var mappingType = new ProguardMapping(true);
+		var fromMappings = mappingType.parse(from);
+		var toMappings = mappingType.parse(to);
+
+		long best = bestTime(WARMUP_RUNS, MEASURED_RUNS, () -> {
+			assertEquals(CLASSES, new PipeMappings(fromMappings, toMappings).getClasses().size());
+		});
+		System.out.printf("PipeMappings, %d classes: best of %d runs %.1f ms%n", CLASSES, MEASURED_RUNS, best / 1e6);
+	}
+
+	/**
+	 * Generates two chained mappings sharing a middle namespace. Every method takes a parameter of
+	 * another class, so all of them go through the parameter type rewriting.
+	 */
+	private static void generateMappings(List<String> from, List<String> to) {
+		for (int c = 0; c < CLASSES; c++) {
+			String middle = middleName(c);
+			from.add(className(c) + " -> " + middle + ":");
+			to.add(middle + " -> org.bukkit.pkg" + (c % 50) + ".Spigot" + c + ":");
+			for (int f = 0; f < FIELDS; f++) {
+				from.add("    int field" + f + " -> f" + f);
+				to.add("    f" + f + " -> sf" + f);
+			}
+			for (int m = 0; m < METHODS; m++) {
+				int parameter = (c + m) % CLASSES;
+				from.add("    void method" + m + "(" + className(parameter) + ",int) -> m" + m);
+				to.add("    void m" + m + "(" + middleName(parameter) + ",int) -> sm" + m);
+			}
+		}
+	}
+
+	private static String className(int index) {
+		return "net.minecraft.pkg" + (index % 50) + ".Class" + index;
+	}
+
+	private static String middleName(int index) {
+		return "c" + index;
+	}
+
+}
@@ -73,4 +73,28 @@ class PipeMappingsTest {
 				""", writeMappings(MAPPING_TYPE, pipe));
 	}
 
+	@Test
+	void testOverloadsAndArrays() {
+		var mappingsA = parseMappings(MAPPING_TYPE, Version.ZERO, """
+				some.class.A -> aaa:
+				    67:85:void method(some.class.A) -> a
+				    67:85:void method(some.class.A[]) -> a
+				    67:85:void method(int) -> a
+				""");
+		var mappingsB = parseMappings(MAPPING_TYPE, Version.ZERO, """
+				aaa -> another.X:
+				    void a(aaa[]) -> arrayMethod
+				    void a(aaa) -> objectMethod
+				    void a(int) -> intMethod
+				""");
+
+		var pipe = new PipeMappings(mappingsA, mappingsB);
+		assertEquals("""
+				some.class.A -> another.X:
+				    method(some.class.A) -> objectMethod
+				    method(some.class.A[]) -> arrayMethod
+				    method(int) -> intMethod
+				""", writeMappings(MAPPING_TYPE, pipe));
+	}
+
 }
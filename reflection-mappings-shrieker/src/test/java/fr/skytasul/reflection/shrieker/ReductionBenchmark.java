@@ -0,0 +1,68 @@
+package fr.skytasul.reflection.shrieker;
+
+import static fr.skytasul.reflection.shrieker.TestUtils.bestTime;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import fr.skytasul.reflection.Version;
+import fr.skytasul.reflection.mappings.Mappings;
+import fr.skytasul.reflection.mappings.files.ProguardMapping;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Measures {@link MappingsShrieker#registerVersionMappings(Version, Mappings)} over a full-size
+ * synthetic mapping.
+ */
+@Tag("benchmark")
+class ReductionBenchmark {
+
+	private static final int CLASSES = 30000;
+	private static final int FIELDS = 10;
+	private static final int METHODS = 20;
+	private static final int ACCESSED_CLASSES_STEP = 100;
+	private static final int ACCESSED_MEMBERS = 5;
+
+	private static final int WARMUP_RUNS = 3;
+	private static final int MEASURED_RUNS = 5;
+
+	@Test
+	void benchmarkRegisterVersionMappings() {
+		var mappingType = new ProguardMapping(true);
+		var mappings = mappingType.parse(generateMappings());
+
+		var shrieker = new MappingsShrieker(mappingType, (mappingsToFill, version) -> {
+			for (int c = 0; c < CLASSES; c += ACCESSED_CLASSES_STEP) {
+				var clazz = mappingsToFill.getClass(className(c));
+				for (int i = 0; i < ACCESSED_MEMBERS; i++) {
+					clazz.getField("field" + i);
+					clazz.getMethod("method" + (i * 3), int.class, String.class);
+				}
+			}
+		});
+
+		long best = bestTime(WARMUP_RUNS, MEASURED_RUNS, () -> shrieker.registerVersionMappings(Version.ZERO, mappings));
+		System.out.printf("registerVersionMappings, %d classes: best of %d runs %.1f ms%n", CLASSES, MEASURED_RUNS,
+				best / 1e6);
+
+		assertEquals(CLASSES / ACCESSED_CLASSES_STEP,
+				shrieker.getReducedMappings().get(Version.ZERO).getClasses().size());
+	}
+
+	private static List<String> generateMappings() {
+		var lines = new ArrayList<String>(CLASSES * (1 + FIELDS + METHODS));
+		for (int c = 0; c < CLASSES; c++) {
+			lines.add(className(c) + " -> " + Integer.toString(c, 36) + ":");
+			for (int f = 0; f < FIELDS; f++)
+				lines.add("    int field" + f + " -> f" + f);
+			for (int m = 0; m < METHODS; m++)
+				lines.add("    void method" + m + "(int,java.lang.String) -> m" + m);
+		}
+		return lines;
+	}
+
+	private static String className(int index) {
+		return "net.minecraft.pkg" + (index % 50) + ".Class" + index;
+	}
+
+}
@@ -5,6 +5,7 @@ import fr.skytasul.reflection.Version;
 import fr.skytasul.reflection.mappings.Mappings;
 import fr.skytasul.reflection.mappings.files.MappingType;
 import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.function.Executable;
 import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.StringWriter;
@@ -38,4 +39,27 @@ public class TestUtils {
 		});
 	}
 
+	/**
+	 * Runs an operation a few times to let the JIT compile it, then measures it.
+	 *
+	 * @param warmupRuns number of unmeasured runs
+	 * @param measuredRuns number of measured runs
+	 * @param operation operation to measure
+	 * @return the best time of the measured runs, in nanoseconds
+	 */
+	public static long bestTime(int warmupRuns, int measuredRuns, Executable operation) {
+		return assertDoesNotThrow(() -> {
+			for (int i = 0; i < warmupRuns; i++)
+				operation.execute();
+
+			long best = Long.MAX_VALUE;
+			for (int i = 0; i < measuredRuns; i++) {
+				long start = System.nanoTime();
+				operation.execute();
+				best = Math.min(best, System.nanoTime() - start);
+			}
+			return best;
+		});
+	}
+
 }
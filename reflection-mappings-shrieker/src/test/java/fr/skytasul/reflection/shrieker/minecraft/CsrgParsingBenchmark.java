@@ -0,0 +1,59 @@
+package fr.skytasul.reflection.shrieker.minecraft;
+
+import static fr.skytasul.reflection.shrieker.TestUtils.bestTime;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import fr.skytasul.reflection.mappings.Mappings;
+import fr.skytasul.reflection.mappings.files.StringPool;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.function.BiFunction;
+
+/**
+ * Measures the parse throughput of the bundled Spigot CSRG files, read through the streaming path
+ * used by {@link MinecraftMappingsProvider}. The files are loaded in memory first so that only
+ * decoding, tokenizing and parsing are measured.
+ */
+@Tag("benchmark")
+class CsrgParsingBenchmark {
+
+	private static final int WARMUP_RUNS = 20;
+	private static final int MEASURED_RUNS = 20;
+
+	@Test
+	void benchmarkClassMappings() {
+		var mappingType = new SpigotClassMapping(true);
+		benchmark("/bukkit-1.17.1-cl.csrg", (lines, stringPool) -> mappingType.parse(lines, stringPool));
+	}
+
+	@Test
+	void benchmarkMemberMappings() {
+		var mappingType = new SpigotMemberMapping(true);
+		benchmark("/bukkit-1.17.1-members.csrg", (lines, stringPool) -> mappingType.parse(lines, stringPool));
+	}
+
+	private void benchmark(String resource, BiFunction<Iterable<String>, StringPool, Mappings> parser) {
+		byte[] content = assertDoesNotThrow(() -> {
+			try (var input = getClass().getResourceAsStream(resource)) {
+				return input.readAllBytes();
+			}
+		});
+		long lineCount = new String(content, StandardCharsets.UTF_8).lines().count();
+
+		long best = bestTime(WARMUP_RUNS, MEASURED_RUNS, () -> {
+			try (var reader = new BufferedReader(
+					new InputStreamReader(new ByteArrayInputStream(content), StandardCharsets.UTF_8))) {
+				assertFalse(parser.apply(reader.lines()::iterator, new StringPool()).getClasses().isEmpty());
+			}
+		});
+
+		double seconds = best / 1e9;
+		System.out.printf("%s: best of %d runs %.2f ms, %.0f lines/s, %.1f MB/s%n", resource, MEASURED_RUNS,
+				best / 1e6, lineCount / seconds, content.length / 1e6 / seconds);
+	}
+
+}
@@ -0,0 +1,49 @@
+package fr.skytasul.reflection.shrieker.minecraft;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+class CsrgTokenizerTest {
+
+	@Test
+	void testColumns() {
+		var tokenizer = new CsrgTokenizer();
+		assertTrue(tokenizer.reset("net/minecraft/world/entity/Entity a (FF)V playSound"));
+		assertTrue(tokenizer.next());
+		assertEquals("net.minecraft.world.entity.Entity", tokenizer.binaryName());
+		assertTrue(tokenizer.next());
+		assertEquals("a", tokenizer.token());
+		assertTrue(tokenizer.next());
+		assertEquals("(FF)V", tokenizer.token());
+		assertTrue(tokenizer.nextLast());
+		assertEquals("playSound", tokenizer.token());
+		assertFalse(tokenizer.next());
+	}
+
+	@Test
+	void testNotLastColumn() {
+		var tokenizer = new CsrgTokenizer();
+		tokenizer.reset("a b c");
+		tokenizer.next();
+		assertFalse(tokenizer.nextLast());
+	}
+
+	@Test
+	void testTrailingSpaces() {
+		var tokenizer = new CsrgTokenizer();
+		assertTrue(tokenizer.reset("net/minecraft/world/entity/Entity a  "));
+		assertTrue(tokenizer.next());
+		assertEquals("net.minecraft.world.entity.Entity", tokenizer.binaryName());
+		assertTrue(tokenizer.nextLast());
+		assertEquals("a", tokenizer.token());
+		assertFalse(tokenizer.next());
+	}
+
+	@Test
+	void testComment() {
+		assertFalse(new CsrgTokenizer().reset("# comment"));
+	}
+
+}
@@ -34,6 +34,26 @@ class SpigotMappingsMergerTest {
 				""", writeMappings(MAPPING_TYPE, merged));
 	}
 
+	@Test
+	void testClassParameters() {
+		var classMapping = new SpigotClassMapping(true).parse(getLines("""
+				p net/minecraft/EnumChatFormat
+				ab net/minecraft/SharedConstants
+				"""));
+		var membersMapping = new SpigotMemberMapping(true).parse(getLines("""
+				net/minecraft/SharedConstants a (Lnet/minecraft/EnumChatFormat;)V format
+				net/minecraft/SharedConstants a ([[Lnet/minecraft/EnumChatFormat;I)V formatAll
+				"""));
+
+		var merged = SpigotMappingsMerger.merge(classMapping, membersMapping);
+		assertEquals("""
+				ab -> net.minecraft.SharedConstants:
+				    a(p) -> format
+				    a(p[][],int) -> formatAll
+				p -> net.minecraft.EnumChatFormat:
+				""", writeMappings(MAPPING_TYPE, merged));
+	}
+
 	@Test
 	void testParseSpigotMappings() {
 		assertDoesNotThrow(() -> {
@@ -4,6 +4,12 @@ import static fr.skytasul.reflection.shrieker.TestUtils.getLines;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import fr.skytasul.reflection.mappings.Mappings.ClassMapping.ClassArrayType;
+import fr.skytasul.reflection.mappings.files.StringPool;
+import fr.skytasul.reflection.mappings.files.TypeResolver;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import java.io.BufferedReader;
@@ -63,6 +69,38 @@ class SpigotMemberMappingTest {
 				reader.parseParameters("[Ljava/lang/String;[I"));
 	}
 
+	@Test
+	void testParseMultiDimensionalArrayParameters() {
+		assertArrayEquals(new Type[] {int[][].class, String[][].class},
+				reader.parseParameters("[[I[[Ljava/lang/String;"));
+	}
+
+	@Test
+	void testParseUnknownParameters() {
+		var typeResolver = new TypeResolver();
+		var types = reader.parseParameters("Lnet/minecraft/sounds/SoundEffect;[Lnet/minecraft/sounds/SoundEffect;",
+				typeResolver);
+		assertEquals("net.minecraft.sounds.SoundEffect", types[0].getTypeName());
+		assertEquals("net.minecraft.sounds.SoundEffect[]", types[1].getTypeName());
+		assertSame(types[0], ((ClassArrayType) types[1]).componentMapping());
+		assertSame(types[0], reader.parseParameters("Lnet/minecraft/sounds/SoundEffect;", typeResolver)[0]);
+	}
+
+	@Test
+	void testParseLazyParameters() {
+		var types = reader.parseParameters("Ljava/lang/String;",
+				new TypeResolver(getClass().getClassLoader(), true));
+		assertTrue(types[0] instanceof TypeResolver.LazyType);
+		assertDoesNotThrow(() -> assertEquals(String.class, ((TypeResolver.LazyType) types[0]).getClassInstance()));
+	}
+
+	@Test
+	void testParseIncorrectParameters() {
+		assertThrows(IllegalArgumentException.class, () -> reader.parseParameters("Ljava/lang/String"));
+		assertThrows(IllegalArgumentException.class, () -> reader.parseParameters("["));
+		assertThrows(IllegalArgumentException.class, () -> reader.parseParameters("X"));
+	}
+
 	@Test
 	void testParseSpigotMappings() {
 		assertDoesNotThrow(() -> {
@@ -75,4 +113,29 @@ class SpigotMemberMappingTest {
 		});
 	}
 
+	@Test
+	void testParseStreamedSpigotMappings() {
+		assertDoesNotThrow(() -> {
+			try (var inputReader =
+					new BufferedReader(
+							new InputStreamReader(getClass().getResourceAsStream("/bukkit-1.17.1-members.csrg")))) {
+				var mappings = reader.parse(inputReader.lines()::iterator, new StringPool());
+				var entity = mappings.getClasses().stream()
+						.filter(x -> x.getOriginalName().equals("net.minecraft.world.entity.Entity")).findAny();
+				assertTrue(entity.isPresent());
+				assertTrue(entity.get().getMethods().size() > 1);
+			}
+		});
+	}
+
+	@Test
+	void testParseIncorrectLine() {
+		assertThrows(IllegalArgumentException.class, () -> reader.parse(getLines("""
+				net/minecraft/world/entity/Entity a (FF)V
+				""")));
+		assertThrows(IllegalArgumentException.class, () -> reader.parse(getLines("""
+				net/minecraft/world/entity/Entity a FF)V playSound
+				""")));
+	}
+
 }
@@ -1,55 +1,176 @@
 package fr.skytasul.reflection;
 
 import fr.skytasul.reflection.mappings.Mappings;
+import fr.skytasul.reflection.mappings.MappingsIndex;
 import fr.skytasul.reflection.mappings.Mappings.ClassMapping;
 import fr.skytasul.reflection.mappings.Mappings.ClassMapping.ClassArrayType;
 import fr.skytasul.reflection.mappings.Mappings.ClassMapping.FieldMapping;
 import fr.skytasul.reflection.mappings.Mappings.ClassMapping.MethodMapping;
+import fr.skytasul.reflection.mappings.files.TypeResolver.LazyType;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Type;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
 
 public class MappedReflectionAccessor implements ReflectionAccessor {
 
 	private final @NotNull Mappings mappings;
 
-	private final @NotNull Map<String, ClassHandle> classes = new HashMap<>();
+	private final @NotNull Map<String, ClassHandle> classes = new ConcurrentHashMap<>();
+
+	// mappings without an indexed lookup are resolved through the index of this accessor instead
+	private final boolean lookupInIndex;
+	private volatile @Nullable MappingsIndex index;
+
+	private volatile @Nullable UsageProfile profile;
+
+	private volatile @Nullable Supplier<? extends Mappings> fallbackSupplier;
+	private volatile @Nullable Mappings fallbackMappings;
 
 	public MappedReflectionAccessor(@NotNull Mappings mappings) {
 		this.mappings = mappings;
+		this.lookupInIndex = !mappings.hasIndexedLookup();
+	}
+
+	/**
+	 * Makes this accessor count in a profile how many times each class is resolved, and each field and
+	 * method is resolved and used. The profile can then be given to the mappings shrieker, to shrink
+	 * the mappings to what is actually used.
+	 *
+	 * @param profile profile to count the hits in, or <code>null</code> to stop counting
+	 * @return this accessor
+	 */
+	public @NotNull MappedReflectionAccessor setUsageProfile(@Nullable UsageProfile profile) {
+		this.profile = profile;
+		return this;
+	}
 
-		for (var classMapping : mappings.getClasses()) {
-			classes.put(classMapping.getOriginalName(), new ClassHandle(classMapping));
+	/**
+	 * Sets mappings in which the classes and members missing from the mappings of this accessor are
+	 * looked up. They are only supplied the first time something is missing: this makes it possible to
+	 * load a small core of mappings at startup, and the rarely used remainder only when needed. The
+	 * supplier is called at most once, even when lookups miss concurrently.
+	 *
+	 * @param fallbackSupplier supplies the fallback mappings, or <code>null</code> to have none
+	 * @return this accessor
+	 */
+	public @NotNull MappedReflectionAccessor setFallbackMappings(@Nullable Supplier<? extends Mappings> fallbackSupplier) {
+		this.fallbackSupplier = fallbackSupplier;
+		this.fallbackMappings = null;
+		return this;
+	}
+
+	private @Nullable Mappings getFallbackMappings() {
+		var fallback = fallbackMappings;
+		if (fallback == null && fallbackSupplier != null) {
+			synchronized (this) {
+				fallback = fallbackMappings;
+				var supplier = fallbackSupplier;
+				if (fallback == null && supplier != null)
+					fallbackMappings = fallback = supplier.get();
+			}
 		}
+		return fallback;
+	}
+
+	/**
+	 * Gets an index over the mappings of this accessor, built on first use. It can notably be used to
+	 * find the original names of classes and members from their mapped names, as found at runtime.
+	 *
+	 * @return the index of the mappings
+	 */
+	public @NotNull MappingsIndex getIndex() {
+		var currentIndex = index;
+		if (currentIndex == null)
+			index = currentIndex = mappings.createIndex();
+		return currentIndex;
+	}
+
+	/**
+	 * Finds the original name of a class from its runtime name.
+	 *
+	 * @param mappedName mapped name of the class
+	 * @return the original name of the class, or <code>null</code> if it is not in the mappings
+	 */
+	public @Nullable String getOriginalClassName(@NotNull String mappedName) {
+		var classMapping = getIndex().getClassFromMapped(mappedName);
+		return classMapping == null ? null : classMapping.getOriginalName();
 	}
 
 	@Override
 	public @NotNull ClassHandle getClass(@NotNull String original) throws ClassNotFoundException {
-		if (classes.containsKey(original))
-			return classes.get(original);
+		var handle = getHandle(original);
+		handle.hit();
+		return handle;
+	}
+
+	// not counted in the usage profile, for the lookups made by this accessor itself
+	private @NotNull ClassHandle getHandle(@NotNull String original) throws ClassNotFoundException {
+		// handles are created lazily so that large mappings are not entirely materialized
+		var handle = classes.computeIfAbsent(original, this::createHandle);
+		if (handle == null)
+			throw new ClassNotFoundException(original);
+		return handle;
+	}
+
+	private @Nullable ClassHandle createHandle(@NotNull String original) {
+		var classMapping = lookupInIndex ? getIndex().getClass(original) : mappings.getClass(original);
+		if (classMapping != null)
+			return new ClassHandle(classMapping, false);
+		if (getFallbackMappings() != null) {
+			classMapping = getFallbackMappings().getClass(original);
+			if (classMapping != null)
+				return new ClassHandle(classMapping, true);
+		}
+		return null;
+	}
+
+	private abstract class ProfiledHandle {
+
+		// kept so that the key of hot handles is not looked up in the profile again
+		private @Nullable ProfileCounter counter;
+
+		protected abstract @NotNull String getProfileKey();
+
+		protected void hit() {
+			var currentProfile = profile;
+			if (currentProfile == null)
+				return;
+			var currentCounter = counter;
+			if (currentCounter == null || currentCounter.profile != currentProfile)
+				counter = currentCounter = new ProfileCounter(currentProfile, currentProfile.getCounter(getProfileKey()));
+			currentCounter.counter.increment();
+		}
 
-		throw new ClassNotFoundException(original);
+	}
+
+	// a single immutable object, so that concurrent hits never see a counter of another profile
+	private record ProfileCounter(@NotNull UsageProfile profile, @NotNull LongAdder counter) {
 	}
 
 	// load classes first, then fields and methods
-	private class ClassHandle implements ClassAccessor {
+	private class ClassHandle extends ProfiledHandle implements ClassAccessor {
 
 		private final @NotNull ClassMapping mapping;
+		private final boolean fallback;
 
 		private final List<FieldHandle> fields;
 		private final List<MethodHandle> methods;
 
 		private @Nullable ClassArrayType cachedArrayType;
 		private @Nullable Class<?> cachedClass;
+		private @Nullable ClassHandle fallbackHandle;
 
-		public ClassHandle(@NotNull ClassMapping mapping) {
+		public ClassHandle(@NotNull ClassMapping mapping, boolean fallback) {
 			this.mapping = mapping;
+			this.fallback = fallback;
 
 			this.fields = mapping.getFields().stream().map(FieldHandle::new).toList();
 			this.methods = mapping.getMethods().stream().map(MethodHandle::new).toList();
@@ -60,6 +181,24 @@ public class MappedReflectionAccessor implements ReflectionAccessor {
 			return mapping.getOriginalName();
 		}
 
+		@Override
+		protected @NotNull String getProfileKey() {
+			return UsageProfile.getClassKey(mapping.getOriginalName());
+		}
+
+		/**
+		 * @return the handle of the same class in the fallback mappings, which has the members missing
+		 *         from this one
+		 */
+		private @Nullable ClassHandle getFallbackHandle() {
+			if (fallbackHandle == null && !fallback && getFallbackMappings() != null) {
+				var fallbackClass = getFallbackMappings().getClass(mapping.getOriginalName());
+				if (fallbackClass != null)
+					fallbackHandle = new ClassHandle(fallbackClass, true);
+			}
+			return fallbackHandle;
+		}
+
 		@Override
 		public @NotNull Type getArrayType() {
 			if (cachedArrayType == null)
@@ -76,18 +215,28 @@ public class MappedReflectionAccessor implements ReflectionAccessor {
 
 		@Override
 		public @NotNull FieldHandle getField(@NotNull String original) throws NoSuchFieldException {
-			for (FieldHandle field : fields)
-				if (field.mapping.getOriginalName().equals(original))
+			for (FieldHandle field : fields) {
+				if (field.mapping.getOriginalName().equals(original)) {
+					field.hit();
 					return field;
+				}
+			}
+			if (getFallbackHandle() != null)
+				return getFallbackHandle().getField(original);
 			throw new NoSuchFieldException(original);
 		}
 
 		@Override
 		public @NotNull MethodHandle getMethod(@NotNull String original, @NotNull Type... parameterTypes)
 				throws NoSuchMethodException {
-			for (MethodHandle method : methods)
-				if (method.mapping.getOriginalName().equals(original) && method.mapping.isSameParameters(parameterTypes))
+			for (MethodHandle method : methods) {
+				if (method.mapping.getOriginalName().equals(original) && method.mapping.isSameParameters(parameterTypes)) {
+					method.hit();
 					return method;
+				}
+			}
+			if (getFallbackHandle() != null)
+				return getFallbackHandle().getMethod(original, parameterTypes);
 			throw new NoSuchMethodException(Mappings.getStringForMethod(original, parameterTypes));
 		}
 
@@ -98,7 +247,7 @@ public class MappedReflectionAccessor implements ReflectionAccessor {
 			return new TransparentReflectionAccessor.TransparentConstructor(constructor);
 		}
 
-		private class FieldHandle implements FieldAccessor {
+		private class FieldHandle extends ProfiledHandle implements FieldAccessor {
 
 			private final @NotNull FieldMapping mapping;
 
@@ -108,6 +257,11 @@ public class MappedReflectionAccessor implements ReflectionAccessor {
 				this.mapping = mapping;
 			}
 
+			@Override
+			protected @NotNull String getProfileKey() {
+				return UsageProfile.getFieldKey(ClassHandle.this.mapping.getOriginalName(), mapping.getOriginalName());
+			}
+
 			@Override
 			public @NotNull Field getFieldInstance() throws NoSuchFieldException, SecurityException, ClassNotFoundException {
 				if (cachedField == null) {
@@ -120,6 +274,7 @@ public class MappedReflectionAccessor implements ReflectionAccessor {
 			@Override
 			public Object get(@Nullable Object instance) throws IllegalArgumentException, IllegalAccessException,
 					NoSuchFieldException, SecurityException, ClassNotFoundException {
+				hit();
 				return getFieldInstance().get(instance);
 			}
 
@@ -127,12 +282,13 @@ public class MappedReflectionAccessor implements ReflectionAccessor {
 			public void set(@Nullable Object instance, Object value)
 					throws IllegalArgumentException, IllegalAccessException, NoSuchFieldException, SecurityException,
 					ClassNotFoundException {
+				hit();
 				getFieldInstance().set(instance, value);
 			}
 
 		}
 
-		private class MethodHandle implements MethodAccessor {
+		private class MethodHandle extends ProfiledHandle implements MethodAccessor {
 
 			private final @NotNull MethodMapping mapping;
 
@@ -142,6 +298,12 @@ public class MappedReflectionAccessor implements ReflectionAccessor {
 				this.mapping = mapping;
 			}
 
+			@Override
+			protected @NotNull String getProfileKey() {
+				return UsageProfile.getMethodKey(ClassHandle.this.mapping.getOriginalName(), mapping.getOriginalName(),
+						mapping.getParameterTypes());
+			}
+
 			@Override
 			public @NotNull Method getMethodInstance()
 					throws NoSuchMethodException, SecurityException, ClassNotFoundException {
@@ -157,6 +319,7 @@ public class MappedReflectionAccessor implements ReflectionAccessor {
 			public Object invoke(@Nullable Object instance, @Nullable Object... args)
 					throws IllegalAccessException, IllegalArgumentException, InvocationTargetException,
 					NoSuchMethodException, SecurityException, ClassNotFoundException {
+				hit();
 				return getMethodInstance().invoke(instance, args);
 			}
 
@@ -171,11 +334,13 @@ public class MappedReflectionAccessor implements ReflectionAccessor {
 			if (handles[i] instanceof Class<?> clazz)
 				type = clazz;
 			else if (handles[i] instanceof ClassMapping mapping)
-				type = getClass(mapping.getOriginalName()).getClassInstance();
+				type = getHandle(mapping.getOriginalName()).getClassInstance();
 			else if (handles[i] instanceof ClassHandle handle)
 				type = handle.getClassInstance();
+			else if (handles[i] instanceof LazyType lazyType)
+				type = lazyType.getClassInstance();
 			else if (handles[i] instanceof ClassArrayType mappingArray)
-				type = getClassInstance(mappingArray.componentMapping().getTypeName()).arrayType();
+				type = getClassesFromMappingTypes(new Type[] {mappingArray.componentMapping()})[0].arrayType();
 			else
 				throw new IllegalArgumentException(handles[i].getClass().toString());
 			array[i] = type;
@@ -0,0 +1,170 @@
+package fr.skytasul.reflection;
+
+import fr.skytasul.reflection.mappings.Mappings;
+import fr.skytasul.reflection.mappings.Mappings.ClassMapping.MethodMapping;
+import fr.skytasul.reflection.mappings.MappingsIndex;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+/**
+ * Rewrites stack traces of obfuscated code back to original class and method names.
+ * <p>
+ * Stack trace elements only contain the name of methods, not their parameters: when several
+ * overloads of a class share the same mapped name but have different original names, all the
+ * original names are shown, separated by <code>|</code>.
+ * <p>
+ * Names are resolved once per class and method, then memoized, so that deobfuscating many similar
+ * stack traces is cheap. This class is thread-safe.
+ */
+public class StackTraceDeobfuscator {
+
+	private final @NotNull MappingsIndex index;
+
+	private final @NotNull Map<String, ClassNames> classes = new ConcurrentHashMap<>();
+
+	public StackTraceDeobfuscator(@NotNull Mappings mappings) {
+		this(mappings.createIndex());
+	}
+
+	public StackTraceDeobfuscator(@NotNull MappingsIndex index) {
+		this.index = index;
+	}
+
+	/**
+	 * Deobfuscates a stack trace element.
+	 *
+	 * @param element element of an obfuscated stack trace
+	 * @return an element with original names, or the same element if its class is not obfuscated
+	 */
+	public @NotNull StackTraceElement deobfuscate(@NotNull StackTraceElement element) {
+		var classNames = classes.computeIfAbsent(element.getClassName(), ClassNames::new);
+		if (classNames.mapping == null)
+			return element;
+
+		return new StackTraceElement(element.getClassLoaderName(), element.getModuleName(),
+				element.getModuleVersion(), classNames.mapping.getOriginalName(),
+				classNames.getOriginalMethod(element.getMethodName()), element.getFileName(), element.getLineNumber());
+	}
+
+	/**
+	 * Deobfuscates the elements of a stack trace.
+	 *
+	 * @param elements obfuscated stack trace
+	 * @return a new array containing the deobfuscated elements
+	 */
+	public @NotNull StackTraceElement @NotNull [] deobfuscate(@NotNull StackTraceElement @NotNull [] elements) {
+		var deobfuscated = new StackTraceElement[elements.length];
+		for (int i = 0; i < elements.length; i++)
+			deobfuscated[i] = deobfuscate(elements[i]);
+		return deobfuscated;
+	}
+
+	/**
+	 * Deobfuscates in place the stack trace of a throwable, as well as the ones of its causes and
+	 * suppressed throwables.
+	 *
+	 * @param <T> type of the throwable
+	 * @param throwable throwable to deobfuscate
+	 * @return the same throwable
+	 */
+	public <T extends Throwable> @NotNull T deobfuscate(@NotNull T throwable) {
+		deobfuscate(throwable, Collections.newSetFromMap(new IdentityHashMap<>()));
+		return throwable;
+	}
+
+	private void deobfuscate(@Nullable Throwable throwable, @NotNull Set<Throwable> visited) {
+		// causes can form cycles
+		if (throwable == null || !visited.add(throwable))
+			return;
+
+		throwable.setStackTrace(deobfuscate(throwable.getStackTrace()));
+		deobfuscate(throwable.getCause(), visited);
+		for (var suppressed : throwable.getSuppressed())
+			deobfuscate(suppressed, visited);
+	}
+
+	/**
+	 * Wraps a log handler so that the throwables of the records it publishes are deobfuscated first.
+	 * Throwables are deobfuscated in place.
+	 *
+	 * @param handler handler to wrap
+	 * @return a handler deobfuscating throwables before passing records to the wrapped handler
+	 */
+	public @NotNull Handler decorate(@NotNull Handler handler) {
+		return new DeobfuscatingHandler(handler);
+	}
+
+	/**
+	 * Replaces all the handlers of a logger by handlers deobfuscating throwables.
+	 *
+	 * @param logger logger whose handlers should be decorated
+	 * @see #decorate(Handler)
+	 */
+	public void decorate(@NotNull Logger logger) {
+		for (var handler : logger.getHandlers()) {
+			if (handler instanceof DeobfuscatingHandler)
+				continue;
+			logger.removeHandler(handler);
+			logger.addHandler(decorate(handler));
+		}
+	}
+
+	private class ClassNames {
+
+		private final @Nullable Mappings.ClassMapping mapping;
+		private final @NotNull Map<String, String> methods = new ConcurrentHashMap<>();
+
+		private ClassNames(@NotNull String mappedName) {
+			this.mapping = index.getClassFromMapped(mappedName);
+		}
+
+		private @NotNull String getOriginalMethod(@NotNull String mappedName) {
+			return methods.computeIfAbsent(mappedName, __ -> {
+				var originalNames = new LinkedHashSet<String>();
+				for (MethodMapping method : index.getMethodsFromMapped(mapping, mappedName))
+					originalNames.add(method.getOriginalName());
+				// not found: constructors, synthetic methods or methods which were not renamed
+				return originalNames.isEmpty() ? mappedName : String.join("|", originalNames);
+			});
+		}
+
+	}
+
+	private class DeobfuscatingHandler extends Handler {
+
+		private final @NotNull Handler handler;
+
+		private DeobfuscatingHandler(@NotNull Handler handler) {
+			this.handler = handler;
+			setLevel(handler.getLevel());
+		}
+
+		@Override
+		public void publish(LogRecord record) {
+			if (record.getThrown() != null)
+				deobfuscate(record.getThrown());
+			handler.publish(record);
+		}
+
+		@Override
+		public void flush() {
+			handler.flush();
+		}
+
+		@Override
+		public void close() throws SecurityException {
+			handler.close();
+		}
+
+	}
+
+}
@@ -0,0 +1,188 @@
+package fr.skytasul.reflection;
+
+import fr.skytasul.reflection.mappings.Mappings;
+import org.jetbrains.annotations.NotNull;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts how many times classes and members are resolved and used through a
+ * {@link MappedReflectionAccessor}, so that the mappings can later be shrunk to what is actually
+ * used, see {@link MappedReflectionAccessor#setUsageProfile(UsageProfile)}.
+ * <p>
+ * Entries are keyed by original names: see {@link #getClassKey(String)},
+ * {@link #getFieldKey(String, String)} and {@link #getMethodKey(String, String, Type...)}. Counters
+ * can be incremented concurrently.
+ * <p>
+ * Profiles are saved as text, with one <code>hits key</code> line per entry, hottest entries first.
+ */
+public class UsageProfile {
+
+	private final @NotNull Map<String, LongAdder> counters = new ConcurrentHashMap<>();
+
+	/**
+	 * @param className original name of the class
+	 * @return the key of the class
+	 */
+	public static @NotNull String getClassKey(@NotNull String className) {
+		return className;
+	}
+
+	/**
+	 * @param className original name of the class declaring the field
+	 * @param fieldName original name of the field
+	 * @return the key of the field
+	 */
+	public static @NotNull String getFieldKey(@NotNull String className, @NotNull String fieldName) {
+		return className + " " + fieldName;
+	}
+
+	/**
+	 * @param className original name of the class declaring the method
+	 * @param methodName original name of the method
+	 * @param parameterTypes parameter types of the method
+	 * @return the key of the method
+	 */
+	public static @NotNull String getMethodKey(@NotNull String className, @NotNull String methodName,
+			@NotNull Type @NotNull... parameterTypes) {
+		return className + " " + Mappings.getStringForMethod(methodName, parameterTypes);
+	}
+
+	/**
+	 * Gets the counter of an entry, creating it if needed. Callers hitting the same entry many times
+	 * should keep the counter instead of calling {@link #hit(String)}.
+	 *
+	 * @param key key of the entry
+	 * @return the counter of the entry
+	 */
+	public @NotNull LongAdder getCounter(@NotNull String key) {
+		return counters.computeIfAbsent(key, __ -> new LongAdder());
+	}
+
+	/**
+	 * Counts one more hit of an entry.
+	 *
+	 * @param key key of the entry
+	 */
+	public void hit(@NotNull String key) {
+		getCounter(key).increment();
+	}
+
+	/**
+	 * @param key key of the entry
+	 * @return the number of hits of the entry, <code>0</code> if it has never been hit
+	 */
+	public long getHits(@NotNull String key) {
+		var counter = counters.get(key);
+		return counter == null ? 0 : counter.sum();
+	}
+
+	/**
+	 * @return a snapshot of the hits of all entries which have been hit
+	 */
+	public @NotNull Map<String, Long> getHits() {
+		var hits = new HashMap<String, Long>(counters.size() * 2);
+		counters.forEach((key, counter) -> {
+			long sum = counter.sum();
+			if (sum > 0)
+				hits.put(key, sum);
+		});
+		return hits;
+	}
+
+	/**
+	 * Adds the hits of another profile to this one, for instance to combine the profiles of several
+	 * servers.
+	 *
+	 * @param profile profile to add
+	 * @return this profile
+	 */
+	public @NotNull UsageProfile merge(@NotNull UsageProfile profile) {
+		profile.getHits().forEach((key, hits) -> getCounter(key).add(hits));
+		return this;
+	}
+
+	/**
+	 * Writes the entries which have been hit, hottest first.
+	 *
+	 * @param writer writer of the profile, which is not closed
+	 * @throws IOException if the profile cannot be written
+	 */
+	public void write(@NotNull Writer writer) throws IOException {
+		var entries = new ArrayList<>(getHits().entrySet());
+		entries.sort(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()));
+		var bufferedWriter = new BufferedWriter(writer);
+		for (var entry : entries) {
+			bufferedWriter.append(Long.toString(entry.getValue())).append(' ').append(entry.getKey());
+			bufferedWriter.newLine();
+		}
+		bufferedWriter.flush();
+	}
+
+	/**
+	 * Writes the profile to a file.
+	 *
+	 * @param path path of the file, which is replaced if it exists
+	 * @throws IOException if the profile cannot be written
+	 * @see #write(Writer)
+	 */
+	public void write(@NotNull Path path) throws IOException {
+		try (var writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+			write(writer);
+		}
+	}
+
+	/**
+	 * Reads a profile written by {@link #write(Writer)}.
+	 *
+	 * @param reader reader of the profile, which is not closed
+	 * @return the read profile
+	 * @throws IOException if the profile cannot be read
+	 * @throws IllegalArgumentException if the profile is malformed
+	 */
+	public static @NotNull UsageProfile read(@NotNull Reader reader) throws IOException {
+		var profile = new UsageProfile();
+		var bufferedReader = new BufferedReader(reader);
+		String line;
+		while ((line = bufferedReader.readLine()) != null) {
+			if (line.isEmpty())
+				continue;
+			int space = line.indexOf(' ');
+			if (space <= 0)
+				throw new IllegalArgumentException("Malformed profile line: " + line);
+			try {
+				profile.getCounter(line.substring(space + 1)).add(Long.parseLong(line, 0, space, 10));
+			} catch (NumberFormatException ex) {
+				throw new IllegalArgumentException("Malformed profile line: " + line, ex);
+			}
+		}
+		return profile;
+	}
+
+	/**
+	 * Reads a profile from a file.
+	 *
+	 * @param path path of the file
+	 * @return the read profile
+	 * @throws IOException if the profile cannot be read
+	 * @see #read(Reader)
+	 */
+	public static @NotNull UsageProfile read(@NotNull Path path) throws IOException {
+		try (var reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+			return read(reader);
+		}
+	}
+
+}
@@ -0,0 +1,259 @@
+package fr.skytasul.reflection.mappings;
+
+import fr.skytasul.reflection.mappings.Mappings.ClassMapping.ClassArrayType;
+import fr.skytasul.reflection.mappings.RealMappings.RealClassMapping.RealFieldMapping;
+import fr.skytasul.reflection.mappings.RealMappings.RealClassMapping.RealMethodMapping;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import java.lang.reflect.Type;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Lazy composition of several mappings, where the mapped names of each stage are the original names
+ * of the next one: for instance obfuscated -> Spigot -> Mojang.
+ * <p>
+ * Nothing is copied when the chain is created. A class is resolved through the stages the first time
+ * it is asked for, and its members the first time they are listed; both are then memoized. Looking
+ * up a handful of classes therefore only costs a handful of resolutions, whatever the size of the
+ * stages.
+ * <p>
+ * Names which are not mapped by a stage are passed unchanged to the next one. An inner class which is
+ * not mapped by a stage follows the mapping of its outer class. The classes and members of the chain
+ * are the ones of the first stage: classes and members which only appear in later stages have no
+ * original name, and are not part of the chain.
+ */
+public class ChainedMappings implements Mappings {
+
+	private final @NotNull List<? extends Mappings> stages;
+	private final @NotNull AtomicReferenceArray<MappingsIndex> indexes;
+
+	private final @NotNull Map<String, ChainedClass> classes = new ConcurrentHashMap<>();
+
+	/**
+	 * Chains mappings.
+	 *
+	 * @param stages mappings to chain, in order
+	 */
+	public ChainedMappings(@NotNull List<? extends Mappings> stages) {
+		if (stages.isEmpty())
+			throw new IllegalArgumentException("Cannot chain zero mappings");
+		this.stages = List.copyOf(stages);
+		this.indexes = new AtomicReferenceArray<>(stages.size());
+	}
+
+	/**
+	 * Chains mappings.
+	 *
+	 * @param stages mappings to chain, in order
+	 * @return a lazy view of the composition of the mappings
+	 */
+	public static @NotNull ChainedMappings of(@NotNull Mappings @NotNull... stages) {
+		return new ChainedMappings(List.of(stages));
+	}
+
+	@Override
+	public Collection<? extends ClassMapping> getClasses() {
+		var firstClasses = stages.get(0).getClasses();
+		return new AbstractCollection<ChainedClass>() {
+			@Override
+			public Iterator<ChainedClass> iterator() {
+				var iterator = firstClasses.iterator();
+				return new Iterator<>() {
+					@Override
+					public boolean hasNext() {
+						return iterator.hasNext();
+					}
+
+					@Override
+					public ChainedClass next() {
+						return getChainedClass(iterator.next().getOriginalName());
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return firstClasses.size();
+			}
+		};
+	}
+
+	@Override
+	public @Nullable ClassMapping getClass(@NotNull String originalName) {
+		return getChainedClass(originalName);
+	}
+
+	@Override
+	public boolean hasIndexedLookup() {
+		return true;
+	}
+
+	private @Nullable ChainedClass getChainedClass(@NotNull String originalName) {
+		var chainedClass = classes.get(originalName);
+		if (chainedClass == null) {
+			var firstClass = getIndex(0).getClass(originalName);
+			if (firstClass == null)
+				return null;
+			// concurrent lookups may resolve the class twice, but only one instance is kept
+			chainedClass = classes.computeIfAbsent(originalName, __ -> new ChainedClass(firstClass));
+		}
+		return chainedClass;
+	}
+
+	private @NotNull MappingsIndex getIndex(int stage) {
+		var index = indexes.get(stage);
+		if (index == null) {
+			index = stages.get(stage).createIndex();
+			if (!indexes.compareAndSet(stage, null, index))
+				index = indexes.get(stage);
+		}
+		return index;
+	}
+
+	/**
+	 * Converts a type of the original namespace into a type with the same name as in the namespace of a
+	 * stage, for lookups in that stage.
+	 */
+	private @NotNull Type getStageType(@NotNull Type type, int stage) {
+		if (type instanceof ClassArrayType arrayType) {
+			var componentType = getStageType(arrayType.componentMapping(), stage);
+			return componentType == arrayType.componentMapping() ? type : new ClassArrayType(componentType);
+		}
+		if (stage == 0 || !(type instanceof ClassMapping classMapping))
+			return type;
+		var chainedClass = getChainedClass(classMapping.getOriginalName());
+		return chainedClass == null ? type : new NamedType(chainedClass.names[stage]);
+	}
+
+	/**
+	 * Converts a parameter type of the first stage into a type of this chain, so that class parameters
+	 * have their chained mapped name.
+	 */
+	private @NotNull Type getChainedType(@NotNull Type type) {
+		if (type instanceof ClassArrayType arrayType) {
+			var componentType = getChainedType(arrayType.componentMapping());
+			return componentType == arrayType.componentMapping() ? type : new ClassArrayType(componentType);
+		}
+		if (type instanceof ClassMapping classMapping) {
+			var chainedClass = getChainedClass(classMapping.getOriginalName());
+			if (chainedClass != null)
+				return chainedClass;
+		}
+		return type;
+	}
+
+	private record NamedType(@NotNull String name) implements Type {
+		@Override
+		public @NotNull String getTypeName() {
+			return name;
+		}
+	}
+
+	private class ChainedClass implements ClassMapping {
+
+		// class of each stage, null when a stage does not map it
+		private final @Nullable ClassMapping @NotNull [] stageClasses;
+		// name of the class in each namespace: names[0] is the original name, the last one is the mapped name
+		private final @NotNull String @NotNull [] names;
+
+		private volatile @Nullable List<RealFieldMapping> fields;
+		private volatile @Nullable List<RealMethodMapping> methods;
+
+		private ChainedClass(@NotNull ClassMapping firstClass) {
+			stageClasses = new ClassMapping[stages.size()];
+			names = new String[stages.size() + 1];
+			stageClasses[0] = firstClass;
+			names[0] = firstClass.getOriginalName();
+			names[1] = firstClass.getMappedName();
+			for (int stage = 1; stage < stages.size(); stage++) {
+				var name = names[stage];
+				var stageClass = getIndex(stage).getClass(name);
+				stageClasses[stage] = stageClass;
+				if (stageClass != null) {
+					names[stage + 1] = stageClass.getMappedName();
+					continue;
+				}
+
+				int innerIndex = name.indexOf('$');
+				var outerClass = innerIndex == -1 ? null : getIndex(stage).getClass(name.substring(0, innerIndex));
+				names[stage + 1] = outerClass == null ? name : outerClass.getMappedName() + name.substring(innerIndex);
+			}
+		}
+
+		@Override
+		public @NotNull String getOriginalName() {
+			return names[0];
+		}
+
+		@Override
+		public @NotNull String getMappedName() {
+			return names[names.length - 1];
+		}
+
+		@Override
+		public List<RealFieldMapping> getFields() {
+			var chainedFields = fields;
+			if (chainedFields == null) {
+				var firstFields = stageClasses[0].getFields();
+				chainedFields = new ArrayList<>(firstFields.size());
+				for (var field : firstFields) {
+					var mappedName = field.getMappedName();
+					for (int stage = 1; stage < stages.size(); stage++) {
+						if (stageClasses[stage] == null)
+							continue;
+						var stageField = getIndex(stage).getField(stageClasses[stage], mappedName);
+						if (stageField != null)
+							mappedName = stageField.getMappedName();
+					}
+					chainedFields.add(new RealFieldMapping(field.getOriginalName(), mappedName));
+				}
+				fields = chainedFields = List.copyOf(chainedFields);
+			}
+			return chainedFields;
+		}
+
+		@Override
+		public List<RealMethodMapping> getMethods() {
+			var chainedMethods = methods;
+			if (chainedMethods == null) {
+				var firstMethods = stageClasses[0].getMethods();
+				chainedMethods = new ArrayList<>(firstMethods.size());
+				for (var method : firstMethods) {
+					var parameterTypes = method.getParameterTypes();
+					var mappedName = method.getMappedName();
+					for (int stage = 1; stage < stages.size(); stage++) {
+						if (stageClasses[stage] == null)
+							continue;
+						var stageTypes = new Type[parameterTypes.length];
+						for (int i = 0; i < parameterTypes.length; i++)
+							stageTypes[i] = getStageType(parameterTypes[i], stage);
+						var stageMethod = getIndex(stage).getMethod(stageClasses[stage], mappedName, stageTypes);
+						if (stageMethod != null)
+							mappedName = stageMethod.getMappedName();
+					}
+
+					var chainedTypes = new Type[parameterTypes.length];
+					for (int i = 0; i < parameterTypes.length; i++)
+						chainedTypes[i] = getChainedType(parameterTypes[i]);
+					chainedMethods.add(new RealMethodMapping(method.getOriginalName(), mappedName, chainedTypes));
+				}
+				methods = chainedMethods = List.copyOf(chainedMethods);
+			}
+			return chainedMethods;
+		}
+
+		@Override
+		public String toString() {
+			return getOriginalName() + " -> " + getMappedName();
+		}
+
+	}
+
+}
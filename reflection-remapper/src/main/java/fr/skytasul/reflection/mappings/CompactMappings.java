@@ -0,0 +1,276 @@
+package fr.skytasul.reflection.mappings;
+
+import fr.skytasul.reflection.mappings.Mappings.ClassMapping.ClassArrayType;
+import org.jetbrains.annotations.NotNull;
+import java.lang.reflect.Type;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable mappings stored in parallel primitive arrays instead of a graph of objects.
+ * <p>
+ * Names are indices into a deduplicated string table, the members of a class are contiguous ranges
+ * of the member arrays, and the parameters of a method are a run of encoded integers. Classes are
+ * sorted by original name so that they can be looked up with a binary search.
+ * <p>
+ * Field and method mappings are lightweight views created on demand: they only hold an index into
+ * the arrays. This makes full mappings a few dozen arrays instead of millions of small objects.
+ */
+public class CompactMappings extends SortedMappings {
+
+	// a parameter is either an index in the type table, or a class of these mappings with its number of
+	// array dimensions: (index << 5) | (dimensions << 1) | kind
+	private static final int KIND_TYPE = 0;
+	private static final int KIND_CLASS = 1;
+	private static final int MAX_DIMENSIONS = 0b1111;
+
+	private final @NotNull String @NotNull [] strings;
+	private final @NotNull Type @NotNull [] types;
+
+	private final int[] classNames; // original and mapped string indices, interleaved
+	private final int[] classFields; // index of the first field of each class, followed by the field count
+	private final int[] classMethods; // index of the first method of each class, followed by the method count
+
+	private final int[] fieldNames;
+	private final int[] methodNames;
+	private final int[] methodParameters; // index of the first parameter of each method, followed by the count
+	private final int[] parameters;
+
+	private CompactMappings(@NotNull Builder builder) {
+		super(builder.classNames.length / 2);
+		this.strings = builder.strings.toArray(String[]::new);
+		this.types = builder.types.toArray(Type[]::new);
+		this.classNames = builder.classNames;
+		this.classFields = builder.classFields.toArray();
+		this.classMethods = builder.classMethods.toArray();
+		this.fieldNames = builder.fieldNames.toArray();
+		this.methodNames = builder.methodNames.toArray();
+		this.methodParameters = builder.methodParameters.toArray();
+		this.parameters = builder.parameters.toArray();
+	}
+
+	/**
+	 * Copies mappings into their compact form.
+	 *
+	 * @param mappings mappings to copy
+	 * @return compact mappings with the same classes and members
+	 */
+	public static @NotNull CompactMappings of(@NotNull Mappings mappings) {
+		return new CompactMappings(new Builder(mappings));
+	}
+
+	@Override
+	protected @NotNull String getOriginalName(int classIndex) {
+		return strings[classNames[classIndex * 2]];
+	}
+
+	@Override
+	protected @NotNull String getMappedName(int classIndex) {
+		return strings[classNames[classIndex * 2 + 1]];
+	}
+
+	@Override
+	protected @NotNull List<FieldView> getFields(int classIndex) {
+		int first = classFields[classIndex * 2];
+		int count = classFields[classIndex * 2 + 1];
+		return new AbstractList<>() {
+			@Override
+			public FieldView get(int field) {
+				return new FieldView(first + field);
+			}
+
+			@Override
+			public int size() {
+				return count;
+			}
+		};
+	}
+
+	@Override
+	protected @NotNull List<MethodView> getMethods(int classIndex) {
+		int first = classMethods[classIndex * 2];
+		int count = classMethods[classIndex * 2 + 1];
+		return new AbstractList<>() {
+			@Override
+			public MethodView get(int method) {
+				return new MethodView(first + method);
+			}
+
+			@Override
+			public int size() {
+				return count;
+			}
+		};
+	}
+
+	private @NotNull Type getParameter(int parameter) {
+		int index = parameter >>> 5;
+		if ((parameter & 1) == KIND_TYPE)
+			return types[index];
+
+		Type type = getClassMapping(index);
+		for (int dimensions = (parameter >>> 1) & MAX_DIMENSIONS; dimensions > 0; dimensions--)
+			type = new ClassArrayType(type);
+		return type;
+	}
+
+	private class FieldView implements ClassMapping.FieldMapping {
+
+		private final int index;
+
+		private FieldView(int index) {
+			this.index = index;
+		}
+
+		@Override
+		public @NotNull String getOriginalName() {
+			return strings[fieldNames[index * 2]];
+		}
+
+		@Override
+		public @NotNull String getMappedName() {
+			return strings[fieldNames[index * 2 + 1]];
+		}
+
+	}
+
+	private class MethodView implements ClassMapping.MethodMapping {
+
+		private final int index;
+
+		private MethodView(int index) {
+			this.index = index;
+		}
+
+		@Override
+		public @NotNull String getOriginalName() {
+			return strings[methodNames[index * 2]];
+		}
+
+		@Override
+		public @NotNull String getMappedName() {
+			return strings[methodNames[index * 2 + 1]];
+		}
+
+		@Override
+		public @NotNull Type @NotNull [] getParameterTypes() {
+			int first = methodParameters[index * 2];
+			var types = new Type[methodParameters[index * 2 + 1]];
+			for (int i = 0; i < types.length; i++)
+				types[i] = getParameter(parameters[first + i]);
+			return types;
+		}
+
+	}
+
+	private static class Builder {
+
+		private final List<String> strings = new ArrayList<>();
+		private final Map<String, Integer> stringIndices = new HashMap<>();
+		private final List<Type> types = new ArrayList<>();
+		private final Map<Type, Integer> typeIndices = new HashMap<>();
+		private final Map<String, Integer> classIndices = new HashMap<>();
+
+		private final int[] classNames;
+		private final IntList classFields = new IntList();
+		private final IntList classMethods = new IntList();
+		private final IntList fieldNames = new IntList();
+		private final IntList methodNames = new IntList();
+		private final IntList methodParameters = new IntList();
+		private final IntList parameters = new IntList();
+
+		private Builder(@NotNull Mappings mappings) {
+			var sortedClasses = new ArrayList<ClassMapping>(mappings.getClasses());
+			sortedClasses.sort(Comparator.comparing(ClassMapping::getOriginalName));
+
+			classNames = new int[sortedClasses.size() * 2];
+			for (int i = 0; i < sortedClasses.size(); i++) {
+				var classMapping = sortedClasses.get(i);
+				classNames[i * 2] = getString(classMapping.getOriginalName());
+				classNames[i * 2 + 1] = getString(classMapping.getMappedName());
+				classIndices.put(classMapping.getOriginalName(), i);
+			}
+
+			for (var classMapping : sortedClasses) {
+				classFields.add(fieldNames.size() / 2);
+				int fieldCount = 0;
+				for (var field : classMapping.getFields()) {
+					fieldNames.add(getString(field.getOriginalName()));
+					fieldNames.add(getString(field.getMappedName()));
+					fieldCount++;
+				}
+				classFields.add(fieldCount);
+
+				classMethods.add(methodNames.size() / 2);
+				int methodCount = 0;
+				for (var method : classMapping.getMethods()) {
+					methodNames.add(getString(method.getOriginalName()));
+					methodNames.add(getString(method.getMappedName()));
+					var parameterTypes = method.getParameterTypes();
+					methodParameters.add(parameters.size());
+					methodParameters.add(parameterTypes.length);
+					for (var parameterType : parameterTypes)
+						parameters.add(getParameter(parameterType));
+					methodCount++;
+				}
+				classMethods.add(methodCount);
+			}
+		}
+
+		private int getString(@NotNull String string) {
+			return stringIndices.computeIfAbsent(string, __ -> {
+				strings.add(string);
+				return strings.size() - 1;
+			});
+		}
+
+		private int getParameter(@NotNull Type type) {
+			int dimensions = 0;
+			var component = type;
+			while (component instanceof ClassArrayType arrayType) {
+				component = arrayType.componentMapping();
+				dimensions++;
+			}
+			if (component instanceof ClassMapping classMapping && dimensions <= MAX_DIMENSIONS) {
+				var classIndex = classIndices.get(classMapping.getOriginalName());
+				if (classIndex != null)
+					return (classIndex << 5) | (dimensions << 1) | KIND_CLASS;
+			}
+
+			// library class, or class which is not part of these mappings
+			int typeIndex = typeIndices.computeIfAbsent(type, __ -> {
+				types.add(type);
+				return types.size() - 1;
+			});
+			return (typeIndex << 5) | KIND_TYPE;
+		}
+
+	}
+
+	private static class IntList {
+
+		private int[] values = new int[16];
+		private int size;
+
+		private void add(int value) {
+			if (size == values.length)
+				values = Arrays.copyOf(values, size * 2);
+			values[size++] = value;
+		}
+
+		private int size() {
+			return size;
+		}
+
+		private int[] toArray() {
+			return Arrays.copyOf(values, size);
+		}
+
+	}
+
+}
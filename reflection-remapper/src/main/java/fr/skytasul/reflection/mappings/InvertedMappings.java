@@ -0,0 +1,184 @@
+package fr.skytasul.reflection.mappings;
+
+import fr.skytasul.reflection.mappings.Mappings.ClassMapping.ClassArrayType;
+import fr.skytasul.reflection.mappings.RealMappings.RealClassMapping.RealFieldMapping;
+import fr.skytasul.reflection.mappings.RealMappings.RealClassMapping.RealMethodMapping;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import java.lang.reflect.Type;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Lazy view of mappings in the other direction: from mapped names to original names.
+ * <p>
+ * The parameter types of methods are rewritten into the mapped namespace: parameters which are
+ * classes of the inverted mappings become the inverted classes. Types are translated through a
+ * single table, keyed by their name in the original namespace, so that each distinct type is
+ * rewritten once and shared by all the methods using it.
+ * <p>
+ * Classes are inverted the first time they are asked for, and their members the first time they are
+ * listed. Use {@link CompactMappings#of(Mappings)} to materialize the whole inverse in a compact form.
+ *
+ * @see Mappings#invert()
+ */
+public class InvertedMappings implements Mappings {
+
+	private final @NotNull Mappings mappings;
+
+	// inverted classes and translated types, keyed by their name in the original namespace
+	private final @NotNull Map<String, InvertedClass> classes = new ConcurrentHashMap<>();
+	private final @NotNull Map<String, Type> types = new ConcurrentHashMap<>();
+
+	private volatile @Nullable MappingsIndex index;
+
+	/**
+	 * Inverts mappings.
+	 *
+	 * @param mappings mappings to invert
+	 */
+	public InvertedMappings(@NotNull Mappings mappings) {
+		this.mappings = mappings;
+	}
+
+	@Override
+	public Collection<? extends ClassMapping> getClasses() {
+		var sourceClasses = mappings.getClasses();
+		return new AbstractCollection<InvertedClass>() {
+			@Override
+			public Iterator<InvertedClass> iterator() {
+				var iterator = sourceClasses.iterator();
+				return new Iterator<>() {
+					@Override
+					public boolean hasNext() {
+						return iterator.hasNext();
+					}
+
+					@Override
+					public InvertedClass next() {
+						return getInvertedClass(iterator.next());
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return sourceClasses.size();
+			}
+		};
+	}
+
+	@Override
+	public @Nullable ClassMapping getClass(@NotNull String originalName) {
+		var sourceClass = getSourceIndex().getClassFromMapped(originalName);
+		return sourceClass == null ? null : getInvertedClass(sourceClass);
+	}
+
+	@Override
+	public boolean hasIndexedLookup() {
+		return true;
+	}
+
+	/**
+	 * @return the mappings which are inverted by this view
+	 */
+	@Override
+	public @NotNull Mappings invert() {
+		return mappings;
+	}
+
+	private @NotNull MappingsIndex getSourceIndex() {
+		var sourceIndex = index;
+		if (sourceIndex == null) // concurrent lookups may index twice, but the result is the same
+			index = sourceIndex = mappings.createIndex();
+		return sourceIndex;
+	}
+
+	private @NotNull InvertedClass getInvertedClass(@NotNull ClassMapping sourceClass) {
+		return classes.computeIfAbsent(sourceClass.getOriginalName(), __ -> new InvertedClass(sourceClass));
+	}
+
+	private @NotNull Type getInvertedType(@NotNull Type type) {
+		var invertedType = types.get(type.getTypeName());
+		if (invertedType == null) {
+			if (type instanceof ClassArrayType arrayType) {
+				var componentType = getInvertedType(arrayType.componentMapping());
+				invertedType = componentType == arrayType.componentMapping() ? type : new ClassArrayType(componentType);
+			} else if (type instanceof ClassMapping classMapping) {
+				invertedType = getInvertedClass(classMapping);
+			} else {
+				// parsers may only give the name of classes of these mappings
+				var sourceClass = getSourceIndex().getClass(type.getTypeName());
+				// not a class of these mappings: same name in both namespaces
+				invertedType = sourceClass == null ? type : getInvertedClass(sourceClass);
+			}
+			types.put(type.getTypeName(), invertedType);
+		}
+		return invertedType;
+	}
+
+	private class InvertedClass implements ClassMapping {
+
+		private final @NotNull ClassMapping sourceClass;
+
+		private volatile @Nullable List<RealFieldMapping> fields;
+		private volatile @Nullable List<RealMethodMapping> methods;
+
+		private InvertedClass(@NotNull ClassMapping sourceClass) {
+			this.sourceClass = sourceClass;
+		}
+
+		@Override
+		public @NotNull String getOriginalName() {
+			return sourceClass.getMappedName();
+		}
+
+		@Override
+		public @NotNull String getMappedName() {
+			return sourceClass.getOriginalName();
+		}
+
+		@Override
+		public List<RealFieldMapping> getFields() {
+			var invertedFields = fields;
+			if (invertedFields == null) {
+				var sourceFields = sourceClass.getFields();
+				invertedFields = new ArrayList<>(sourceFields.size());
+				for (var field : sourceFields)
+					invertedFields.add(new RealFieldMapping(field.getMappedName(), field.getOriginalName()));
+				fields = invertedFields = List.copyOf(invertedFields);
+			}
+			return invertedFields;
+		}
+
+		@Override
+		public List<RealMethodMapping> getMethods() {
+			var invertedMethods = methods;
+			if (invertedMethods == null) {
+				var sourceMethods = sourceClass.getMethods();
+				invertedMethods = new ArrayList<>(sourceMethods.size());
+				for (var method : sourceMethods) {
+					var parameterTypes = method.getParameterTypes();
+					var invertedTypes = new Type[parameterTypes.length];
+					for (int i = 0; i < parameterTypes.length; i++)
+						invertedTypes[i] = getInvertedType(parameterTypes[i]);
+					invertedMethods.add(new RealMethodMapping(method.getMappedName(), method.getOriginalName(), invertedTypes));
+				}
+				methods = invertedMethods = List.copyOf(invertedMethods);
+			}
+			return invertedMethods;
+		}
+
+		@Override
+		public String toString() {
+			return getOriginalName() + " -> " + getMappedName();
+		}
+
+	}
+
+}
@@ -2,6 +2,7 @@ package fr.skytasul.reflection.mappings;
 
 import fr.skytasul.reflection.ReflectionAccessor;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import java.lang.reflect.Type;
 import java.util.Collection;
 import java.util.stream.Collectors;
@@ -11,6 +12,52 @@ public interface Mappings {
 
 	Collection<? extends ClassMapping> getClasses();
 
+	/**
+	 * Finds the mapping of a class from its original name.
+	 * <p>
+	 * The default implementation is a linear scan over {@link #getClasses()}: implementations should
+	 * override it when they can do better, together with {@link #hasIndexedLookup()}.
+	 *
+	 * @param originalName original name of the class
+	 * @return the class mapping, or <code>null</code> if there is no class with this original name
+	 */
+	default @Nullable ClassMapping getClass(@NotNull String originalName) {
+		for (ClassMapping classMapping : getClasses())
+			if (classMapping.getOriginalName().equals(originalName))
+				return classMapping;
+		return null;
+	}
+
+	/**
+	 * Tells if {@link #getClass(String)} is faster than a linear scan over the classes. Callers which
+	 * look up many classes in mappings without it should look them up in {@link #createIndex()} instead.
+	 *
+	 * @return <code>true</code> if classes are looked up through an index
+	 */
+	default boolean hasIndexedLookup() {
+		return false;
+	}
+
+	/**
+	 * Indexes the classes and members of these mappings, to look them up from their original or mapped
+	 * names in constant time.
+	 *
+	 * @return a new index over the current state of these mappings
+	 */
+	default @NotNull MappingsIndex createIndex() {
+		return new MappingsIndex(this);
+	}
+
+	/**
+	 * Inverts these mappings, so that mapped names become original names and the other way around.
+	 *
+	 * @return a lazy view of the inverse of these mappings
+	 * @see InvertedMappings
+	 */
+	default @NotNull Mappings invert() {
+		return new InvertedMappings(this);
+	}
+
 	interface MappedObject {
 
 		@NotNull
@@ -0,0 +1,138 @@
+package fr.skytasul.reflection.mappings;
+
+import fr.skytasul.reflection.mappings.Mappings.ClassMapping;
+import fr.skytasul.reflection.mappings.Mappings.ClassMapping.FieldMapping;
+import fr.skytasul.reflection.mappings.Mappings.ClassMapping.MethodMapping;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hash indexes over mappings, to find classes, fields and methods from their original name as well
+ * as from their mapped name in constant time.
+ * <p>
+ * Classes are indexed when the index is created. The members of a class are only indexed the first
+ * time one of them is looked up. The index is a snapshot: it does not see later modifications of the
+ * mappings. When several entries have the same name, the first one is found, like with the linear
+ * lookups of {@link Mappings#getClass(String)}.
+ * <p>
+ * Methods are identified by their name and parameter types, as they appear in the mappings (i.e.
+ * parameter types are always in the original namespace, even when looking up a method from its
+ * mapped name).
+ */
+public class MappingsIndex {
+
+	private final Map<String, ClassIndex> classesByOriginal;
+	private final Map<String, ClassIndex> classesByMapped;
+
+	/**
+	 * Indexes the classes of mappings.
+	 *
+	 * @param mappings mappings to index
+	 */
+	public MappingsIndex(@NotNull Mappings mappings) {
+		var classes = mappings.getClasses();
+		classesByOriginal = new HashMap<>(classes.size() * 2);
+		classesByMapped = new HashMap<>(classes.size() * 2);
+		for (ClassMapping classMapping : classes) {
+			var classIndex = new ClassIndex(classMapping);
+			classesByOriginal.putIfAbsent(classMapping.getOriginalName(), classIndex);
+			classesByMapped.putIfAbsent(classMapping.getMappedName(), classIndex);
+		}
+	}
+
+	public @Nullable ClassMapping getClass(@NotNull String originalName) {
+		var classIndex = classesByOriginal.get(originalName);
+		return classIndex == null ? null : classIndex.mapping;
+	}
+
+	public @Nullable ClassMapping getClassFromMapped(@NotNull String mappedName) {
+		var classIndex = classesByMapped.get(mappedName);
+		return classIndex == null ? null : classIndex.mapping;
+	}
+
+	public @Nullable FieldMapping getField(@NotNull ClassMapping classMapping, @NotNull String originalName) {
+		return getMembers(classMapping).fieldsByOriginal.get(originalName);
+	}
+
+	public @Nullable FieldMapping getFieldFromMapped(@NotNull ClassMapping classMapping, @NotNull String mappedName) {
+		return getMembers(classMapping).fieldsByMapped.get(mappedName);
+	}
+
+	public @Nullable MethodMapping getMethod(@NotNull ClassMapping classMapping, @NotNull String originalName,
+			@NotNull Type @NotNull... parameterTypes) {
+		return getMembers(classMapping).methodsByOriginal.get(Mappings.getStringForMethod(originalName, parameterTypes));
+	}
+
+	public @Nullable MethodMapping getMethodFromMapped(@NotNull ClassMapping classMapping, @NotNull String mappedName,
+			@NotNull Type @NotNull... parameterTypes) {
+		return getMembers(classMapping).methodsByMapped.get(Mappings.getStringForMethod(mappedName, parameterTypes));
+	}
+
+	/**
+	 * Finds all the overloads of a class which have a mapped name, for instance to find the candidates
+	 * of a method only known by its name.
+	 *
+	 * @param classMapping class of the methods
+	 * @param mappedName mapped name of the methods
+	 * @return the methods with this mapped name, possibly empty
+	 */
+	public @NotNull List<MethodMapping> getMethodsFromMapped(@NotNull ClassMapping classMapping,
+			@NotNull String mappedName) {
+		return getMembers(classMapping).methodsByMappedName.getOrDefault(mappedName, List.of());
+	}
+
+	private @NotNull Members getMembers(@NotNull ClassMapping classMapping) {
+		var classIndex = classesByOriginal.get(classMapping.getOriginalName());
+		if (classIndex == null)
+			throw new IllegalArgumentException("Class " + classMapping.getOriginalName() + " is not indexed");
+		return classIndex.getMembers();
+	}
+
+	private static class ClassIndex {
+
+		private final @NotNull ClassMapping mapping;
+
+		private volatile @Nullable Members members;
+
+		private ClassIndex(@NotNull ClassMapping mapping) {
+			this.mapping = mapping;
+		}
+
+		private @NotNull Members getMembers() {
+			var indexedMembers = members;
+			if (indexedMembers == null) // concurrent lookups may index twice, but the result is the same
+				members = indexedMembers = new Members(mapping);
+			return indexedMembers;
+		}
+
+	}
+
+	private static class Members {
+
+		private final Map<String, FieldMapping> fieldsByOriginal = new HashMap<>();
+		private final Map<String, FieldMapping> fieldsByMapped = new HashMap<>();
+		private final Map<String, MethodMapping> methodsByOriginal = new HashMap<>();
+		private final Map<String, MethodMapping> methodsByMapped = new HashMap<>();
+		private final Map<String, List<MethodMapping>> methodsByMappedName = new HashMap<>();
+
+		private Members(@NotNull ClassMapping classMapping) {
+			for (FieldMapping field : classMapping.getFields()) {
+				fieldsByOriginal.putIfAbsent(field.getOriginalName(), field);
+				fieldsByMapped.putIfAbsent(field.getMappedName(), field);
+			}
+			for (MethodMapping method : classMapping.getMethods()) {
+				var parameterTypes = method.getParameterTypes();
+				methodsByOriginal.putIfAbsent(Mappings.getStringForMethod(method.getOriginalName(), parameterTypes), method);
+				methodsByMapped.putIfAbsent(Mappings.getStringForMethod(method.getMappedName(), parameterTypes), method);
+				methodsByMappedName.computeIfAbsent(method.getMappedName(), __ -> new ArrayList<>(1)).add(method);
+			}
+		}
+
+	}
+
+}
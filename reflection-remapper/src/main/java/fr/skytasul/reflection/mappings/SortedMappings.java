@@ -0,0 +1,157 @@
+package fr.skytasul.reflection.mappings;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import java.util.AbstractList;
+import java.util.List;
+
+/**
+ * Base of mappings whose classes are stored sorted by original name and addressed by their index.
+ * <p>
+ * Implementations only have to expose the names and members of the class at a given index: this
+ * class looks classes up by original name with a binary search, and creates the class mappings. A
+ * class mapping is created the first time its class is accessed and then reused, so that looking
+ * up the same class repeatedly does not allocate.
+ *
+ * @see CompactMappings
+ * @see fr.skytasul.reflection.mappings.files.BinaryMappingsView
+ */
+public abstract class SortedMappings implements Mappings {
+
+	// filled lazily: concurrent accesses may create the same view twice, which is harmless as views
+	// are immutable and compare by index
+	private final SortedClass[] classViews;
+	private final List<ClassMapping> classes;
+
+	/**
+	 * @param classCount number of classes of the mappings
+	 */
+	protected SortedMappings(int classCount) {
+		this.classViews = new SortedClass[classCount];
+		this.classes = new AbstractList<>() {
+			@Override
+			public ClassMapping get(int index) {
+				return getClassMapping(index);
+			}
+
+			@Override
+			public int size() {
+				return classCount;
+			}
+		};
+	}
+
+	/**
+	 * @param classIndex index of the class, in the order of original names
+	 * @return the original name of the class
+	 */
+	protected abstract @NotNull String getOriginalName(int classIndex);
+
+	/**
+	 * @param classIndex index of the class, in the order of original names
+	 * @return the mapped name of the class
+	 */
+	protected abstract @NotNull String getMappedName(int classIndex);
+
+	/**
+	 * @param classIndex index of the class, in the order of original names
+	 * @return the fields of the class
+	 */
+	protected abstract @NotNull List<? extends ClassMapping.FieldMapping> getFields(int classIndex);
+
+	/**
+	 * @param classIndex index of the class, in the order of original names
+	 * @return the methods of the class
+	 */
+	protected abstract @NotNull List<? extends ClassMapping.MethodMapping> getMethods(int classIndex);
+
+	@Override
+	public final List<? extends ClassMapping> getClasses() {
+		return classes;
+	}
+
+	@Override
+	public final @Nullable ClassMapping getClass(@NotNull String originalName) {
+		int low = 0;
+		int high = classViews.length - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			int comparison = getOriginalName(middle).compareTo(originalName);
+			if (comparison < 0)
+				low = middle + 1;
+			else if (comparison > 0)
+				high = middle - 1;
+			else
+				return getClassMapping(middle);
+		}
+		return null;
+	}
+
+	@Override
+	public final boolean hasIndexedLookup() {
+		return true;
+	}
+
+	/**
+	 * Gets the mapping of the class at an index, creating it on its first access.
+	 *
+	 * @param classIndex index of the class, in the order of original names
+	 * @return the mapping of the class
+	 */
+	protected final @NotNull ClassMapping getClassMapping(int classIndex) {
+		var view = classViews[classIndex];
+		if (view == null)
+			classViews[classIndex] = view = new SortedClass(classIndex);
+		return view;
+	}
+
+	private final class SortedClass implements ClassMapping {
+
+		private final int index;
+
+		private SortedClass(int index) {
+			this.index = index;
+		}
+
+		@Override
+		public @NotNull String getOriginalName() {
+			return SortedMappings.this.getOriginalName(index);
+		}
+
+		@Override
+		public @NotNull String getMappedName() {
+			return SortedMappings.this.getMappedName(index);
+		}
+
+		@Override
+		public List<? extends FieldMapping> getFields() {
+			return SortedMappings.this.getFields(index);
+		}
+
+		@Override
+		public List<? extends MethodMapping> getMethods() {
+			return SortedMappings.this.getMethods(index);
+		}
+
+		private SortedMappings getMappings() {
+			return SortedMappings.this;
+		}
+
+		@Override
+		public int hashCode() {
+			return index;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof SortedClass other && other.index == index && other.getMappings() == getMappings();
+		}
+
+		@Override
+		public String toString() {
+			return getOriginalName() + " -> " + getMappedName();
+		}
+
+	}
+
+}
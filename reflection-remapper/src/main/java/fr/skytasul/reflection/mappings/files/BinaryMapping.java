@@ -0,0 +1,332 @@
+package fr.skytasul.reflection.mappings.files;
+
+import fr.skytasul.reflection.mappings.Mappings;
+import fr.skytasul.reflection.mappings.Mappings.ClassMapping;
+import fr.skytasul.reflection.mappings.Mappings.ClassMapping.ClassArrayType;
+import fr.skytasul.reflection.mappings.Mappings.ClassMapping.FieldMapping;
+import fr.skytasul.reflection.mappings.Mappings.ClassMapping.MethodMapping;
+import fr.skytasul.reflection.mappings.Mappings.MappedObject;
+import fr.skytasul.reflection.mappings.RealMappings;
+import fr.skytasul.reflection.mappings.RealMappings.RealClassMapping;
+import fr.skytasul.reflection.mappings.RealMappings.RealClassMapping.RealFieldMapping;
+import fr.skytasul.reflection.mappings.RealMappings.RealClassMapping.RealMethodMapping;
+import org.jetbrains.annotations.NotNull;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Compact binary mappings format.
+ * <p>
+ * A mappings block is laid out as follows, where all integers are unsigned LEB128 varints:
+ * <ol>
+ * <li>the string table: count, then for each string its UTF-8 length and bytes
+ * <li>the classes, sorted by original name: count, then for each class the string indices of its
+ * original and mapped names
+ * <li>the members of each class, in the same order: field count, then original and mapped indices of
+ * each field, method count, then original and mapped indices, parameter count and parameter types of
+ * each method
+ * </ol>
+ * A parameter type is a header <code>(array dimensions &lt;&lt; 2) | kind</code> followed by a value
+ * whose meaning depends on the kind: a primitive code ({@link #KIND_PRIMITIVE}), the index of a
+ * class of the same block ({@link #KIND_CLASS}) or the string index of a type name
+ * ({@link #KIND_NAMED}).
+ * <p>
+ * Composite files start with {@link #MAGIC} and {@link #FORMAT_VERSION}, followed for each version by
+ * its major, minor and patch numbers, the byte length of its block and the block itself. A length of
+ * 0 means the version has the same mappings as a previous one, whose index in the file follows.
+ * <p>
+ * As this format is not line-based, it is not a {@link MappingType}: the readers and writers of
+ * composite files have their own constructors for it.
+ *
+ * @see BinaryMappingsView
+ */
+public class BinaryMapping {
+
+	public static final int MAGIC = 0x52524D42; // "RRMB"
+	public static final int FORMAT_VERSION = 1;
+
+	static final int KIND_PRIMITIVE = 0;
+	static final int KIND_CLASS = 1;
+	static final int KIND_NAMED = 2;
+
+	static final Class<?>[] PRIMITIVES = {
+			boolean.class, byte.class, short.class, int.class, long.class, float.class, double.class, char.class};
+
+	private static final Logger LOGGER = Logger.getLogger("BinaryMapping");
+
+	private final boolean view;
+
+	/**
+	 * Creates a binary mappings type which fully decodes the blocks it parses.
+	 */
+	public BinaryMapping() {
+		this(false);
+	}
+
+	/**
+	 * Creates a binary mappings type.
+	 *
+	 * @param view if <code>true</code>, parsed blocks are not decoded but exposed through a
+	 *        {@link BinaryMappingsView}. The underlying buffer must then stay available and unmodified.
+	 */
+	public BinaryMapping(boolean view) {
+		this.view = view;
+	}
+
+	/**
+	 * Parses a mappings block starting at the current position of the buffer. After this call, the
+	 * buffer is positioned right after the block.
+	 *
+	 * @param buffer buffer containing the mappings block
+	 * @return the parsed mappings
+	 */
+	public @NotNull Mappings parse(@NotNull ByteBuffer buffer) {
+		return parse(buffer, new StringPool());
+	}
+
+	/**
+	 * Parses a mappings block starting at the current position of the buffer, deduplicating its
+	 * strings with a pool which can be shared by several parses. After this call, the buffer is
+	 * positioned right after the block.
+	 * <p>
+	 * The pool is not used in view mode, as strings are then decoded lazily.
+	 *
+	 * @param buffer buffer containing the mappings block
+	 * @param stringPool pool used to deduplicate the names of classes and members
+	 * @return the parsed mappings
+	 */
+	public @NotNull Mappings parse(@NotNull ByteBuffer buffer, @NotNull StringPool stringPool) {
+		return parse(buffer, stringPool, new TypeResolver());
+	}
+
+	/**
+	 * Parses a mappings block starting at the current position of the buffer, deduplicating its
+	 * strings with a pool and resolving its library types with a resolver, which can both be shared by
+	 * several parses. After this call, the buffer is positioned right after the block.
+	 * <p>
+	 * Neither the pool nor the resolver are used in view mode, as strings and types are then decoded
+	 * lazily.
+	 *
+	 * @param buffer buffer containing the mappings block
+	 * @param stringPool pool used to deduplicate the names of classes and members
+	 * @param typeResolver resolver of the library types used as method parameters
+	 * @return the parsed mappings
+	 * @see MappingType#createTypeResolver()
+	 */
+	public @NotNull Mappings parse(@NotNull ByteBuffer buffer, @NotNull StringPool stringPool,
+			@NotNull TypeResolver typeResolver) {
+		if (view) {
+			var mappingsView = new BinaryMappingsView(buffer);
+			buffer.position(buffer.position() + mappingsView.getLength());
+			return mappingsView;
+		}
+
+		var strings = new String[readVarInt(buffer)];
+		for (int i = 0; i < strings.length; i++)
+			strings[i] = stringPool.intern(readString(buffer, readVarInt(buffer)));
+
+		var classes = new RealClassMapping[readVarInt(buffer)];
+		for (int i = 0; i < classes.length; i++) {
+			String original = strings[readVarInt(buffer)];
+			String mapped = strings[readVarInt(buffer)];
+			classes[i] = new RealClassMapping(original, mapped, new ArrayList<>(), new ArrayList<>());
+		}
+
+		var namedTypes = new Type[strings.length];
+		for (var classMapping : classes) {
+			int fieldCount = readVarInt(buffer);
+			for (int i = 0; i < fieldCount; i++)
+				classMapping.fields().add(new RealFieldMapping(strings[readVarInt(buffer)], strings[readVarInt(buffer)]));
+
+			int methodCount = readVarInt(buffer);
+			for (int i = 0; i < methodCount; i++) {
+				String original = strings[readVarInt(buffer)];
+				String mapped = strings[readVarInt(buffer)];
+				var parameters = new Type[readVarInt(buffer)];
+				for (int j = 0; j < parameters.length; j++)
+					parameters[j] = readType(buffer, strings, classes, namedTypes, typeResolver);
+				classMapping.methods().add(new RealMethodMapping(original, mapped, parameters));
+			}
+		}
+
+		LOGGER.log(Level.FINE, "Read {0} classes", classes.length);
+		return new RealMappings(new ArrayList<>(List.of(classes)));
+	}
+
+	private @NotNull Type readType(@NotNull ByteBuffer buffer, @NotNull String @NotNull [] strings,
+			@NotNull RealClassMapping @NotNull [] classes, @NotNull Type @NotNull [] namedTypes,
+			@NotNull TypeResolver typeResolver) {
+		int header = readVarInt(buffer);
+		int value = readVarInt(buffer);
+		int dimensions = header >>> 2;
+
+		switch (header & 0b11) {
+			case KIND_PRIMITIVE:
+				return arrayOf(PRIMITIVES[value], dimensions);
+			case KIND_CLASS:
+				return arrayOf(classes[value], dimensions);
+			case KIND_NAMED:
+				if (namedTypes[value] == null)
+					namedTypes[value] = typeResolver.resolve(strings[value]);
+				return arrayOf(namedTypes[value], dimensions);
+			default:
+				throw new IllegalArgumentException("Unknown parameter kind in header " + header);
+		}
+	}
+
+	static @NotNull Type arrayOf(@NotNull Type type, int dimensions) {
+		for (int i = 0; i < dimensions; i++)
+			type = type instanceof Class<?> clazz ? clazz.arrayType() : new ClassArrayType(type);
+		return type;
+	}
+
+	/**
+	 * Writes the mappings as a single binary block.
+	 *
+	 * @param output stream to write the block to
+	 * @param mappings mappings to write
+	 * @throws IOException if the stream cannot be written
+	 */
+	public void write(@NotNull OutputStream output, @NotNull Mappings mappings) throws IOException {
+		List<? extends ClassMapping> classes = mappings.getClasses().stream()
+				.sorted(Comparator.comparing(MappedObject::getOriginalName))
+				.toList();
+		Map<String, Integer> classIndexes = new HashMap<>();
+		for (int i = 0; i < classes.size(); i++)
+			classIndexes.put(classes.get(i).getOriginalName(), i);
+
+		// the string table must come first, so the rest of the block is buffered while strings get collected
+		Map<String, Integer> strings = new LinkedHashMap<>();
+		var body = new ByteArrayOutputStream();
+
+		writeVarInt(body, classes.size());
+		for (var mappedClass : classes) {
+			writeString(body, strings, mappedClass.getOriginalName());
+			writeString(body, strings, mappedClass.getMappedName());
+		}
+
+		for (var mappedClass : classes) {
+			writeVarInt(body, mappedClass.getFields().size());
+			for (FieldMapping mappedField : mappedClass.getFields()) {
+				writeString(body, strings, mappedField.getOriginalName());
+				writeString(body, strings, mappedField.getMappedName());
+			}
+
+			writeVarInt(body, mappedClass.getMethods().size());
+			for (MethodMapping mappedMethod : mappedClass.getMethods()) {
+				writeString(body, strings, mappedMethod.getOriginalName());
+				writeString(body, strings, mappedMethod.getMappedName());
+				writeVarInt(body, mappedMethod.getParameterTypes().length);
+				for (Type parameter : mappedMethod.getParameterTypes())
+					writeType(body, strings, classIndexes, parameter);
+			}
+		}
+
+		writeVarInt(output, strings.size());
+		for (String string : strings.keySet()) {
+			byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+			writeVarInt(output, bytes.length);
+			output.write(bytes);
+		}
+		body.writeTo(output);
+	}
+
+	private void writeType(@NotNull OutputStream output, @NotNull Map<String, Integer> strings,
+			@NotNull Map<String, Integer> classIndexes, @NotNull Type type) throws IOException {
+		int dimensions = 0;
+		while (true) {
+			if (type instanceof Class<?> clazz && clazz.isArray())
+				type = clazz.getComponentType();
+			else if (type instanceof ClassArrayType arrayType)
+				type = arrayType.componentMapping();
+			else
+				break;
+			dimensions++;
+		}
+
+		int kind;
+		int value;
+		Integer classIndex;
+		if (type instanceof Class<?> clazz && clazz.isPrimitive()) {
+			kind = KIND_PRIMITIVE;
+			value = List.of(PRIMITIVES).indexOf(clazz);
+			if (value == -1)
+				throw new IllegalArgumentException("Unsupported parameter type " + clazz);
+		} else if ((classIndex = classIndexes.get(type.getTypeName())) != null) {
+			kind = KIND_CLASS;
+			value = classIndex;
+		} else {
+			kind = KIND_NAMED;
+			value = strings.computeIfAbsent(type.getTypeName(), __ -> strings.size());
+		}
+
+		writeVarInt(output, dimensions << 2 | kind);
+		writeVarInt(output, value);
+	}
+
+	private static void writeString(@NotNull OutputStream output, @NotNull Map<String, Integer> strings,
+			@NotNull String string) throws IOException {
+		writeVarInt(output, strings.computeIfAbsent(string, __ -> strings.size()));
+	}
+
+	static @NotNull String readString(@NotNull ByteBuffer buffer, int length) {
+		String string;
+		if (buffer.hasArray()) {
+			string = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+			buffer.position(buffer.position() + length);
+		} else {
+			byte[] bytes = new byte[length];
+			buffer.get(bytes);
+			string = new String(bytes, StandardCharsets.UTF_8);
+		}
+		return string;
+	}
+
+	/**
+	 * Reads an unsigned LEB128 varint.
+	 *
+	 * @param buffer buffer to read from, positioned on the first byte of the varint
+	 * @return the decoded integer
+	 */
+	public static int readVarInt(@NotNull ByteBuffer buffer) {
+		int value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			if (shift > 28)
+				throw new IllegalArgumentException("Malformed varint");
+			b = buffer.get();
+			value |= (b & 0x7F) << shift;
+			shift += 7;
+		} while (b < 0);
+		return value;
+	}
+
+	/**
+	 * Writes an unsigned LEB128 varint.
+	 *
+	 * @param output stream to write to
+	 * @param value positive integer to write
+	 * @throws IOException if the stream cannot be written
+	 */
+	public static void writeVarInt(@NotNull OutputStream output, int value) throws IOException {
+		while ((value & ~0x7F) != 0) {
+			output.write((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+		output.write(value);
+	}
+
+}
@@ -0,0 +1,280 @@
+package fr.skytasul.reflection.mappings.files;
+
+import fr.skytasul.reflection.mappings.SortedMappings;
+import org.jetbrains.annotations.NotNull;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Read-only mappings backed directly by a {@link BinaryMapping} block.
+ * <p>
+ * Opening the view only scans the block once to compute the offsets of strings and classes members:
+ * names are decoded when they are first accessed, and field and method mappings are lightweight
+ * views created on demand. Classes are looked up by original name with a binary search, as they are
+ * sorted in the block.
+ * <p>
+ * This makes it possible to use very large mappings (e.g. full unshrunk mappings) without
+ * materializing every class and member in memory.
+ */
+public class BinaryMappingsView extends SortedMappings {
+
+	private final @NotNull ByteBuffer buffer;
+	private final int length;
+
+	private final int[] stringOffsets;
+	private final int[] stringLengths;
+	private final String[] decodedStrings;
+	private final Type[] namedTypes;
+	private final TypeResolver typeResolver = new TypeResolver();
+
+	private final int[] classNames; // original and mapped string indices, interleaved
+	private final int[] memberOffsets;
+
+	/**
+	 * Opens a view over the mappings block starting at the current position of the buffer. The
+	 * position of the passed buffer is not modified.
+	 *
+	 * @param buffer buffer containing the block, for instance a {@link java.nio.MappedByteBuffer} or a
+	 *        wrapped resource byte array
+	 */
+	public BinaryMappingsView(@NotNull ByteBuffer buffer) {
+		this(new Layout(buffer.slice()));
+	}
+
+	private BinaryMappingsView(@NotNull Layout layout) {
+		super(layout.memberOffsets.length);
+		this.buffer = layout.buffer;
+		this.length = layout.length;
+		this.stringOffsets = layout.stringOffsets;
+		this.stringLengths = layout.stringLengths;
+		this.decodedStrings = new String[stringOffsets.length];
+		this.namedTypes = new Type[stringOffsets.length];
+		this.classNames = layout.classNames;
+		this.memberOffsets = layout.memberOffsets;
+	}
+
+	/**
+	 * Memory-maps a plain binary mappings file and opens a view over it.
+	 *
+	 * @param path path of the file containing a single mappings block
+	 * @return a view over the mapped file
+	 * @throws IOException if the file cannot be mapped
+	 */
+	public static @NotNull BinaryMappingsView map(@NotNull Path path) throws IOException {
+		try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return new BinaryMappingsView(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	/**
+	 * @return the number of bytes of the block this view is opened on
+	 */
+	public int getLength() {
+		return length;
+	}
+
+	@Override
+	protected @NotNull String getOriginalName(int classIndex) {
+		return getString(classNames[classIndex * 2]);
+	}
+
+	@Override
+	protected @NotNull String getMappedName(int classIndex) {
+		return getString(classNames[classIndex * 2 + 1]);
+	}
+
+	@Override
+	protected @NotNull List<FieldView> getFields(int classIndex) {
+		var cursor = new Cursor(buffer, memberOffsets[classIndex]);
+		var fields = new FieldView[cursor.readVarInt()];
+		for (int i = 0; i < fields.length; i++)
+			fields[i] = new FieldView(cursor.readVarInt(), cursor.readVarInt());
+		return List.of(fields);
+	}
+
+	@Override
+	protected @NotNull List<MethodView> getMethods(int classIndex) {
+		var cursor = new Cursor(buffer, memberOffsets[classIndex]);
+		cursor.skipVarInts(cursor.readVarInt() * 2);
+		var methods = new MethodView[cursor.readVarInt()];
+		for (int i = 0; i < methods.length; i++) {
+			int original = cursor.readVarInt();
+			int mapped = cursor.readVarInt();
+			int parameterCount = cursor.readVarInt();
+			methods[i] = new MethodView(original, mapped, cursor.position, parameterCount);
+			cursor.skipVarInts(parameterCount * 2);
+		}
+		return List.of(methods);
+	}
+
+	private @NotNull String getString(int index) {
+		var string = decodedStrings[index];
+		if (string == null) {
+			byte[] bytes = new byte[stringLengths[index]];
+			buffer.get(stringOffsets[index], bytes);
+			decodedStrings[index] = string = new String(bytes, StandardCharsets.UTF_8);
+		}
+		return string;
+	}
+
+	private @NotNull Type readType(@NotNull Cursor cursor) {
+		int header = cursor.readVarInt();
+		int value = cursor.readVarInt();
+		int dimensions = header >>> 2;
+
+		switch (header & 0b11) {
+			case BinaryMapping.KIND_PRIMITIVE:
+				return BinaryMapping.arrayOf(BinaryMapping.PRIMITIVES[value], dimensions);
+			case BinaryMapping.KIND_CLASS:
+				return BinaryMapping.arrayOf(getClassMapping(value), dimensions);
+			case BinaryMapping.KIND_NAMED:
+				if (namedTypes[value] == null)
+					namedTypes[value] = typeResolver.resolve(getString(value));
+				return BinaryMapping.arrayOf(namedTypes[value], dimensions);
+			default:
+				throw new IllegalArgumentException("Unknown parameter kind in header " + header);
+		}
+	}
+
+	/**
+	 * Offsets of the strings and classes of a block, computed by scanning it once.
+	 */
+	private static class Layout {
+
+		private final @NotNull ByteBuffer buffer;
+		private final int length;
+		private final int[] stringOffsets;
+		private final int[] stringLengths;
+		private final int[] classNames;
+		private final int[] memberOffsets;
+
+		private Layout(@NotNull ByteBuffer buffer) {
+			this.buffer = buffer;
+
+			var cursor = new Cursor(buffer, 0);
+
+			int stringCount = cursor.readVarInt();
+			stringOffsets = new int[stringCount];
+			stringLengths = new int[stringCount];
+			for (int i = 0; i < stringCount; i++) {
+				stringLengths[i] = cursor.readVarInt();
+				stringOffsets[i] = cursor.position;
+				cursor.position += stringLengths[i];
+			}
+
+			int classCount = cursor.readVarInt();
+			classNames = new int[classCount * 2];
+			for (int i = 0; i < classNames.length; i++)
+				classNames[i] = cursor.readVarInt();
+
+			memberOffsets = new int[classCount];
+			for (int i = 0; i < classCount; i++) {
+				memberOffsets[i] = cursor.position;
+				cursor.skipVarInts(cursor.readVarInt() * 2); // fields
+				int methodCount = cursor.readVarInt();
+				for (int j = 0; j < methodCount; j++) {
+					cursor.skipVarInts(2);
+					cursor.skipVarInts(cursor.readVarInt() * 2); // parameters
+				}
+			}
+
+			this.length = cursor.position;
+		}
+
+	}
+
+	private static class Cursor {
+
+		private final @NotNull ByteBuffer buffer;
+		private int position;
+
+		private Cursor(@NotNull ByteBuffer buffer, int position) {
+			this.buffer = buffer;
+			this.position = position;
+		}
+
+		private int readVarInt() {
+			int value = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = buffer.get(position++);
+				value |= (b & 0x7F) << shift;
+				shift += 7;
+			} while (b < 0);
+			return value;
+		}
+
+		private void skipVarInts(int count) {
+			while (count > 0) {
+				if (buffer.get(position++) >= 0)
+					count--;
+			}
+		}
+
+	}
+
+	private class FieldView implements ClassMapping.FieldMapping {
+
+		private final int original;
+		private final int mapped;
+
+		private FieldView(int original, int mapped) {
+			this.original = original;
+			this.mapped = mapped;
+		}
+
+		@Override
+		public @NotNull String getOriginalName() {
+			return getString(original);
+		}
+
+		@Override
+		public @NotNull String getMappedName() {
+			return getString(mapped);
+		}
+
+	}
+
+	private class MethodView implements ClassMapping.MethodMapping {
+
+		private final int original;
+		private final int mapped;
+		private final int parametersOffset;
+		private final int parameterCount;
+
+		private MethodView(int original, int mapped, int parametersOffset, int parameterCount) {
+			this.original = original;
+			this.mapped = mapped;
+			this.parametersOffset = parametersOffset;
+			this.parameterCount = parameterCount;
+		}
+
+		@Override
+		public @NotNull String getOriginalName() {
+			return getString(original);
+		}
+
+		@Override
+		public @NotNull String getMappedName() {
+			return getString(mapped);
+		}
+
+		@Override
+		public @NotNull Type @NotNull [] getParameterTypes() {
+			var cursor = new Cursor(buffer, parametersOffset);
+			var types = new Type[parameterCount];
+			for (int i = 0; i < parameterCount; i++)
+				types[i] = readType(cursor);
+			return types;
+		}
+
+	}
+
+}
@@ -3,20 +3,38 @@ package fr.skytasul.reflection.mappings.files;
 import fr.skytasul.reflection.Version;
 import fr.skytasul.reflection.mappings.Mappings;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
 
 public class MappingFileReader {
 
+	private static final int GZIP_MAGIC = 0x8B1F; // as read in little-endian order
+	private static final int BUFFER_SIZE = 65536;
+
 	private static final Pattern VERSION_PATTERN = Pattern.compile(
-			"# reflection-remapper \\| (?<major>\\d+)\\.(?<minor>\\d+)\\.(?<patch>\\d+)");
+			"# reflection-remapper \\| (?<major>\\d+)\\.(?<minor>\\d+)\\.(?<patch>\\d+)"
+					+ "(?:(?<delta> delta)| same as (?<same>\\d+\\.\\d+\\.\\d+))?");
 
-	private final @NotNull MappingType mappingType;
+	private final @Nullable MappingType mappingType;
+	private final @Nullable BinaryMapping binaryMapping;
 	private final @NotNull List<VersionPart> mappings;
+	// shared by the versions of the file, which have most of their names in common
+	private final @NotNull StringPool stringPool = new StringPool();
+
+	private @Nullable MappingsCache cache;
 
 	/**
 	 * Creates a reader for a composite mappings file.
@@ -27,10 +45,34 @@ public class MappingFileReader {
 	 */
 	public MappingFileReader(@NotNull MappingType mappingType, @NotNull List<String> lines) throws IOException {
 		this.mappingType = mappingType;
+		this.binaryMapping = null;
 
 		this.mappings = readParts(lines);
 	}
 
+	/**
+	 * Creates a reader for a composite mappings file, which may be compressed with gzip.
+	 * <p>
+	 * Compression is detected automatically and the content is decompressed while it is read: lines are
+	 * directly split into versions without first reading the whole file. The lines of every version are
+	 * still kept until {@link #keepOnlyVersion(Version)} is called. The stream is not closed.
+	 *
+	 * @param mappingType type of mappings in this file
+	 * @param input stream of the mappings file
+	 * @throws IOException if the stream cannot be read
+	 */
+	public MappingFileReader(@NotNull MappingType mappingType, @NotNull InputStream input) throws IOException {
+		this.mappingType = mappingType;
+		this.binaryMapping = null;
+
+		var reader = new BufferedReader(new InputStreamReader(decompress(input), StandardCharsets.UTF_8));
+		try {
+			this.mappings = readParts(reader.lines()::iterator);
+		} catch (UncheckedIOException ex) {
+			throw ex.getCause();
+		}
+	}
+
 	/**
 	 * Creates a reader for a plain mappings file, associated with its version.
 	 *
@@ -42,10 +84,81 @@ public class MappingFileReader {
 	public MappingFileReader(@NotNull MappingType mappingType, @NotNull List<String> lines, @NotNull Version version)
 			throws IOException {
 		this.mappingType = mappingType;
+		this.binaryMapping = null;
 
 		this.mappings = List.of(new VersionPart(version, lines));
 	}
 
+	/**
+	 * Creates a reader for a composite binary mappings file.
+	 * <p>
+	 * Only the versions headers are read: the mappings blocks are not decoded until
+	 * {@link #parseMappings()} is called.
+	 *
+	 * @param mappingType binary mappings type
+	 * @param data content of the mappings file
+	 * @throws IOException if the file is not a composite binary mappings file
+	 */
+	public MappingFileReader(@NotNull BinaryMapping mappingType, @NotNull ByteBuffer data) throws IOException {
+		this.mappingType = null;
+		this.binaryMapping = mappingType;
+
+		this.mappings = readBinaryParts(data);
+	}
+
+	/**
+	 * Creates a reader for a composite binary mappings file, which may be compressed with gzip.
+	 * <p>
+	 * Compression is detected automatically. The whole file is read into memory, then only the versions
+	 * headers are read as with {@link #MappingFileReader(BinaryMapping, ByteBuffer)}. The stream is not
+	 * closed.
+	 *
+	 * @param mappingType binary mappings type
+	 * @param input stream of the mappings file
+	 * @throws IOException if the stream cannot be read or is not a composite binary mappings file
+	 */
+	public MappingFileReader(@NotNull BinaryMapping mappingType, @NotNull InputStream input) throws IOException {
+		this(mappingType, ByteBuffer.wrap(decompress(input).readAllBytes()));
+	}
+
+	/**
+	 * Creates a reader for a plain binary mappings block, associated with its version.
+	 *
+	 * @param mappingType binary mappings type
+	 * @param data content of the mappings block
+	 * @param version version of the mappings
+	 * @throws IOException
+	 */
+	public MappingFileReader(@NotNull BinaryMapping mappingType, @NotNull ByteBuffer data, @NotNull Version version)
+			throws IOException {
+		this.mappingType = null;
+		this.binaryMapping = mappingType;
+
+		this.mappings = List.of(new VersionPart(version, data));
+	}
+
+	private static @NotNull InputStream decompress(@NotNull InputStream input) throws IOException {
+		input = new BufferedInputStream(input, BUFFER_SIZE);
+		input.mark(2);
+		int magic = input.read() | input.read() << 8;
+		input.reset();
+		if (magic == GZIP_MAGIC)
+			input = new BufferedInputStream(new GZIPInputStream(input, BUFFER_SIZE), BUFFER_SIZE);
+		return input;
+	}
+
+	/**
+	 * Makes the reader keep binary snapshots of the versions it parses from lines, so that later readers
+	 * of the same file do not have to parse them again.
+	 *
+	 * @param cache cache of the snapshots, or <code>null</code> to always parse the lines
+	 * @return this reader
+	 */
+	public @NotNull MappingFileReader setCache(@Nullable MappingsCache cache) {
+		this.cache = cache;
+		return this;
+	}
+
 	public @NotNull List<Version> getAvailableVersions() {
 		return mappings.stream().map(x -> x.version).sorted().toList();
 	}
@@ -66,7 +179,38 @@ public class MappingFileReader {
 
 	public void parseMappings() {
 		for (var version : mappings)
-			version.mappings = mappingType.parse(version.lines);
+			parse(version);
+	}
+
+	private @NotNull Mappings parse(@NotNull VersionPart part) {
+		if (part.mappings == null) {
+			if (part.sameAs != null) {
+				// identical versions share the same parsed mappings
+				part.mappings = parse(part.sameAs);
+			} else if (part.data != null) {
+				part.mappings = binaryMapping.parse(part.data.duplicate(), stringPool);
+			} else if (part.base != null) {
+				// delta block: the mappings are rebuilt from the previous version, which may itself be a delta
+				part.mappings = MappingsDelta.apply(parse(part.base), parseLines(part.lines), part.removals);
+				part.base = null;
+			} else {
+				part.mappings = parseLines(part.lines);
+			}
+		}
+		return part.mappings;
+	}
+
+	private @NotNull Mappings parseLines(@NotNull List<String> lines) {
+		if (cache == null)
+			return mappingType.parse(lines, stringPool);
+
+		try {
+			return cache.get(MappingsCache.hashLines(mappingType.getParserKey(), lines), stringPool,
+					mappingType.createTypeResolver(), () -> mappingType.parse(lines, stringPool));
+		} catch (IOException ex) {
+			// parsing lines does not do any I/O
+			throw new UncheckedIOException(ex);
+		}
 	}
 
 	public @NotNull Mappings getParsedMappings(@NotNull Version version) {
@@ -76,32 +220,69 @@ public class MappingFileReader {
 	private static class VersionPart {
 		private final Version version;
 		private final List<String> lines;
+		private final ByteBuffer data;
+		private final List<String> removals = new ArrayList<>();
+		private VersionPart base;
+		private VersionPart sameAs;
 		private Mappings mappings;
 
 		private VersionPart(Version version, List<String> lines) {
 			this.version = version;
 			this.lines = lines;
+			this.data = null;
+		}
+
+		private VersionPart(Version version, ByteBuffer data) {
+			this.version = version;
+			this.lines = null;
+			this.data = data;
 		}
 	}
 
-	private static @NotNull List<VersionPart> readParts(@NotNull List<String> lines) {
+	private static @NotNull List<VersionPart> readParts(@NotNull Iterable<String> lines) {
 		List<VersionPart> parts = new ArrayList<>();
 
 		VersionPart currentPart = null;
+		boolean deltaFormat = false;
 		for (String line : lines) {
+			if (line.equals(MappingsDelta.FORMAT_MARKER)) {
+				if (currentPart != null || deltaFormat)
+					throw new IllegalArgumentException("Delta format marker must be the first line of the file");
+				deltaFormat = true;
+				continue;
+			}
+
 			Matcher versionMatcher = VERSION_PATTERN.matcher(line);
 			if (versionMatcher.matches()) {
+				var previousPart = currentPart;
 				if (currentPart != null)
 					parts.add(currentPart);
 				currentPart = new VersionPart(new Version(
 						Integer.parseInt(versionMatcher.group("major")),
 						Integer.parseInt(versionMatcher.group("minor")),
 						Integer.parseInt(versionMatcher.group("patch"))), new ArrayList<>());
+				if (versionMatcher.group("delta") != null) {
+					if (!deltaFormat)
+						throw new IllegalArgumentException("Delta block in a file without the delta format marker");
+					if (previousPart == null)
+						throw new IllegalArgumentException("First version of the file cannot be a delta");
+					// the base is kept even if the previous part gets removed by keepOnlyVersion
+					currentPart.base = previousPart;
+				} else if (versionMatcher.group("same") != null) {
+					currentPart.sameAs = findPart(parts, Version.parse(versionMatcher.group("same")));
+				}
+			} else if (MappingsDelta.isRemovalLine(line)) {
+				if (currentPart == null || currentPart.base == null)
+					throw new IllegalArgumentException("Removal outside of a delta block: " + line);
+
+				currentPart.removals.add(line);
 			} else if (line.startsWith("#") || line.isBlank()) {
 				continue; // ignore comments
 			} else {
 				if (currentPart == null)
 					throw new IllegalArgumentException("File should start with a version information");
+				if (currentPart.sameAs != null)
+					throw new IllegalArgumentException("Version " + currentPart.version + " cannot have its own mappings");
 
 				currentPart.lines.add(line);
 			}
@@ -113,6 +294,43 @@ public class MappingFileReader {
 		return parts;
 	}
 
+	private static @NotNull List<VersionPart> readBinaryParts(@NotNull ByteBuffer data) throws IOException {
+		data = data.duplicate();
+		if (data.remaining() < 5 || data.getInt() != BinaryMapping.MAGIC)
+			throw new IOException("Not a binary mappings file");
+		int formatVersion = data.get();
+		if (formatVersion != BinaryMapping.FORMAT_VERSION)
+			throw new IOException("Unsupported binary mappings format " + formatVersion);
+
+		List<VersionPart> parts = new ArrayList<>();
+		while (data.hasRemaining()) {
+			var version = new Version(
+					BinaryMapping.readVarInt(data),
+					BinaryMapping.readVarInt(data),
+					BinaryMapping.readVarInt(data));
+			int length = BinaryMapping.readVarInt(data);
+			if (length == 0) {
+				int sameIndex = BinaryMapping.readVarInt(data);
+				if (sameIndex >= parts.size())
+					throw new IOException("Version " + version + " refers to an unknown version");
+				var part = new VersionPart(version, (ByteBuffer) null);
+				part.sameAs = parts.get(sameIndex);
+				parts.add(part);
+			} else {
+				parts.add(new VersionPart(version, data.slice(data.position(), length)));
+				data.position(data.position() + length);
+			}
+		}
+		return parts;
+	}
+
+	private static @NotNull VersionPart findPart(@NotNull List<VersionPart> parts, @NotNull Version version) {
+		for (var part : parts)
+			if (part.version.equals(version))
+				return part;
+		throw new IllegalArgumentException("Cannot find version " + version);
+	}
+
 	/**
 	 * Returns the version present in the available versions list that matches the best the target
 	 * version.
@@ -11,6 +11,42 @@ public interface MappingType {
 	@NotNull
 	Mappings parse(@NotNull List<String> lines);
 
+	/**
+	 * Parses mappings, deduplicating their names with a pool which can be shared by several parses.
+	 *
+	 * @param lines lines of the mappings
+	 * @param stringPool pool used to deduplicate the names of classes and members
+	 * @return the parsed mappings
+	 */
+	@NotNull
+	default Mappings parse(@NotNull List<String> lines, @NotNull StringPool stringPool) {
+		return parse(lines);
+	}
+
 	void write(@NotNull BufferedWriter writer, @NotNull Mappings mappings) throws IOException;
 
+	/**
+	 * Creates the resolver of the library types used as method parameters by this type. Snapshots of
+	 * mappings parsed with this type are decoded with it, so that a {@link MappingsCache} hit gives the
+	 * same kinds of types as a parse.
+	 *
+	 * @return a new type resolver
+	 */
+	@NotNull
+	default TypeResolver createTypeResolver() {
+		return new TypeResolver();
+	}
+
+	/**
+	 * Describes this type and the options which change the result of its parsing, so that mappings
+	 * parsed with different options are not mistaken for each other.
+	 *
+	 * @return a key identifying how this type parses mappings
+	 * @see MappingsCache
+	 */
+	@NotNull
+	default String getParserKey() {
+		return getClass().getName();
+	}
+
 }
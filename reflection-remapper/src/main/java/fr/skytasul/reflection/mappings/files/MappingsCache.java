@@ -0,0 +1,157 @@
+package fr.skytasul.reflection.mappings.files;
+
+import fr.skytasul.reflection.mappings.Mappings;
+import org.jetbrains.annotations.NotNull;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Directory of binary snapshots of parsed mappings, so that unchanged mapping sources do not have to
+ * be parsed again on later loads.
+ * <p>
+ * Snapshots are keyed by a hash of the source and of the parser options (see
+ * {@link MappingType#getParserKey()}): a modified source or a differently configured parser never
+ * reuses a stale snapshot. Snapshots are stored in the {@link BinaryMapping} format, and their library
+ * types are resolved the same way as when parsing, see {@link MappingType#createTypeResolver()}.
+ * <p>
+ * The cache is only an optimization: if a snapshot cannot be read or written, the mappings are
+ * parsed from their source as if there was no cache.
+ */
+public class MappingsCache {
+
+	private static final Logger LOGGER = Logger.getLogger("MappingsCache");
+
+	private static final String EXTENSION = ".bin";
+
+	private final @NotNull Path directory;
+	private final @NotNull BinaryMapping binaryMapping = new BinaryMapping();
+
+	/**
+	 * Creates a cache storing its snapshots in a directory.
+	 *
+	 * @param directory directory of the snapshots, created if it does not exist
+	 * @throws IOException if the directory cannot be created
+	 */
+	public MappingsCache(@NotNull Path directory) throws IOException {
+		this.directory = directory;
+
+		Files.createDirectories(directory);
+	}
+
+	/**
+	 * Gets mappings from their snapshot, or loads them and saves their snapshot if there is none.
+	 *
+	 * @param key key of the mappings, computed with {@link #hashLines(String, Iterable)} or
+	 *        {@link #hashFiles(String, Path...)}
+	 * @param stringPool pool used to deduplicate the names of the mappings read from a snapshot
+	 * @param typeResolver resolver of the library types of the mappings read from a snapshot, which
+	 *        must resolve them like the loader
+	 * @param loader loads the mappings from their source when there is no snapshot
+	 * @return the mappings
+	 * @throws IOException if the loader fails
+	 */
+	public @NotNull Mappings get(@NotNull String key, @NotNull StringPool stringPool,
+			@NotNull TypeResolver typeResolver, @NotNull MappingsLoader loader) throws IOException {
+		var snapshotPath = directory.resolve(key + EXTENSION);
+		if (Files.exists(snapshotPath)) {
+			try {
+				return binaryMapping.parse(ByteBuffer.wrap(Files.readAllBytes(snapshotPath)), stringPool, typeResolver);
+			} catch (IOException | RuntimeException ex) {
+				LOGGER.log(Level.WARNING, "Failed to read mappings snapshot " + snapshotPath + ", parsing again", ex);
+			}
+		}
+
+		var mappings = loader.load();
+		Path temporaryPath = null;
+		try {
+			// written aside then moved, so that a concurrent load never reads a partial snapshot
+			temporaryPath = Files.createTempFile(directory, key, ".tmp");
+			try (var output = new BufferedOutputStream(Files.newOutputStream(temporaryPath))) {
+				binaryMapping.write(output, mappings);
+			}
+			Files.move(temporaryPath, snapshotPath, StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException ex) {
+			LOGGER.log(Level.WARNING, "Failed to save mappings snapshot " + snapshotPath, ex);
+			try {
+				if (temporaryPath != null)
+					Files.deleteIfExists(temporaryPath);
+			} catch (IOException __) {
+				// nothing more can be done
+			}
+		}
+		return mappings;
+	}
+
+	/**
+	 * Computes the key of mappings parsed from lines.
+	 *
+	 * @param parserKey options of the parser, see {@link MappingType#getParserKey()}
+	 * @param lines lines of the mappings
+	 * @return the key of the mappings
+	 */
+	public static @NotNull String hashLines(@NotNull String parserKey, @NotNull Iterable<String> lines) {
+		var digest = createDigest(parserKey);
+		for (String line : lines) {
+			digest.update(line.getBytes(StandardCharsets.UTF_8));
+			digest.update((byte) '\n');
+		}
+		return HexFormat.of().formatHex(digest.digest());
+	}
+
+	/**
+	 * Computes the key of mappings parsed from files.
+	 *
+	 * @param parserKey options of the parser, see {@link MappingType#getParserKey()}
+	 * @param files files the mappings are parsed from
+	 * @return the key of the mappings
+	 * @throws IOException if a file cannot be read
+	 */
+	public static @NotNull String hashFiles(@NotNull String parserKey, @NotNull Path... files) throws IOException {
+		var digest = createDigest(parserKey);
+		byte[] buffer = new byte[65536];
+		for (Path file : files) {
+			try (InputStream input = Files.newInputStream(file)) {
+				int read;
+				while ((read = input.read(buffer)) != -1)
+					digest.update(buffer, 0, read);
+			}
+			digest.update((byte) 0);
+		}
+		return HexFormat.of().formatHex(digest.digest());
+	}
+
+	private static @NotNull MessageDigest createDigest(@NotNull String parserKey) {
+		try {
+			var digest = MessageDigest.getInstance("SHA-256");
+			// a new snapshot format must not read snapshots of the previous one
+			digest.update((byte) BinaryMapping.FORMAT_VERSION);
+			digest.update(parserKey.getBytes(StandardCharsets.UTF_8));
+			digest.update((byte) 0);
+			return digest;
+		} catch (NoSuchAlgorithmException ex) {
+			// every Java platform is required to support SHA-256
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	@FunctionalInterface
+	public interface MappingsLoader {
+
+		@NotNull
+		Mappings load() throws IOException;
+
+	}
+
+}
@@ -0,0 +1,268 @@
+package fr.skytasul.reflection.mappings.files;
+
+import fr.skytasul.reflection.mappings.Mappings;
+import fr.skytasul.reflection.mappings.Mappings.ClassMapping;
+import fr.skytasul.reflection.mappings.Mappings.ClassMapping.ClassArrayType;
+import fr.skytasul.reflection.mappings.Mappings.ClassMapping.FieldMapping;
+import fr.skytasul.reflection.mappings.Mappings.ClassMapping.MethodMapping;
+import fr.skytasul.reflection.mappings.RealMappings;
+import fr.skytasul.reflection.mappings.RealMappings.RealClassMapping;
+import fr.skytasul.reflection.mappings.RealMappings.RealClassMapping.RealFieldMapping;
+import fr.skytasul.reflection.mappings.RealMappings.RealClassMapping.RealMethodMapping;
+import org.jetbrains.annotations.NotNull;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Differences between the mappings of two versions, used by composite mapping files to avoid
+ * repeating almost identical blocks for consecutive versions.
+ * <p>
+ * A delta block starts with removal lines, one per removed class, field or method:
+ *
+ * <pre>
+ * # reflection-remapper | remove class some.package.SomeClass
+ * # reflection-remapper | remove field some.package.OtherClass someField
+ * # reflection-remapper | remove method some.package.OtherClass someMethod(int, java.lang.String)
+ * </pre>
+ *
+ * It is followed by a regular mappings block, in the format of the file, containing the classes that
+ * were added or changed. Changed classes only list their added or renamed members.
+ * <p>
+ * Files containing delta blocks start with the {@link #FORMAT_MARKER} line. Delta headers and
+ * removal lines look like comments to readers which do not support deltas, so the marker is not a
+ * comment: such readers reject the file instead of silently merging the deltas into the previous
+ * versions.
+ */
+public final class MappingsDelta {
+
+	/**
+	 * First line of composite files containing delta blocks.
+	 */
+	public static final String FORMAT_MARKER = "reflection-remapper | delta format";
+
+	private static final String REMOVE_PREFIX = "# reflection-remapper | remove ";
+	private static final Pattern REMOVE_PATTERN = Pattern.compile(
+			"# reflection-remapper \\| remove (?<kind>class|field|method) (?<class>[^ ]+)(?: (?<member>.+))?");
+
+	private MappingsDelta() {}
+
+	/**
+	 * Checks if a line of a composite file describes a removal.
+	 *
+	 * @param line line of the file
+	 * @return <code>true</code> if the line is a removal line of a delta block
+	 */
+	public static boolean isRemovalLine(@NotNull String line) {
+		return line.startsWith(REMOVE_PREFIX);
+	}
+
+	/**
+	 * Writes the delta block which transforms the previous mappings into the current ones.
+	 *
+	 * @param type type of mappings used to write the added and changed classes
+	 * @param writer writer to append the block to
+	 * @param previous mappings of the previous version
+	 * @param current mappings of the version to write
+	 * @throws IOException if the writer cannot be written to
+	 */
+	public static void write(@NotNull MappingType type, @NotNull BufferedWriter writer, @NotNull Mappings previous,
+			@NotNull Mappings current) throws IOException {
+		Map<String, ClassMapping> previousClasses = new HashMap<>();
+		for (var previousClass : previous.getClasses())
+			previousClasses.put(previousClass.getOriginalName(), previousClass);
+
+		List<RealClassMapping> changedClasses = new ArrayList<>();
+		for (var currentClass : current.getClasses()) {
+			var previousClass = previousClasses.remove(currentClass.getOriginalName());
+			if (previousClass == null) {
+				changedClasses.add(new RealClassMapping(currentClass.getOriginalName(), currentClass.getMappedName(),
+						toRealFields(currentClass.getFields()), toRealMethods(currentClass.getMethods())));
+				continue;
+			}
+
+			Map<String, FieldMapping> previousFields = new HashMap<>();
+			for (var previousField : previousClass.getFields())
+				previousFields.put(previousField.getOriginalName(), previousField);
+			var changedFields = new ArrayList<FieldMapping>();
+			for (var currentField : currentClass.getFields()) {
+				var previousField = previousFields.remove(currentField.getOriginalName());
+				if (previousField == null || !previousField.getMappedName().equals(currentField.getMappedName()))
+					changedFields.add(currentField);
+			}
+			for (var removedField : previousFields.keySet())
+				writeRemoval(writer, "field", currentClass.getOriginalName(), removedField);
+
+			Map<String, MethodMapping> previousMethods = new HashMap<>();
+			for (var previousMethod : previousClass.getMethods())
+				previousMethods.put(getMethodKey(previousMethod), previousMethod);
+			var changedMethods = new ArrayList<MethodMapping>();
+			for (var currentMethod : currentClass.getMethods()) {
+				var previousMethod = previousMethods.remove(getMethodKey(currentMethod));
+				if (previousMethod == null || !previousMethod.getMappedName().equals(currentMethod.getMappedName()))
+					changedMethods.add(currentMethod);
+			}
+			for (var removedMethod : previousMethods.keySet())
+				writeRemoval(writer, "method", currentClass.getOriginalName(), removedMethod);
+
+			if (!changedFields.isEmpty() || !changedMethods.isEmpty()
+					|| !previousClass.getMappedName().equals(currentClass.getMappedName()))
+				changedClasses.add(new RealClassMapping(currentClass.getOriginalName(), currentClass.getMappedName(),
+						toRealFields(changedFields), toRealMethods(changedMethods)));
+		}
+		for (var removedClass : previousClasses.keySet())
+			writeRemoval(writer, "class", removedClass, null);
+
+		type.write(writer, new RealMappings(changedClasses));
+	}
+
+	private static void writeRemoval(@NotNull BufferedWriter writer, @NotNull String kind, @NotNull String className,
+			String member) throws IOException {
+		writer.append(REMOVE_PREFIX).append(kind).append(' ').append(className);
+		if (member != null)
+			writer.append(' ').append(member);
+		writer.newLine();
+	}
+
+	/**
+	 * Rebuilds the mappings of a version from the mappings of the previous one and a delta block.
+	 * <p>
+	 * The base mappings are not modified.
+	 *
+	 * @param base mappings of the previous version
+	 * @param changes parsed mappings block of the delta, containing the added and changed classes
+	 * @param removals removal lines of the delta
+	 * @return the mappings of the version
+	 */
+	public static @NotNull Mappings apply(@NotNull Mappings base, @NotNull Mappings changes,
+			@NotNull List<String> removals) {
+		Map<String, RealClassMapping> classes = new LinkedHashMap<>();
+		for (var baseClass : base.getClasses())
+			classes.put(baseClass.getOriginalName(), toRealClass(baseClass));
+		// classes which have already been copied and can therefore be modified in place
+		Set<String> copiedClasses = new HashSet<>();
+
+		for (var changedClass : changes.getClasses()) {
+			var baseClass = classes.get(changedClass.getOriginalName());
+			var newClass = new RealClassMapping(changedClass.getOriginalName(), changedClass.getMappedName(),
+					baseClass == null ? new ArrayList<>() : new ArrayList<>(baseClass.fields()),
+					baseClass == null ? new ArrayList<>() : new ArrayList<>(baseClass.methods()));
+			for (var changedField : changedClass.getFields()) {
+				newClass.fields().removeIf(field -> field.getOriginalName().equals(changedField.getOriginalName()));
+				newClass.fields().add(new RealFieldMapping(changedField.getOriginalName(), changedField.getMappedName()));
+			}
+			for (var changedMethod : changedClass.getMethods()) {
+				String key = getMethodKey(changedMethod);
+				newClass.methods().removeIf(method -> getMethodKey(method).equals(key));
+				newClass.methods().add(new RealMethodMapping(changedMethod.getOriginalName(),
+						changedMethod.getMappedName(), changedMethod.getParameterTypes()));
+			}
+			classes.put(newClass.original(), newClass);
+			copiedClasses.add(newClass.original());
+		}
+
+		for (String removal : removals) {
+			Matcher matcher = REMOVE_PATTERN.matcher(removal);
+			if (!matcher.matches())
+				throw new IllegalArgumentException("Malformed removal line " + removal);
+
+			String className = matcher.group("class");
+			if (matcher.group("kind").equals("class")) {
+				classes.remove(className);
+				continue;
+			}
+
+			var classMapping = getCopiedClass(classes, copiedClasses, className);
+			String member = matcher.group("member");
+			if (matcher.group("kind").equals("field"))
+				classMapping.fields().removeIf(field -> field.getOriginalName().equals(member));
+			else
+				classMapping.methods().removeIf(method -> getMethodKey(method).equals(member));
+		}
+
+		// parameter types must refer to the rebuilt classes: types of the delta block which refer to classes
+		// outside of it could not even be resolved when it was parsed
+		for (var classMapping : new ArrayList<>(classes.values())) {
+			for (int i = 0; i < classMapping.methods().size(); i++) {
+				var method = classMapping.methods().get(i);
+				var parameters = method.getParameterTypes();
+				Type[] relinkedParameters = null;
+				for (int j = 0; j < parameters.length; j++) {
+					var relinked = relinkType(parameters[j], classes);
+					if (relinked != parameters[j]) {
+						if (relinkedParameters == null)
+							relinkedParameters = parameters.clone();
+						relinkedParameters[j] = relinked;
+					}
+				}
+				if (relinkedParameters != null) {
+					classMapping = getCopiedClass(classes, copiedClasses, classMapping.original());
+					classMapping.methods().set(i,
+							new RealMethodMapping(method.getOriginalName(), method.getMappedName(), relinkedParameters));
+				}
+			}
+		}
+
+		return new RealMappings(new ArrayList<>(classes.values()));
+	}
+
+	private static @NotNull RealClassMapping getCopiedClass(@NotNull Map<String, RealClassMapping> classes,
+			@NotNull Set<String> copiedClasses, @NotNull String className) {
+		var classMapping = classes.get(className);
+		if (classMapping == null)
+			throw new IllegalArgumentException("Cannot find class " + className);
+		if (copiedClasses.add(className)) {
+			classMapping = new RealClassMapping(classMapping.original(), classMapping.mapped(),
+					new ArrayList<>(classMapping.fields()), new ArrayList<>(classMapping.methods()));
+			classes.put(className, classMapping);
+		}
+		return classMapping;
+	}
+
+	private static @NotNull Type relinkType(@NotNull Type type, @NotNull Map<String, RealClassMapping> classes) {
+		if (type instanceof ClassArrayType arrayType) {
+			var component = relinkType(arrayType.componentMapping(), classes);
+			return component == arrayType.componentMapping() ? type : new ClassArrayType(component);
+		}
+		if (type instanceof Class<?>)
+			return type;
+		var classMapping = classes.get(type.getTypeName());
+		return classMapping == null || classMapping == type ? type : classMapping;
+	}
+
+	private static @NotNull String getMethodKey(@NotNull MethodMapping method) {
+		return Mappings.getStringForMethod(method.getOriginalName(), method.getParameterTypes());
+	}
+
+	private static @NotNull RealClassMapping toRealClass(@NotNull ClassMapping classMapping) {
+		if (classMapping instanceof RealClassMapping realClass)
+			return realClass;
+		return new RealClassMapping(classMapping.getOriginalName(), classMapping.getMappedName(),
+				toRealFields(classMapping.getFields()), toRealMethods(classMapping.getMethods()));
+	}
+
+	private static @NotNull List<RealFieldMapping> toRealFields(@NotNull Iterable<? extends FieldMapping> fields) {
+		var realFields = new ArrayList<RealFieldMapping>();
+		for (var field : fields)
+			realFields.add(new RealFieldMapping(field.getOriginalName(), field.getMappedName()));
+		return realFields;
+	}
+
+	private static @NotNull List<RealMethodMapping> toRealMethods(@NotNull Iterable<? extends MethodMapping> methods) {
+		var realMethods = new ArrayList<RealMethodMapping>();
+		for (var method : methods)
+			realMethods.add(new RealMethodMapping(method.getOriginalName(), method.getMappedName(),
+					method.getParameterTypes()));
+		return realMethods;
+	}
+
+}
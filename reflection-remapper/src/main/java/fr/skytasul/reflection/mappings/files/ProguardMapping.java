@@ -10,7 +10,6 @@ import java.io.BufferedWriter;
 import java.io.IOException;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
@@ -19,7 +18,6 @@ import java.util.logging.Logger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 /**
  * Reads ProGuard obfuscation map.
@@ -33,16 +31,6 @@ import java.util.stream.Stream;
  */
 public class ProguardMapping implements MappingType {
 
-	private static final Map<String, Class<?>> PRIMITIVES = Map.of(
-			"boolean", boolean.class,
-			"byte", byte.class,
-			"short", short.class,
-			"int", int.class,
-			"long", long.class,
-			"float", float.class,
-			"double", double.class,
-			"char", char.class);
-
 	private static final Logger LOGGER = Logger.getLogger("ProguardMapping");
 
 	private static final Pattern CLASS_REGEX = Pattern.compile("(?<original>[\\w.$]+) -> (?<obfuscated>[\\w.$]+):");
@@ -54,13 +42,43 @@ public class ProguardMapping implements MappingType {
 	private static final Pattern METHOD_PARAMETERS_REGEX = Pattern.compile("([\\w.$]+)(\\[\\])?,?");
 
 	private final boolean failOnLineParse;
+	private final boolean lazyTypes;
 
 	public ProguardMapping(boolean failOnLineParse) {
+		this(failOnLineParse, false);
+	}
+
+	/**
+	 * Creates a ProGuard mappings type.
+	 *
+	 * @param failOnLineParse if <code>true</code>, an exception is thrown when a line cannot be parsed,
+	 *        otherwise it is only logged
+	 * @param lazyTypes if <code>true</code>, library classes used as method parameters are not loaded
+	 *        while parsing, but only when they are needed
+	 * @see TypeResolver
+	 */
+	public ProguardMapping(boolean failOnLineParse, boolean lazyTypes) {
 		this.failOnLineParse = failOnLineParse;
+		this.lazyTypes = lazyTypes;
+	}
+
+	@Override
+	public @NotNull String getParserKey() {
+		return getClass().getName() + "/" + failOnLineParse + "/" + lazyTypes;
+	}
+
+	@Override
+	public @NotNull TypeResolver createTypeResolver() {
+		return new TypeResolver(ProguardMapping.class.getClassLoader(), lazyTypes);
 	}
 
 	@Override
 	public Mappings parse(@NotNull List<String> lines) {
+		return parse(lines, new StringPool());
+	}
+
+	@Override
+	public Mappings parse(@NotNull List<String> lines, @NotNull StringPool stringPool) {
 		List<ObfuscatedClass> parsedClasses = new ArrayList<>();
 
 		String classOriginal = null, classObfuscated = null;
@@ -77,15 +95,16 @@ public class ProguardMapping implements MappingType {
 				if (classOriginal != null)
 					parsedClasses.add(new ObfuscatedClass(classOriginal, classObfuscated, classMethods, classFields));
 
-				classOriginal = classMatch.group("original");
-				classObfuscated = classMatch.group("obfuscated");
+				classOriginal = stringPool.intern(classMatch.group("original"));
+				classObfuscated = stringPool.intern(classMatch.group("obfuscated"));
 				classMethods = new ArrayList<>();
 				classFields = new ArrayList<>();
 			} else if ((methodMatch = METHOD_REGEX.matcher(line)).matches()) {
-				classMethods.add(new ObfuscatedMethod(methodMatch.group("original"), methodMatch.group("obfuscated"),
-						methodMatch.group("parameters")));
+				classMethods.add(new ObfuscatedMethod(stringPool.intern(methodMatch.group("original")),
+						stringPool.intern(methodMatch.group("obfuscated")), methodMatch.group("parameters")));
 			} else if ((fieldMatch = FIELD_REGEX.matcher(line)).matches()) {
-				classFields.add(new ObfuscatedField(fieldMatch.group("original"), fieldMatch.group("obfuscated")));
+				classFields.add(new ObfuscatedField(stringPool.intern(fieldMatch.group("original")),
+						stringPool.intern(fieldMatch.group("obfuscated"))));
 			} else {
 				if (failOnLineParse)
 					throw new IllegalArgumentException("Failed to parse line " + line);
@@ -99,7 +118,8 @@ public class ProguardMapping implements MappingType {
 
 		LOGGER.log(Level.FINE, "Found {0} classes to remap", parsedClasses.size());
 
-		var fakeTypes = new HashMap<String, Type>();
+		// shared for the whole file so that every library type is looked up only once
+		var typeResolver = createTypeResolver();
 		var classes = parsedClasses.stream()
 				.map(clazz -> new RealClassMapping(clazz.original, clazz.obfuscated, new ArrayList<>(), new ArrayList<>()))
 				.collect(Collectors.toMap(RealClassMapping::getOriginalName, Function.identity()));
@@ -113,14 +133,14 @@ public class ProguardMapping implements MappingType {
 			classMapping.methods().addAll(parsedClass.methods
 					.stream()
 					.map(method -> new RealMethodMapping(method.original, method.obfuscated,
-							parseParameters(method.parameters, fakeTypes, classes)))
+							parseParameters(method.parameters, typeResolver, classes)))
 					.toList());
 		}
 		return new RealMappings(classes.values());
 	}
 
-	protected @NotNull Type @NotNull [] parseParameters(@NotNull String parameters,
-			Map<@NotNull String, Type> fakeTypes, Map<@NotNull String, RealClassMapping> classes) {
+	protected @NotNull Type @NotNull [] parseParameters(@NotNull String parameters, @NotNull TypeResolver typeResolver,
+			Map<@NotNull String, RealClassMapping> classes) {
 		List<Type> types = new ArrayList<>(2);
 
 		Matcher matcher = METHOD_PARAMETERS_REGEX.matcher(parameters);
@@ -128,29 +148,14 @@ public class ProguardMapping implements MappingType {
 			String typeName = matcher.group(1);
 			boolean isArray = matcher.group(2) != null;
 
-			Class<?> clazz = null;
 			Type type = classes.get(typeName);
 			if (type == null) {
 				// the type is not present in the mappings: must be a primitive or a Java library type
-				clazz = PRIMITIVES.get(typeName);
-				if (clazz == null) {
-					// the type is not a primitive: must be a library type
-					try {
-						clazz = Class.forName(typeName);
-					} catch (ClassNotFoundException __) {
-						if (!fakeTypes.containsKey(typeName)) {
-							LOGGER.log(Level.FINER, "Cannot find class {0}", typeName);
-							fakeTypes.put(typeName, new FakeType(typeName)); // not ideal
-						}
-						type = fakeTypes.get(typeName);
-					}
-				}
+				type = typeResolver.resolve(typeName);
 			}
 
-			if (clazz != null)
-				type = isArray ? clazz.arrayType() : clazz;
-			else if (isArray)
-				type = new Mappings.ClassMapping.ClassArrayType(type);
+			if (isArray)
+				type = type instanceof Class<?> clazz ? clazz.arrayType() : new Mappings.ClassMapping.ClassArrayType(type);
 
 			types.add(type);
 		}
@@ -160,21 +165,26 @@ public class ProguardMapping implements MappingType {
 
 	@Override
 	public void write(@NotNull BufferedWriter writer, @NotNull Mappings mappings) throws IOException {
+		// lines are appended piece by piece to avoid building intermediate strings for every member
 		for (var mappedClass : mappings.getClasses()) {
-			writer.append("%s -> %s:".formatted(mappedClass.getOriginalName(), mappedClass.getMappedName()));
+			writer.append(mappedClass.getOriginalName()).append(" -> ").append(mappedClass.getMappedName()).append(':');
 			writer.newLine();
 
 			for (var mappedField : mappedClass.getFields()) {
-				writer.append("    %s -> %s".formatted(mappedField.getOriginalName(), mappedField.getMappedName()));
+				writer.append("    ").append(mappedField.getOriginalName()).append(" -> ")
+						.append(mappedField.getMappedName());
 				writer.newLine();
 			}
 
 			for (var mappedMethod : mappedClass.getMethods()) {
-				String parameters = Stream.of(mappedMethod.getParameterTypes())
-						.map(parameter -> parameter.getTypeName())
-						.collect(Collectors.joining(","));
-				writer.append("    %s(%s) -> %s".formatted(mappedMethod.getOriginalName(), parameters,
-						mappedMethod.getMappedName()));
+				writer.append("    ").append(mappedMethod.getOriginalName()).append('(');
+				var parameterTypes = mappedMethod.getParameterTypes();
+				for (int i = 0; i < parameterTypes.length; i++) {
+					if (i != 0)
+						writer.append(',');
+					writer.append(parameterTypes[i].getTypeName());
+				}
+				writer.append(") -> ").append(mappedMethod.getMappedName());
 				writer.newLine();
 			}
 		}
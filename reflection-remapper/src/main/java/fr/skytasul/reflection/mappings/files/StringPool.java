@@ -0,0 +1,41 @@
+package fr.skytasul.reflection.mappings.files;
+
+import org.jetbrains.annotations.NotNull;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Deduplicates the names read by mapping parsers.
+ * <p>
+ * Class and member names are repeated a lot in mappings: the same member names appear in many
+ * classes, and consecutive versions of a composite file share most of their names. Passing the same
+ * pool to every parse of a load makes all those occurrences share a single {@link String} instance,
+ * so that only one copy of each name is retained once the lines have been discarded.
+ * <p>
+ * Unlike {@link String#intern()}, the pool is not global: its strings can be garbage-collected once
+ * the pool and the mappings using them are no longer referenced.
+ */
+public class StringPool {
+
+	private final Map<String, String> strings = new ConcurrentHashMap<>();
+
+	/**
+	 * Gets the pooled instance of a string.
+	 *
+	 * @param string string to deduplicate
+	 * @return a string equal to the passed one, which is the same instance for every equal string
+	 *         passed to this pool
+	 */
+	public @NotNull String intern(@NotNull String string) {
+		var pooled = strings.putIfAbsent(string, string);
+		return pooled == null ? string : pooled;
+	}
+
+	/**
+	 * @return the number of distinct strings in the pool
+	 */
+	public int size() {
+		return strings.size();
+	}
+
+}
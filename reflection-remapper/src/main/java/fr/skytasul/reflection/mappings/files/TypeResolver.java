@@ -0,0 +1,129 @@
+package fr.skytasul.reflection.mappings.files;
+
+import fr.skytasul.reflection.mappings.files.ProguardMapping.FakeType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Resolves the names of types which are not part of the mappings, i.e. primitives and library
+ * classes.
+ * <p>
+ * Every name is looked up at most once: results, including failed lookups, are cached. Classes are
+ * loaded without being initialized. In lazy mode, library classes are not even loaded: they are
+ * represented by {@link LazyType} instances which only load their class when it is actually needed.
+ */
+public class TypeResolver {
+
+	private static final Map<String, Class<?>> PRIMITIVES = Map.of(
+			"boolean", boolean.class,
+			"byte", byte.class,
+			"short", short.class,
+			"int", int.class,
+			"long", long.class,
+			"float", float.class,
+			"double", double.class,
+			"char", char.class);
+
+	private static final Logger LOGGER = Logger.getLogger("TypeResolver");
+
+	private final @Nullable ClassLoader classLoader;
+	private final boolean lazy;
+
+	private final Map<String, Type> types = new ConcurrentHashMap<>();
+
+	/**
+	 * Creates a resolver which loads classes eagerly from the class loader of this library.
+	 */
+	public TypeResolver() {
+		this(TypeResolver.class.getClassLoader(), false);
+	}
+
+	/**
+	 * Creates a resolver.
+	 *
+	 * @param classLoader class loader used to load library classes
+	 * @param lazy if <code>true</code>, library classes are represented by {@link LazyType} instead of
+	 *        being loaded
+	 */
+	public TypeResolver(@Nullable ClassLoader classLoader, boolean lazy) {
+		this.classLoader = classLoader;
+		this.lazy = lazy;
+	}
+
+	/**
+	 * Resolves a type name.
+	 *
+	 * @param typeName binary name of the type, or name of a primitive type
+	 * @return the primitive or loaded class if found, a {@link LazyType} in lazy mode, otherwise a
+	 *         placeholder type holding the name
+	 */
+	public @NotNull Type resolve(@NotNull String typeName) {
+		var type = types.get(typeName);
+		if (type == null) {
+			type = PRIMITIVES.get(typeName);
+			if (type == null)
+				type = lazy ? new LazyType(typeName, classLoader) : load(typeName);
+			types.put(typeName, type);
+		}
+		return type;
+	}
+
+	private @NotNull Type load(@NotNull String typeName) {
+		try {
+			return Class.forName(typeName, false, classLoader);
+		} catch (ClassNotFoundException __) {
+			LOGGER.log(Level.FINER, "Cannot find class {0}", typeName);
+			return new FakeType(typeName);
+		}
+	}
+
+	/**
+	 * A library type whose class is only loaded when first requested.
+	 */
+	public static final class LazyType implements Type {
+
+		private final @NotNull String name;
+		private final @Nullable ClassLoader classLoader;
+
+		private volatile @Nullable Class<?> cachedClass;
+
+		private LazyType(@NotNull String name, @Nullable ClassLoader classLoader) {
+			this.name = name;
+			this.classLoader = classLoader;
+		}
+
+		@Override
+		public @NotNull String getTypeName() {
+			return name;
+		}
+
+		public @NotNull Class<?> getClassInstance() throws ClassNotFoundException {
+			var clazz = cachedClass;
+			if (clazz == null)
+				cachedClass = clazz = Class.forName(name, false, classLoader);
+			return clazz;
+		}
+
+		@Override
+		public int hashCode() {
+			return name.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof LazyType other && other.name.equals(name);
+		}
+
+		@Override
+		public String toString() {
+			return name;
+		}
+
+	}
+
+}
@@ -12,6 +12,10 @@ public class DummyTestClass {
 		return field;
 	}
 
+	public boolean isSame(DummyTestClass other) {
+		return field.equals(other.field);
+	}
+
 	@SuppressWarnings("unused")
 	private int privateMethod() {
 		return field.length();
@@ -0,0 +1,140 @@
+package fr.skytasul.reflection;
+
+import static fr.skytasul.reflection.TestUtils.getLines;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import fr.skytasul.reflection.mappings.Mappings;
+import fr.skytasul.reflection.mappings.files.ProguardMapping;
+import fr.skytasul.reflection.ReflectionAccessor.ClassAccessor;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class MappedReflectionAccessorTest {
+
+	@Test
+	void testFallbackMappings() {
+		var mappingType = new ProguardMapping(true);
+		var core = mappingType.parse(getLines("""
+				some.Dummy -> fr.skytasul.reflection.DummyTestClass:
+				    java.lang.String getParam() -> getParameter
+				"""));
+		var remainder = mappingType.parse(getLines("""
+				some.Dummy -> fr.skytasul.reflection.DummyTestClass:
+				    java.lang.String original -> field
+				    int secret() -> privateMethod
+				some.Other -> java.lang.String:
+				"""));
+		var loads = new AtomicInteger();
+		ReflectionAccessor accessor = new MappedReflectionAccessor(core).setFallbackMappings(() -> {
+			loads.incrementAndGet();
+			return remainder;
+		});
+
+		assertDoesNotThrow(() -> {
+			var instance = new DummyTestClass("value");
+			var dummyClass = accessor.getClass("some.Dummy");
+			assertEquals("value", dummyClass.getMethod("getParam").invoke(instance));
+			assertEquals(0, loads.get());
+
+			assertEquals("value", dummyClass.getField("original").get(instance));
+			assertEquals(5, dummyClass.getMethod("secret").invoke(instance));
+			assertEquals(String.class, accessor.getClass("some.Other").getClassInstance());
+			assertEquals(1, loads.get());
+		});
+		assertThrows(NoSuchFieldException.class, () -> accessor.getClass("some.Dummy").getField("missing"));
+		assertThrows(ClassNotFoundException.class, () -> accessor.getClass("some.Missing"));
+	}
+
+	@Test
+	void testFallbackLoadedOnce() {
+		var mappingType = new ProguardMapping(true);
+		var remainder = mappingType.parse(getLines("""
+				some.Other -> java.lang.String:
+				"""));
+		var loads = new AtomicInteger();
+		ReflectionAccessor accessor = new MappedReflectionAccessor(mappingType.parse(getLines("""
+				some.Dummy -> fr.skytasul.reflection.DummyTestClass:
+				"""))).setFallbackMappings(() -> {
+					loads.incrementAndGet();
+					try {
+						Thread.sleep(50); // so that the other lookups miss while it loads
+					} catch (InterruptedException ex) {
+						Thread.currentThread().interrupt();
+					}
+					return remainder;
+				});
+
+		var lookups = new ArrayList<CompletableFuture<Void>>();
+		for (int thread = 0; thread < 4; thread++) {
+			var missingClass = "some.Missing" + thread;
+			lookups.add(CompletableFuture.runAsync(
+					() -> assertThrows(ClassNotFoundException.class, () -> accessor.getClass(missingClass))));
+		}
+		lookups.forEach(CompletableFuture::join);
+		assertEquals(1, loads.get());
+	}
+
+	@Test
+	void testLinearLookupIndexed() {
+		var parsed = new ProguardMapping(true).parse(getLines("""
+				some.Dummy -> fr.skytasul.reflection.DummyTestClass:
+				"""));
+		var linearLookups = new AtomicInteger();
+		// overrides the lookup, but still scans the classes
+		ReflectionAccessor accessor = new MappedReflectionAccessor(new Mappings() {
+			@Override
+			public Collection<? extends ClassMapping> getClasses() {
+				return parsed.getClasses();
+			}
+
+			@Override
+			public @Nullable ClassMapping getClass(@NotNull String originalName) {
+				linearLookups.incrementAndGet();
+				return Mappings.super.getClass(originalName);
+			}
+		});
+
+		assertDoesNotThrow(() -> {
+			assertEquals(DummyTestClass.class, accessor.getClass("some.Dummy").getClassInstance());
+		});
+		assertThrows(ClassNotFoundException.class, () -> accessor.getClass("some.Missing"));
+		assertEquals(0, linearLookups.get());
+	}
+
+	@Test
+	void testConcurrentLookups() {
+		int classes = 2000;
+		var lines = new StringBuilder();
+		for (int i = 0; i < classes; i++)
+			lines.append("some.Class").append(i).append(" -> a").append(i).append(":\n");
+		ReflectionAccessor accessor = new MappedReflectionAccessor(new ProguardMapping(false).parse(getLines(lines.toString())));
+
+		var lookups = new ArrayList<CompletableFuture<List<ClassAccessor>>>();
+		for (int thread = 0; thread < 4; thread++) {
+			lookups.add(CompletableFuture.supplyAsync(() -> {
+				var handles = new ArrayList<ClassAccessor>(classes);
+				for (int i = 0; i < classes; i++)
+					handles.add(assertDoesNotThrow(() -> accessor.getClass("some.Class" + handles.size())));
+				return handles;
+			}));
+		}
+
+		var first = lookups.get(0).join();
+		for (var lookup : lookups) {
+			var handles = lookup.join();
+			for (int i = 0; i < classes; i++) {
+				assertSame(first.get(i), handles.get(i));
+				assertEquals("some.Class" + i, handles.get(i).getTypeName());
+			}
+		}
+	}
+
+}
@@ -0,0 +1,87 @@
+package fr.skytasul.reflection;
+
+import static fr.skytasul.reflection.TestUtils.getLines;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import fr.skytasul.reflection.mappings.files.ProguardMapping;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+class StackTraceDeobfuscatorTest {
+
+	private final StackTraceDeobfuscator deobfuscator = new StackTraceDeobfuscator(new ProguardMapping(true).parse(
+			getLines("""
+					net.minecraft.world.entity.Marker -> a.b:
+					    void tick() -> a
+					    void tick(int) -> b
+					    void load(int) -> c
+					    void save(int) -> c
+					""")));
+
+	private static StackTraceElement element(String className, String methodName) {
+		return new StackTraceElement(className, methodName, "SourceFile", 12);
+	}
+
+	@Test
+	void testElement() {
+		var element = deobfuscator.deobfuscate(element("a.b", "a"));
+		assertEquals("net.minecraft.world.entity.Marker", element.getClassName());
+		assertEquals("tick", element.getMethodName());
+		assertEquals("SourceFile", element.getFileName());
+		assertEquals(12, element.getLineNumber());
+
+		assertEquals("load|save", deobfuscator.deobfuscate(element("a.b", "c")).getMethodName());
+		assertEquals("<init>", deobfuscator.deobfuscate(element("a.b", "<init>")).getMethodName());
+
+		var unknownElement = element("java.lang.Thread", "run");
+		assertSame(unknownElement, deobfuscator.deobfuscate(unknownElement));
+	}
+
+	@Test
+	void testThrowable() {
+		var cause = new IllegalStateException();
+		cause.setStackTrace(new StackTraceElement[] {element("a.b", "b")});
+		var throwable = new RuntimeException(cause);
+		throwable.setStackTrace(new StackTraceElement[] {element("a.b", "a"), element("java.lang.Thread", "run")});
+		cause.initCause(throwable); // cycle
+
+		assertSame(throwable, deobfuscator.deobfuscate(throwable));
+		assertEquals("tick", throwable.getStackTrace()[0].getMethodName());
+		assertEquals("java.lang.Thread", throwable.getStackTrace()[1].getClassName());
+		assertEquals("net.minecraft.world.entity.Marker", cause.getStackTrace()[0].getClassName());
+	}
+
+	@Test
+	void testLoggerDecorator() {
+		var published = new ArrayList<LogRecord>();
+		var logger = Logger.getLogger("StackTraceDeobfuscatorTest");
+		logger.setUseParentHandlers(false);
+		logger.addHandler(new Handler() {
+			@Override
+			public void publish(LogRecord record) {
+				published.add(record);
+			}
+
+			@Override
+			public void flush() {}
+
+			@Override
+			public void close() {}
+		});
+		deobfuscator.decorate(logger);
+		deobfuscator.decorate(logger);
+		assertEquals(1, logger.getHandlers().length);
+
+		var throwable = new RuntimeException();
+		throwable.setStackTrace(new StackTraceElement[] {element("a.b", "a")});
+		logger.log(Level.SEVERE, "error", throwable);
+
+		assertEquals(1, published.size());
+		assertEquals("tick", published.get(0).getThrown().getStackTrace()[0].getMethodName());
+	}
+
+}
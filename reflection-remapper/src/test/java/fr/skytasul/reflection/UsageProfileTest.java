@@ -0,0 +1,88 @@
+package fr.skytasul.reflection;
+
+import static fr.skytasul.reflection.TestUtils.getLines;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import fr.skytasul.reflection.mappings.files.ProguardMapping;
+import org.junit.jupiter.api.Test;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Map;
+
+class UsageProfileTest {
+
+	private static final String MAPPINGS = """
+			some.Dummy -> fr.skytasul.reflection.DummyTestClass:
+			    java.lang.String original -> field
+			    java.lang.String getParam() -> getParameter
+			    int secret() -> privateMethod
+			""";
+
+	@Test
+	void testAccessorHits() {
+		assertDoesNotThrow(() -> {
+			var profile = new UsageProfile();
+			ReflectionAccessor accessor = new MappedReflectionAccessor(new ProguardMapping(true).parse(getLines(MAPPINGS)))
+					.setUsageProfile(profile);
+
+			var instance = new DummyTestClass("value");
+			var dummyClass = accessor.getClass("some.Dummy");
+			assertEquals("value", dummyClass.getField("original").get(instance));
+			var method = accessor.getClass("some.Dummy").getMethod("getParam");
+			for (int i = 0; i < 3; i++)
+				assertEquals("value", method.invoke(instance));
+
+			assertEquals(Map.of(
+					"some.Dummy", 2L,
+					"some.Dummy original", 2L, // resolved and got
+					"some.Dummy getParam()", 4L), // resolved and invoked 3 times
+					profile.getHits());
+			assertEquals(0, profile.getHits(UsageProfile.getMethodKey("some.Dummy", "secret")));
+		});
+	}
+
+	@Test
+	void testParameterClassesNotCounted() {
+		assertDoesNotThrow(() -> {
+			var profile = new UsageProfile();
+			ReflectionAccessor accessor = new MappedReflectionAccessor(new ProguardMapping(true).parse(getLines("""
+					some.Dummy -> fr.skytasul.reflection.DummyTestClass:
+					    boolean same(some.Dummy) -> isSame
+					"""))).setUsageProfile(profile);
+
+			var dummyClass = accessor.getClass("some.Dummy");
+			var method = dummyClass.getMethod("same", dummyClass);
+			assertEquals(true, method.invoke(new DummyTestClass("value"), new DummyTestClass("value")));
+
+			assertEquals(Map.of(
+					"some.Dummy", 1L, // not counted again when the parameter types are loaded
+					"some.Dummy same(some.Dummy)", 2L),
+					profile.getHits());
+		});
+	}
+
+	@Test
+	void testWriteRead() {
+		assertDoesNotThrow(() -> {
+			var profile = new UsageProfile();
+			profile.hit("a.A");
+			profile.hit("b.B m(int, a.A)");
+			profile.hit("b.B m(int, a.A)");
+			profile.getCounter("c.C");
+
+			var writer = new StringWriter();
+			profile.write(writer);
+			assertEquals("""
+					2 b.B m(int, a.A)
+					1 a.A
+					""", writer.toString());
+
+			var read = UsageProfile.read(new StringReader(writer.toString()));
+			assertEquals(profile.getHits(), read.getHits());
+			assertEquals(Map.of("a.A", 2L, "b.B m(int, a.A)", 4L), read.merge(profile).getHits());
+		});
+		assertThrows(IllegalArgumentException.class, () -> UsageProfile.read(new StringReader("a.A 1")));
+	}
+
+}
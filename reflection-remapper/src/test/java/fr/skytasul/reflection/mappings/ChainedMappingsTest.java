@@ -0,0 +1,88 @@
+package fr.skytasul.reflection.mappings;
+
+import static fr.skytasul.reflection.TestUtils.getLines;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import fr.skytasul.reflection.mappings.Mappings.ClassMapping;
+import fr.skytasul.reflection.mappings.Mappings.ClassMapping.MethodMapping;
+import fr.skytasul.reflection.mappings.files.ProguardMapping;
+import org.junit.jupiter.api.Test;
+import java.util.List;
+import java.util.stream.Collectors;
+
+class ChainedMappingsTest {
+
+	private static final ProguardMapping MAPPING_TYPE = new ProguardMapping(true);
+
+	private static final Mappings FIRST = MAPPING_TYPE.parse(getLines("""
+			some.A -> a:
+			    int field -> f
+			    int unmappedField -> u
+			    void method(some.A) -> m
+			    void method(some.A[]) -> m
+			    void method(int) -> n
+			some.A$Inner -> a$i:
+			some.B -> b:
+			"""));
+	private static final Mappings SECOND = MAPPING_TYPE.parse(getLines("""
+			a -> middle.A:
+			    f -> middleField
+			    void m(a) -> middleMethod
+			    void m(a[]) -> middleArrayMethod
+			    void onlyHere() -> ignored
+			"""));
+	private static final Mappings THIRD = MAPPING_TYPE.parse(getLines("""
+			middle.A -> last.A:
+			    middleField -> lastField
+			    void middleMethod(middle.A) -> lastMethod
+			b -> last.B:
+			"""));
+
+	private static String getMethod(ClassMapping classMapping, String original, String parameters) {
+		return classMapping.getMethods().stream()
+				.filter(method -> method.getOriginalName().equals(original)
+						&& Mappings.getStringForMethod(original, method.getParameterTypes())
+								.equals(original + "(" + parameters + ")"))
+				.map(MethodMapping::getMappedName)
+				.findAny().orElseThrow();
+	}
+
+	@Test
+	void testClasses() {
+		var chain = ChainedMappings.of(FIRST, SECOND, THIRD);
+		assertEquals("last.A", chain.getClass("some.A").getMappedName());
+		assertEquals("last.B", chain.getClass("some.B").getMappedName()); // not mapped by the second stage
+		assertEquals("last.A$i", chain.getClass("some.A$Inner").getMappedName()); // follows its outer class
+		assertNull(chain.getClass("a"));
+		assertSame(chain.getClass("some.A"), chain.getClass("some.A"));
+		assertEquals("some.A -> last.A, some.A$Inner -> last.A$i, some.B -> last.B", chain.getClasses().stream()
+				.map(ClassMapping::toString).sorted().collect(Collectors.joining(", ")));
+	}
+
+	@Test
+	void testMembers() {
+		var classA = ChainedMappings.of(FIRST, SECOND, THIRD).getClass("some.A");
+		assertEquals(List.of("field -> lastField", "unmappedField -> u"), classA.getFields().stream()
+				.map(field -> field.getOriginalName() + " -> " + field.getMappedName()).toList());
+		assertEquals(3, classA.getMethods().size());
+		assertEquals("lastMethod", getMethod(classA, "method", "some.A"));
+		assertEquals("middleArrayMethod", getMethod(classA, "method", "some.A[]"));
+		assertEquals("n", getMethod(classA, "method", "int"));
+		assertSame(classA.getMethods(), classA.getMethods());
+
+		// parameters are classes of the chain, with the chained mapped name
+		var parameter = classA.getMethods().iterator().next().getParameterTypes()[0];
+		assertEquals("last.A", ((ClassMapping) parameter).getMappedName());
+	}
+
+	@Test
+	void testSingleStage() {
+		var chain = ChainedMappings.of(FIRST);
+		assertEquals("a", chain.getClass("some.A").getMappedName());
+		assertEquals("m", getMethod(chain.getClass("some.A"), "method", "some.A"));
+		assertThrows(IllegalArgumentException.class, () -> ChainedMappings.of());
+	}
+
+}
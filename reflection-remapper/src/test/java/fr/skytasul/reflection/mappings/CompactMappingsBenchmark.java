@@ -0,0 +1,87 @@
+package fr.skytasul.reflection.mappings;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import fr.skytasul.reflection.mappings.RealMappings.RealClassMapping;
+import fr.skytasul.reflection.mappings.RealMappings.RealClassMapping.RealFieldMapping;
+import fr.skytasul.reflection.mappings.RealMappings.RealClassMapping.RealMethodMapping;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the retained heap and the class lookup time of {@link RealMappings} and
+ * {@link CompactMappings} over full-size synthetic mappings. Heap sizes are estimated from the used
+ * heap after garbage collections, so they are only indicative.
+ */
+@Tag("benchmark")
+class CompactMappingsBenchmark {
+
+	private static final int CLASSES = 20000;
+	private static final int FIELDS = 10;
+	private static final int METHODS = 10;
+
+	private static final int LOOKUPS = 2000;
+	private static final int MEASURED_RUNS = 5;
+
+	@Test
+	void benchmarkCompactMappings() {
+		long before = usedHeap();
+		var real = generateMappings();
+		long realHeap = usedHeap() - before;
+
+		before = usedHeap();
+		var compact = CompactMappings.of(generateMappings());
+		long compactHeap = usedHeap() - before;
+
+		System.out.printf("retained heap, %d classes: real %d KiB, compact %d KiB%n", CLASSES, realHeap / 1024,
+				compactHeap / 1024);
+
+		var names = new ArrayList<String>(LOOKUPS);
+		for (int i = 0; i < LOOKUPS; i++)
+			names.add(className(i * 7 % CLASSES));
+
+		for (var mappings : List.of(real, compact, real, compact)) {
+			long start = System.nanoTime();
+			int parameters = 0;
+			for (int run = 0; run < MEASURED_RUNS; run++) {
+				for (var name : names)
+					parameters += mappings.getClass(name).getMethods().iterator().next().getParameterTypes().length;
+			}
+			System.out.printf("%s lookup: %.3f us%n", mappings.getClass().getSimpleName(),
+					(System.nanoTime() - start) / 1e3 / (MEASURED_RUNS * LOOKUPS));
+			assertEquals(MEASURED_RUNS * LOOKUPS * 3, parameters);
+		}
+	}
+
+	private static Mappings generateMappings() {
+		var classes = new ArrayList<RealClassMapping>(CLASSES);
+		for (int c = 0; c < CLASSES; c++)
+			classes.add(new RealClassMapping(className(c), "c" + c, new ArrayList<>(), new ArrayList<>()));
+
+		var random = new Random(1);
+		for (var classMapping : classes) {
+			// distinct string instances, as a parser would create them
+			for (int f = 0; f < FIELDS; f++)
+				classMapping.fields().add(new RealFieldMapping(new String("field" + f), new String("f" + f)));
+			for (int m = 0; m < METHODS; m++)
+				classMapping.methods().add(new RealMethodMapping(new String("method" + m), new String("m" + m),
+						new Type[] {int.class, classes.get(random.nextInt(CLASSES)), String.class}));
+		}
+		return new RealMappings(classes);
+	}
+
+	private static String className(int index) {
+		return "net.minecraft.pkg" + (index % 50) + ".Class" + index;
+	}
+
+	private static long usedHeap() {
+		var runtime = Runtime.getRuntime();
+		for (int i = 0; i < 5; i++)
+			System.gc();
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+}
@@ -0,0 +1,94 @@
+package fr.skytasul.reflection.mappings;
+
+import static fr.skytasul.reflection.TestUtils.getLines;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import fr.skytasul.reflection.DummyTestClass;
+import fr.skytasul.reflection.MappedReflectionAccessor;
+import fr.skytasul.reflection.ReflectionAccessor;
+import fr.skytasul.reflection.mappings.Mappings.ClassMapping.ClassArrayType;
+import fr.skytasul.reflection.mappings.files.ProguardMapping;
+import org.junit.jupiter.api.Test;
+import java.lang.reflect.Type;
+
+class CompactMappingsTest {
+
+	private static final ProguardMapping PROGUARD = new ProguardMapping(true);
+
+	@Test
+	void testClassLookup() {
+		var mappings = CompactMappings.of(PROGUARD.parse(getLines("""
+				net.minecraft.world.entity.Marker -> xyz:
+				net.minecraft.world.entity.Interaction -> abc:
+				net.minecraft.world.entity.Display -> def:
+				""")));
+		assertEquals(3, mappings.getClasses().size());
+		assertEquals("abc", mappings.getClass("net.minecraft.world.entity.Interaction").getMappedName());
+		assertEquals("def", mappings.getClass("net.minecraft.world.entity.Display").getMappedName());
+		assertEquals("xyz", mappings.getClass("net.minecraft.world.entity.Marker").getMappedName());
+		assertNull(mappings.getClass("net.minecraft.world.entity.Unknown"));
+	}
+
+	@Test
+	void testClassReused() {
+		var mappings = CompactMappings.of(PROGUARD.parse(getLines("""
+				net.minecraft.world.entity.Marker -> xyz:
+				net.minecraft.world.entity.Display -> def:
+				    void displayMethod(net.minecraft.world.entity.Marker) -> a
+				""")));
+		var marker = mappings.getClass("net.minecraft.world.entity.Marker");
+		assertSame(marker, mappings.getClass("net.minecraft.world.entity.Marker"));
+		assertSame(marker, mappings.getClasses().get(1));
+
+		var display = mappings.getClass("net.minecraft.world.entity.Display");
+		assertSame(marker, display.getMethods().iterator().next().getParameterTypes()[0]);
+	}
+
+	@Test
+	void testMembers() {
+		var mappings = CompactMappings.of(PROGUARD.parse(getLines("""
+				net.minecraft.world.entity.Marker -> xyz:
+				    java.lang.String stringField -> a
+				    int intField -> b
+				    10:11:boolean boolMethod(net.minecraft.world.entity.Marker[],int,java.lang.String[]) -> b
+				    void voidMethod() -> c
+				net.minecraft.world.entity.Display -> def:
+				    void displayMethod(net.minecraft.world.entity.Marker) -> a
+				""")));
+		var marker = mappings.getClass("net.minecraft.world.entity.Marker");
+		assertEquals(2, marker.getFields().size());
+		assertEquals("intField", marker.getFields().stream().toList().get(1).getOriginalName());
+		assertEquals(2, marker.getMethods().size());
+
+		var method = marker.getMethods().iterator().next();
+		assertEquals("boolMethod", method.getOriginalName());
+		assertEquals("b", method.getMappedName());
+		assertArrayEquals(new Type[] {new ClassArrayType(marker), int.class, String[].class},
+				method.getParameterTypes());
+
+		var display = mappings.getClass("net.minecraft.world.entity.Display");
+		assertTrue(display.getFields().isEmpty());
+		assertArrayEquals(new Type[] {marker}, display.getMethods().iterator().next().getParameterTypes());
+	}
+
+	@Test
+	void testReflectionAccessor() {
+		assertDoesNotThrow(() -> {
+			ReflectionAccessor accessor = new MappedReflectionAccessor(CompactMappings.of(PROGUARD.parse(getLines("""
+					some.original.Dummy -> fr.skytasul.reflection.DummyTestClass:
+					    java.lang.String originalField -> field
+					    int originalMethod() -> privateMethod
+					"""))));
+
+			var clazz = accessor.getClass("some.original.Dummy");
+			var instance = new DummyTestClass("hello");
+			assertEquals("hello", clazz.getField("originalField").get(instance));
+			assertEquals(5, clazz.getMethod("originalMethod").invoke(instance));
+		});
+	}
+
+}
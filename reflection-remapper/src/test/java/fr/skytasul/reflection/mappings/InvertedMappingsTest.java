@@ -0,0 +1,71 @@
+package fr.skytasul.reflection.mappings;
+
+import static fr.skytasul.reflection.TestUtils.getLines;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import fr.skytasul.reflection.mappings.Mappings.ClassMapping;
+import fr.skytasul.reflection.mappings.files.ProguardMapping;
+import org.junit.jupiter.api.Test;
+import java.util.stream.Collectors;
+
+class InvertedMappingsTest {
+
+	private static final Mappings MAPPINGS = new ProguardMapping(true).parse(getLines("""
+			net.minecraft.world.entity.Marker -> xyz:
+			    java.lang.String stringField -> a
+			    void method(int) -> a
+			    void method(net.minecraft.world.entity.Marker) -> b
+			    void method(net.minecraft.world.entity.Marker[]) -> c
+			net.minecraft.world.entity.Display -> def:
+			"""));
+
+	private static String describe(Mappings mappings) {
+		return mappings.getClasses().stream()
+				.sorted((a, b) -> a.getOriginalName().compareTo(b.getOriginalName()))
+				.map(classMapping -> classMapping.toString() + classMapping.getFields().stream()
+						.map(field -> "\n    " + field.getOriginalName() + " -> " + field.getMappedName())
+						.collect(Collectors.joining())
+						+ classMapping.getMethods().stream()
+								.map(method -> "\n    "
+										+ Mappings.getStringForMethod(method.getOriginalName(), method.getParameterTypes())
+										+ " -> " + method.getMappedName())
+								.collect(Collectors.joining()))
+				.collect(Collectors.joining("\n"));
+	}
+
+	@Test
+	void testInvert() {
+		var inverted = MAPPINGS.invert();
+		assertEquals("""
+				def -> net.minecraft.world.entity.Display
+				xyz -> net.minecraft.world.entity.Marker
+				    a -> stringField
+				    a(int) -> method
+				    b(xyz) -> method
+				    c(xyz[]) -> method""", describe(inverted));
+
+		var marker = inverted.getClass("xyz");
+		assertEquals("net.minecraft.world.entity.Marker", marker.getMappedName());
+		assertNull(inverted.getClass("net.minecraft.world.entity.Marker"));
+		// parameters are the inverted classes, shared by all methods
+		assertSame(marker, marker.getMethods().stream().toList().get(1).getParameterTypes()[0]);
+	}
+
+	@Test
+	void testInvertTwice() {
+		assertSame(MAPPINGS, MAPPINGS.invert().invert());
+	}
+
+	@Test
+	void testCompact() {
+		var compact = CompactMappings.of(MAPPINGS.invert());
+		assertEquals(describe(MAPPINGS.invert()), describe(compact));
+		var index = compact.createIndex();
+		var marker = index.getClass("xyz");
+		assertEquals("method", index.getMethod(marker, "b", marker).getMappedName());
+		assertEquals("net.minecraft.world.entity.Marker", ((ClassMapping) index.getMethod(marker, "b", marker)
+				.getParameterTypes()[0]).getMappedName());
+	}
+
+}
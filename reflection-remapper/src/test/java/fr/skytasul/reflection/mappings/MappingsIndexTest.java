@@ -0,0 +1,79 @@
+package fr.skytasul.reflection.mappings;
+
+import static fr.skytasul.reflection.TestUtils.getLines;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import fr.skytasul.reflection.MappedReflectionAccessor;
+import fr.skytasul.reflection.mappings.files.ProguardMapping;
+import org.junit.jupiter.api.Test;
+import java.util.List;
+
+class MappingsIndexTest {
+
+	private static final Mappings MAPPINGS = new ProguardMapping(true).parse(getLines("""
+			net.minecraft.world.entity.Marker -> xyz:
+			    java.lang.String stringField -> a
+			    int intField -> b
+			    void method(int) -> a
+			    void method(net.minecraft.world.entity.Marker) -> b
+			    void otherMethod(int) -> b
+			net.minecraft.world.entity.Display -> def:
+			"""));
+
+	@Test
+	void testClasses() {
+		var index = MAPPINGS.createIndex();
+		var marker = index.getClass("net.minecraft.world.entity.Marker");
+		assertEquals("xyz", marker.getMappedName());
+		assertSame(marker, index.getClassFromMapped("xyz"));
+		assertEquals("net.minecraft.world.entity.Display", index.getClassFromMapped("def").getOriginalName());
+		assertNull(index.getClass("xyz"));
+		assertNull(index.getClassFromMapped("net.minecraft.world.entity.Marker"));
+	}
+
+	@Test
+	void testFields() {
+		var index = MAPPINGS.createIndex();
+		var marker = index.getClass("net.minecraft.world.entity.Marker");
+		assertEquals("a", index.getField(marker, "stringField").getMappedName());
+		assertEquals("intField", index.getFieldFromMapped(marker, "b").getOriginalName());
+		assertNull(index.getFieldFromMapped(marker, "c"));
+		assertNull(index.getField(index.getClass("net.minecraft.world.entity.Display"), "stringField"));
+	}
+
+	@Test
+	void testMethods() {
+		var index = MAPPINGS.createIndex();
+		var marker = index.getClass("net.minecraft.world.entity.Marker");
+		assertEquals("a", index.getMethod(marker, "method", int.class).getMappedName());
+		assertEquals("b", index.getMethod(marker, "method", marker).getMappedName());
+		assertNull(index.getMethod(marker, "method"));
+
+		assertEquals("method", index.getMethodFromMapped(marker, "b", marker).getOriginalName());
+		assertEquals("otherMethod", index.getMethodFromMapped(marker, "b", int.class).getOriginalName());
+		assertEquals(List.of("method", "otherMethod"),
+				index.getMethodsFromMapped(marker, "b").stream().map(x -> x.getOriginalName()).toList());
+		assertTrue(index.getMethodsFromMapped(marker, "c").isEmpty());
+	}
+
+	@Test
+	void testUnknownClass() {
+		var index = MAPPINGS.createIndex();
+		var otherClass = new RealMappings.RealClassMapping("other", "o", List.of(), List.of());
+		assertThrows(IllegalArgumentException.class, () -> index.getField(otherClass, "field"));
+	}
+
+	@Test
+	void testAccessor() {
+		assertDoesNotThrow(() -> {
+			var accessor = new MappedReflectionAccessor(MAPPINGS);
+			assertEquals("net.minecraft.world.entity.Marker", accessor.getOriginalClassName("xyz"));
+			assertNull(accessor.getOriginalClassName("abc"));
+		});
+	}
+
+}
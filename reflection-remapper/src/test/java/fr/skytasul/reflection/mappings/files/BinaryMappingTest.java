@@ -0,0 +1,133 @@
+package fr.skytasul.reflection.mappings.files;
+
+import static fr.skytasul.reflection.TestUtils.getLines;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import fr.skytasul.reflection.mappings.Mappings;
+import fr.skytasul.reflection.mappings.Mappings.ClassMapping;
+import fr.skytasul.reflection.mappings.Mappings.ClassMapping.ClassArrayType;
+import fr.skytasul.reflection.mappings.RealMappings;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+class BinaryMappingTest {
+
+	private static final ProguardMapping PROGUARD = new ProguardMapping(true);
+
+	private BinaryMapping binary;
+
+	@BeforeEach
+	void setUp() {
+		binary = new BinaryMapping();
+	}
+
+	private Mappings roundTrip(Mappings mappings) throws IOException {
+		var output = new ByteArrayOutputStream();
+		binary.write(output, mappings);
+		var buffer = ByteBuffer.wrap(output.toByteArray());
+		var parsed = binary.parse(buffer);
+		assertEquals(0, buffer.remaining());
+		return parsed;
+	}
+
+	@Test
+	void testEmpty() {
+		assertDoesNotThrow(() -> {
+			var mappings = roundTrip(new RealMappings(List.of()));
+			assertTrue(mappings.getClasses().isEmpty());
+		});
+	}
+
+	@Test
+	void testFullClass() {
+		assertDoesNotThrow(() -> {
+			var mappings = roundTrip(PROGUARD.parse(getLines("""
+					net.minecraft.world.entity.Interaction -> abc:
+					    java.lang.String stringField -> a
+					    67:85:void voidMethod(int,java.lang.String[]) -> a
+					""")));
+			assertEquals(1, mappings.getClasses().size());
+
+			var parsedClass = mappings.getClasses().iterator().next();
+			assertEquals("net.minecraft.world.entity.Interaction", parsedClass.getOriginalName());
+			assertEquals("abc", parsedClass.getMappedName());
+
+			var parsedField = parsedClass.getFields().iterator().next();
+			assertEquals("stringField", parsedField.getOriginalName());
+			assertEquals("a", parsedField.getMappedName());
+
+			var parsedMethod = parsedClass.getMethods().iterator().next();
+			assertEquals("voidMethod", parsedMethod.getOriginalName());
+			assertEquals("a", parsedMethod.getMappedName());
+			assertArrayEquals(new Type[] {int.class, String[].class}, parsedMethod.getParameterTypes());
+		});
+	}
+
+	@Test
+	void testClassParameters() {
+		assertDoesNotThrow(() -> {
+			var mappings = roundTrip(PROGUARD.parse(getLines("""
+					net.minecraft.world.entity.Marker -> xyz:
+					    10:11:boolean boolMethod(net.minecraft.world.entity.Interaction[]) -> b
+					net.minecraft.world.entity.Interaction -> abc:
+					    void method(net.minecraft.world.entity.Marker,some.unknown.Type) -> a
+					""")));
+			assertEquals(2, mappings.getClasses().size());
+
+			ClassMapping interaction = null, marker = null;
+			for (var parsedClass : mappings.getClasses()) {
+				if (parsedClass.getMappedName().equals("abc"))
+					interaction = parsedClass;
+				else
+					marker = parsedClass;
+			}
+
+			var interactionParameters = interaction.getMethods().iterator().next().getParameterTypes();
+			assertSame(marker, interactionParameters[0]);
+			assertEquals("some.unknown.Type", interactionParameters[1].getTypeName());
+
+			var markerParameters = marker.getMethods().iterator().next().getParameterTypes();
+			assertEquals(new ClassArrayType(interaction), markerParameters[0]);
+		});
+	}
+
+	@Test
+	void testStringTableDeduplication() {
+		assertDoesNotThrow(() -> {
+			var small = new ByteArrayOutputStream();
+			binary.write(small, PROGUARD.parse(getLines("""
+					net.minecraft.world.entity.Interaction -> abc:
+					""")));
+
+			var big = new ByteArrayOutputStream();
+			binary.write(big, PROGUARD.parse(getLines("""
+					net.minecraft.world.entity.Interaction -> abc:
+					    java.lang.String abc -> abc
+					    int abc -> abc
+					""")));
+
+			// two fields whose names are all already in the string table only cost a few index bytes
+			assertTrue(big.size() - small.size() < 10);
+		});
+	}
+
+	@Test
+	void testVarInt() {
+		assertDoesNotThrow(() -> {
+			for (int value : new int[] {0, 1, 127, 128, 300, 16383, 16384, Integer.MAX_VALUE}) {
+				var output = new ByteArrayOutputStream();
+				BinaryMapping.writeVarInt(output, value);
+				assertEquals(value, BinaryMapping.readVarInt(ByteBuffer.wrap(output.toByteArray())));
+			}
+		});
+	}
+
+}
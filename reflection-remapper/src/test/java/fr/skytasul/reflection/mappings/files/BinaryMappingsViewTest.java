@@ -0,0 +1,106 @@
+package fr.skytasul.reflection.mappings.files;
+
+import static fr.skytasul.reflection.TestUtils.getLines;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import fr.skytasul.reflection.DummyTestClass;
+import fr.skytasul.reflection.MappedReflectionAccessor;
+import fr.skytasul.reflection.ReflectionAccessor;
+import fr.skytasul.reflection.mappings.Mappings.ClassMapping.ClassArrayType;
+import org.junit.jupiter.api.Test;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+
+class BinaryMappingsViewTest {
+
+	private static final ProguardMapping PROGUARD = new ProguardMapping(true);
+
+	private static BinaryMappingsView openView(String lines) throws IOException {
+		var output = new ByteArrayOutputStream();
+		new BinaryMapping().write(output, PROGUARD.parse(getLines(lines)));
+		return new BinaryMappingsView(ByteBuffer.wrap(output.toByteArray()));
+	}
+
+	@Test
+	void testClassLookup() {
+		assertDoesNotThrow(() -> {
+			var view = openView("""
+					net.minecraft.world.entity.Marker -> xyz:
+					net.minecraft.world.entity.Interaction -> abc:
+					net.minecraft.world.entity.Display -> def:
+					""");
+			assertEquals(3, view.getClasses().size());
+			assertEquals("abc", view.getClass("net.minecraft.world.entity.Interaction").getMappedName());
+			assertEquals("def", view.getClass("net.minecraft.world.entity.Display").getMappedName());
+			assertEquals("xyz", view.getClass("net.minecraft.world.entity.Marker").getMappedName());
+			assertNull(view.getClass("net.minecraft.world.entity.Unknown"));
+		});
+	}
+
+	@Test
+	void testMembers() {
+		assertDoesNotThrow(() -> {
+			var view = openView("""
+					net.minecraft.world.entity.Marker -> xyz:
+					    java.lang.String stringField -> a
+					    int intField -> b
+					    10:11:boolean boolMethod(net.minecraft.world.entity.Marker[],int) -> b
+					    void voidMethod() -> c
+					""");
+			var marker = view.getClass("net.minecraft.world.entity.Marker");
+			assertEquals(2, marker.getFields().size());
+			assertEquals("intField", marker.getFields().stream().toList().get(1).getOriginalName());
+			assertEquals(2, marker.getMethods().size());
+
+			var method = marker.getMethods().iterator().next();
+			assertEquals("boolMethod", method.getOriginalName());
+			assertEquals("b", method.getMappedName());
+			assertArrayEquals(new Type[] {new ClassArrayType(marker), int.class}, method.getParameterTypes());
+		});
+	}
+
+	@Test
+	void testParseAsView() {
+		assertDoesNotThrow(() -> {
+			var output = new ByteArrayOutputStream();
+			var mappings = PROGUARD.parse(getLines("""
+					net.minecraft.world.entity.Marker -> xyz:
+					"""));
+			new BinaryMapping().write(output, mappings);
+			new BinaryMapping().write(output, mappings);
+
+			var buffer = ByteBuffer.wrap(output.toByteArray());
+			var binaryType = new BinaryMapping(true);
+			assertTrue(binaryType.parse(buffer) instanceof BinaryMappingsView);
+			assertTrue(binaryType.parse(buffer) instanceof BinaryMappingsView);
+			assertEquals(0, buffer.remaining());
+		});
+	}
+
+	@Test
+	void testReflectionAccessor() {
+		assertDoesNotThrow(() -> {
+			ReflectionAccessor accessor = new MappedReflectionAccessor(openView("""
+					some.original.Dummy -> fr.skytasul.reflection.DummyTestClass:
+					    java.lang.String originalField -> field
+					    int originalMethod() -> privateMethod
+					"""));
+
+			var clazz = accessor.getClass("some.original.Dummy");
+			assertEquals(DummyTestClass.class, clazz.getClassInstance());
+
+			var instance = new DummyTestClass("hello");
+			assertEquals("hello", clazz.getField("originalField").get(instance));
+			assertEquals(5, clazz.getMethod("originalMethod").invoke(instance));
+		});
+		assertThrows(ClassNotFoundException.class,
+				() -> new MappedReflectionAccessor(openView("# no classes")).getClass("some.original.Dummy"));
+	}
+
+}
@@ -7,13 +7,21 @@ import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import fr.skytasul.reflection.Version;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.zip.GZIPOutputStream;
 
 class MappingFileReaderTest {
 
@@ -137,4 +145,179 @@ class MappingFileReaderTest {
 
 	}
 
+	@Test
+	void testParseMappingsSharesNames() {
+		assertDoesNotThrow(() -> {
+			var reader = new MappingFileReader(mappingType, getLines("""
+					# reflection-remapper | 1.0.0
+					net.minecraft.world.entity.Interaction -> abc:
+					    java.lang.String stringField -> a
+					# reflection-remapper | 1.1.0
+					net.minecraft.world.entity.Interaction -> abd:
+					    java.lang.String stringField -> a
+					"""));
+			reader.parseMappings();
+
+			var class1 = reader.getParsedMappings(new Version(1, 0, 0)).getClasses().iterator().next();
+			var class2 = reader.getParsedMappings(new Version(1, 1, 0)).getClasses().iterator().next();
+			assertSame(class1.getOriginalName(), class2.getOriginalName());
+			assertSame(class1.getFields().iterator().next().getOriginalName(),
+					class2.getFields().iterator().next().getOriginalName());
+			assertSame(class1.getFields().iterator().next().getMappedName(),
+					class2.getFields().iterator().next().getMappedName());
+		});
+	}
+
+	@Test
+	void testParseDeltaMappings() {
+		assertDoesNotThrow(() -> {
+			var reader = new MappingFileReader(mappingType, getLines("""
+					reflection-remapper | delta format
+					# reflection-remapper | 1.0.0
+					net.minecraft.world.entity.Interaction -> abc:
+					    java.lang.String stringField -> a
+					    java.lang.String otherField -> b
+					# reflection-remapper | 1.1.0 delta
+					# reflection-remapper | remove field net.minecraft.world.entity.Interaction otherField
+					net.minecraft.world.entity.Interaction -> abd:
+					# reflection-remapper | 1.2.0 delta
+					net.minecraft.world.entity.Interaction -> abd:
+					    java.lang.String stringField -> c
+					"""));
+			assertArrayEquals(parseArray("1.0.0", "1.1.0", "1.2.0"), reader.getAvailableVersions().toArray());
+			assertTrue(reader.keepOnlyVersion(new Version(1, 2, 0)));
+			reader.parseMappings();
+
+			var parsedClass = reader.getParsedMappings(new Version(1, 2, 0)).getClasses().iterator().next();
+			assertEquals("abd", parsedClass.getMappedName());
+			assertEquals(1, parsedClass.getFields().size());
+			assertEquals("c", parsedClass.getFields().iterator().next().getMappedName());
+		});
+	}
+
+	@Test
+	void testParseSameMappings() {
+		assertDoesNotThrow(() -> {
+			var reader = new MappingFileReader(mappingType, getLines("""
+					# reflection-remapper | 1.0.0
+					net.minecraft.world.entity.Interaction -> abc:
+					# reflection-remapper | 1.1.0 same as 1.0.0
+					# reflection-remapper | 1.2.0 same as 1.0.0
+					"""));
+			assertArrayEquals(parseArray("1.0.0", "1.1.0", "1.2.0"), reader.getAvailableVersions().toArray());
+			assertTrue(reader.keepOnlyVersion(new Version(1, 2, 0)));
+			reader.parseMappings();
+
+			var parsedClass = reader.getParsedMappings(new Version(1, 2, 0)).getClasses().iterator().next();
+			assertEquals("abc", parsedClass.getMappedName());
+		});
+		assertThrows(IllegalArgumentException.class, () -> {
+			new MappingFileReader(mappingType, getLines("""
+					# reflection-remapper | 1.1.0 same as 1.0.0
+					"""));
+		});
+	}
+
+	@Test
+	void testReadStream() {
+		String content = """
+				# reflection-remapper | 1.0.0
+				net.minecraft.world.entity.Interaction -> abc:
+				# reflection-remapper | 1.1.0
+				net.minecraft.world.entity.Interaction -> abd:
+				""";
+		assertDoesNotThrow(() -> {
+			var compressed = new ByteArrayOutputStream();
+			try (var output = new GZIPOutputStream(compressed)) {
+				output.write(content.getBytes(StandardCharsets.UTF_8));
+			}
+
+			for (byte[] bytes : new byte[][] {content.getBytes(StandardCharsets.UTF_8), compressed.toByteArray()}) {
+				var reader = new MappingFileReader(mappingType, new ByteArrayInputStream(bytes));
+				assertArrayEquals(parseArray("1.0.0", "1.1.0"), reader.getAvailableVersions().toArray());
+				reader.parseMappings();
+				assertEquals("abd",
+						reader.getParsedMappings(new Version(1, 1, 0)).getClasses().iterator().next().getMappedName());
+			}
+		});
+	}
+
+	@Test
+	void testIncorrectDelta() {
+		assertThrows(IllegalArgumentException.class, () -> {
+			new MappingFileReader(mappingType, getLines("""
+					reflection-remapper | delta format
+					# reflection-remapper | 1.0.0 delta
+					net.minecraft.world.entity.Interaction -> abc:
+					"""));
+		});
+		assertThrows(IllegalArgumentException.class, () -> {
+			new MappingFileReader(mappingType, getLines("""
+					# reflection-remapper | 1.0.0
+					net.minecraft.world.entity.Interaction -> abc:
+					# reflection-remapper | 1.1.0 delta
+					net.minecraft.world.entity.Interaction -> abd:
+					"""));
+		});
+		assertThrows(IllegalArgumentException.class, () -> {
+			new MappingFileReader(mappingType, getLines("""
+					# reflection-remapper | 1.0.0
+					reflection-remapper | delta format
+					net.minecraft.world.entity.Interaction -> abc:
+					"""));
+		});
+		assertThrows(IllegalArgumentException.class, () -> {
+			new MappingFileReader(mappingType, getLines("""
+					# reflection-remapper | 1.0.0
+					# reflection-remapper | remove class net.minecraft.world.entity.Interaction
+					"""));
+		});
+	}
+
+	@Test
+	void testParseBinaryMappings() {
+		assertDoesNotThrow(() -> {
+			var binaryType = new BinaryMapping();
+			var bytes = new ByteArrayOutputStream();
+			var output = new DataOutputStream(bytes);
+			output.writeInt(BinaryMapping.MAGIC);
+			output.writeByte(BinaryMapping.FORMAT_VERSION);
+			writeBinaryPart(output, binaryType, new Version(1, 0, 0), """
+					net.minecraft.world.entity.Interaction -> abc:
+					    java.lang.String stringField -> a
+					""");
+			writeBinaryPart(output, binaryType, new Version(1, 1, 0), """
+					net.minecraft.world.entity.Interaction -> abd:
+					    java.lang.String stringField -> b
+					""");
+
+			var reader = new MappingFileReader(binaryType, ByteBuffer.wrap(bytes.toByteArray()));
+			assertArrayEquals(parseArray("1.0.0", "1.1.0"), reader.getAvailableVersions().toArray());
+			assertTrue(reader.keepOnlyVersion(new Version(1, 1, 0)));
+			reader.parseMappings();
+
+			var parsedClass = reader.getParsedMappings(new Version(1, 1, 0)).getClasses().iterator().next();
+			assertEquals("abd", parsedClass.getMappedName());
+			assertEquals("b", parsedClass.getFields().iterator().next().getMappedName());
+		});
+	}
+
+	@Test
+	void testIncorrectBinaryHeader() {
+		assertThrows(IOException.class, () -> {
+			new MappingFileReader(new BinaryMapping(), ByteBuffer.wrap(new byte[] {1, 2, 3, 4, 5}));
+		});
+	}
+
+	private void writeBinaryPart(DataOutputStream output, BinaryMapping binaryType, Version version, String lines)
+			throws IOException {
+		var block = new ByteArrayOutputStream();
+		binaryType.write(block, mappingType.parse(getLines(lines)));
+		BinaryMapping.writeVarInt(output, version.major());
+		BinaryMapping.writeVarInt(output, version.minor());
+		BinaryMapping.writeVarInt(output, version.patch());
+		BinaryMapping.writeVarInt(output, block.size());
+		block.writeTo(output);
+	}
+
 }
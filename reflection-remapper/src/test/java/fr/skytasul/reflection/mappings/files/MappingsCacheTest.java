@@ -0,0 +1,128 @@
+package fr.skytasul.reflection.mappings.files;
+
+import static fr.skytasul.reflection.TestUtils.getLines;
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import fr.skytasul.reflection.Version;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+class MappingsCacheTest {
+
+	private static final ProguardMapping PROGUARD = new ProguardMapping(true);
+
+	@TempDir
+	Path directory;
+
+	@Test
+	void testSnapshotReused() {
+		assertDoesNotThrow(() -> {
+			var lines = getLines("""
+					net.minecraft.world.entity.Marker -> xyz:
+					    java.lang.String stringField -> a
+					    void method(net.minecraft.world.entity.Marker,int) -> b
+					""");
+			var cache = new MappingsCache(directory);
+			var loads = new AtomicInteger();
+			String key = MappingsCache.hashLines(PROGUARD.getParserKey(), lines);
+
+			for (int i = 0; i < 2; i++) {
+				var mappings = cache.get(key, new StringPool(), PROGUARD.createTypeResolver(), () -> {
+					loads.incrementAndGet();
+					return PROGUARD.parse(lines);
+				});
+				var marker = mappings.getClass("net.minecraft.world.entity.Marker");
+				assertEquals("xyz", marker.getMappedName());
+				assertEquals("a", marker.getFields().iterator().next().getMappedName());
+				assertEquals(marker, marker.getMethods().iterator().next().getParameterTypes()[0]);
+			}
+			assertEquals(1, loads.get());
+		});
+	}
+
+	@Test
+	void testSameTypesOnHit() {
+		assertDoesNotThrow(() -> {
+			var lines = getLines("""
+					net.minecraft.world.entity.Marker -> xyz:
+					    void method(java.lang.String,int,some.library.Missing) -> b
+					""");
+			var cache = new MappingsCache(directory);
+			for (var type : new ProguardMapping[] {new ProguardMapping(true, false), new ProguardMapping(true, true)}) {
+				String key = MappingsCache.hashLines(type.getParserKey(), lines);
+				List<Class<?>> parsedTypes = null;
+				for (int i = 0; i < 2; i++) { // a miss, then a hit
+					var mappings = cache.get(key, new StringPool(), type.createTypeResolver(), () -> type.parse(lines));
+					var parameterTypes = mappings.getClass("net.minecraft.world.entity.Marker").getMethods().iterator()
+							.next().getParameterTypes();
+					var typeClasses = Stream.of(parameterTypes).<Class<?>>map(Object::getClass).toList();
+					if (parsedTypes == null)
+						parsedTypes = typeClasses;
+					else
+						assertEquals(parsedTypes, typeClasses);
+				}
+			}
+		});
+	}
+
+	@Test
+	void testKeys() {
+		var lines = getLines("""
+				net.minecraft.world.entity.Marker -> xyz:
+				""");
+		var otherLines = getLines("""
+				net.minecraft.world.entity.Marker -> xyy:
+				""");
+		assertEquals(MappingsCache.hashLines(PROGUARD.getParserKey(), lines),
+				MappingsCache.hashLines(PROGUARD.getParserKey(), getLines("""
+						net.minecraft.world.entity.Marker -> xyz:
+						""")));
+		assertNotEquals(MappingsCache.hashLines(PROGUARD.getParserKey(), lines),
+				MappingsCache.hashLines(PROGUARD.getParserKey(), otherLines));
+		assertNotEquals(MappingsCache.hashLines(PROGUARD.getParserKey(), lines),
+				MappingsCache.hashLines(new ProguardMapping(false).getParserKey(), lines));
+	}
+
+	@Test
+	void testCorruptedSnapshot() {
+		assertDoesNotThrow(() -> {
+			var cache = new MappingsCache(directory);
+			Files.write(directory.resolve("corrupted.bin"), new byte[] {5, 1});
+			var mappings = cache.get("corrupted", new StringPool(), PROGUARD.createTypeResolver(),
+					() -> PROGUARD.parse(getLines("""
+					net.minecraft.world.entity.Marker -> xyz:
+					""")));
+			assertEquals(1, mappings.getClasses().size());
+			assertEquals(1, cache.get("corrupted", new StringPool(), PROGUARD.createTypeResolver(), () -> null).getClasses().size());
+		});
+	}
+
+	@Test
+	void testFileReader() {
+		assertDoesNotThrow(() -> {
+			var lines = getLines("""
+					# reflection-remapper | 1.0.0
+					net.minecraft.world.entity.Interaction -> abc:
+					# reflection-remapper | 1.1.0
+					net.minecraft.world.entity.Interaction -> abd:
+					""");
+			var cache = new MappingsCache(directory);
+			for (int i = 0; i < 2; i++) {
+				var reader = new MappingFileReader(PROGUARD, lines).setCache(cache);
+				reader.parseMappings();
+				assertEquals("abd", reader.getParsedMappings(new Version(1, 1, 0))
+						.getClass("net.minecraft.world.entity.Interaction").getMappedName());
+			}
+			try (var files = Files.list(directory)) {
+				assertEquals(2, files.count());
+			}
+		});
+	}
+
+}
@@ -4,7 +4,10 @@ import static fr.skytasul.reflection.TestUtils.getLines;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import fr.skytasul.reflection.MappedReflectionAccessor;
+import fr.skytasul.reflection.ReflectionAccessor;
 import fr.skytasul.reflection.mappings.RealMappings;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -93,26 +96,28 @@ class ProguardMappingTest {
 
 	@Test
 	void testParseEmptyParameters() {
-		assertArrayEquals(new Type[] {}, reader.parseParameters("", Map.of(), Map.of()));
+		assertArrayEquals(new Type[] {}, reader.parseParameters("", new TypeResolver(), Map.of()));
 	}
 
 	@Test
 	void testParsePrimitiveParameters() {
-		assertArrayEquals(new Type[] {int.class}, reader.parseParameters("int", Map.of(), Map.of()));
-		assertArrayEquals(new Type[] {int.class, boolean.class}, reader.parseParameters("int,boolean", Map.of(), Map.of()));
+		assertArrayEquals(new Type[] {int.class}, reader.parseParameters("int", new TypeResolver(), Map.of()));
+		assertArrayEquals(new Type[] {int.class, boolean.class},
+				reader.parseParameters("int,boolean", new TypeResolver(), Map.of()));
 	}
 
 	@Test
 	void testParseJavaParameters() {
-		assertArrayEquals(new Type[] {String.class}, reader.parseParameters("java.lang.String", Map.of(), Map.of()));
+		assertArrayEquals(new Type[] {String.class},
+				reader.parseParameters("java.lang.String", new TypeResolver(), Map.of()));
 		assertArrayEquals(new Type[] {String.class, java.nio.file.Files.class},
-				reader.parseParameters("java.lang.String,java.nio.file.Files", Map.of(), Map.of()));
+				reader.parseParameters("java.lang.String,java.nio.file.Files", new TypeResolver(), Map.of()));
 	}
 
 	@Test
 	void testParseJavaArrayParameters() {
 		assertArrayEquals(new Type[] {String[].class, int[].class},
-				reader.parseParameters("java.lang.String[],int[]", Map.of(), Map.of()));
+				reader.parseParameters("java.lang.String[],int[]", new TypeResolver(), Map.of()));
 	}
 
 	@Test
@@ -120,7 +125,8 @@ class ProguardMappingTest {
 		var dummyClassHandle =
 				new RealMappings.RealClassMapping("net.minecraft.ChatFormatting", "abc", List.of(), List.of());
 
-		assertArrayEquals(new Type[] {dummyClassHandle}, reader.parseParameters("net.minecraft.ChatFormatting", Map.of(),
+		assertArrayEquals(new Type[] {dummyClassHandle},
+				reader.parseParameters("net.minecraft.ChatFormatting", new TypeResolver(),
 						Map.of(dummyClassHandle.getOriginalName(), dummyClassHandle)));
 	}
 
@@ -130,8 +136,34 @@ class ProguardMappingTest {
 				new RealMappings.RealClassMapping("net.minecraft.ChatFormatting", "abc", List.of(), List.of());
 
 		assertArrayEquals(new Type[] {dummyClassHandle.getArrayType()},
-				reader.parseParameters("net.minecraft.ChatFormatting[]", Map.of(),
+				reader.parseParameters("net.minecraft.ChatFormatting[]", new TypeResolver(),
 						Map.of(dummyClassHandle.getOriginalName(), dummyClassHandle)));
 	}
 
+	@Test
+	void testParseLazyParameters() {
+		var typeResolver = new TypeResolver(getClass().getClassLoader(), true);
+		var types = reader.parseParameters("java.lang.String,int,java.lang.String[]", typeResolver, Map.of());
+		assertTrue(types[0] instanceof TypeResolver.LazyType);
+		assertEquals("java.lang.String", types[0].getTypeName());
+		assertEquals(int.class, types[1]);
+		assertEquals("java.lang.String[]", types[2].getTypeName());
+		assertSame(types[0], typeResolver.resolve("java.lang.String"));
+		assertDoesNotThrow(() -> assertEquals(String.class, ((TypeResolver.LazyType) types[0]).getClassInstance()));
+	}
+
+	@Test
+	void testLazyMappingsAccessor() {
+		assertDoesNotThrow(() -> {
+			var mappings = new ProguardMapping(true, true).parse(getLines("""
+					some.original.Text -> java.lang.String:
+					    java.lang.String originalJoin(java.lang.CharSequence,java.lang.CharSequence[]) -> join
+					"""));
+			ReflectionAccessor accessor = new MappedReflectionAccessor(mappings);
+			var method = accessor.getClass("some.original.Text").getMethod("originalJoin", CharSequence.class,
+					CharSequence[].class);
+			assertEquals("a-b", method.invoke(null, "-", new CharSequence[] {"a", "b"}));
+		});
+	}
+
 }